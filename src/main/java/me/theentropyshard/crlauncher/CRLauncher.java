@@ -20,6 +20,8 @@ package me.theentropyshard.crlauncher;
 
 import me.theentropyshard.crlauncher.cosmic.account.AccountManager;
 import me.theentropyshard.crlauncher.cosmic.icon.IconManager;
+import me.theentropyshard.crlauncher.cosmic.launcher.FabricCosmicLauncher;
+import me.theentropyshard.crlauncher.cosmic.launcher.PatchCosmicLauncher;
 import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.QuiltManager;
 import me.theentropyshard.crlauncher.cosmic.mods.puzzle.PuzzleManager;
 import me.theentropyshard.crlauncher.cosmic.version.VersionManager;
@@ -34,11 +36,18 @@ import me.theentropyshard.crlauncher.gui.utils.WindowClosingListener;
 import me.theentropyshard.crlauncher.instance.InstanceManager;
 import me.theentropyshard.crlauncher.itch.ItchIoApi;
 import me.theentropyshard.crlauncher.java.JavaLocator;
+import me.theentropyshard.crlauncher.java.JavaProbeCache;
 import me.theentropyshard.crlauncher.language.Language;
 import me.theentropyshard.crlauncher.logging.Log;
 import me.theentropyshard.crlauncher.mclogs.McLogsApi;
+import me.theentropyshard.crlauncher.network.HttpCache;
 import me.theentropyshard.crlauncher.network.UserAgentInterceptor;
+import me.theentropyshard.crlauncher.network.download.DownloadScheduler;
+import me.theentropyshard.crlauncher.storage.BlobStore;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.*;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 
@@ -47,6 +56,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -71,7 +81,14 @@ public class CRLauncher {
     private final Path settingsFile;
     private final Settings settings;
 
+    private final VerificationIndex verificationIndex;
+    private final JavaProbeCache javaProbeCache;
+    private final BlobStore blobStore;
+    private final LibraryRepository libraryRepository;
+
+    private final HttpCache httpCache;
     private final OkHttpClient httpClient;
+    private final DownloadScheduler downloadScheduler;
     private final CrmmApi crmmApi;
     private final McLogsApi mcLogsApi;
     private final ItchIoApi itchIoApi;
@@ -116,6 +133,10 @@ public class CRLauncher {
         this.settingsFile = this.workDir.resolve("settings.json");
         this.settings = Settings.load(this.settingsFile);
 
+        if (this.settings.minLogLevel != null) {
+            Log.setMinLevel(this.settings.minLogLevel);
+        }
+
         if (this.settings.disableFileIntegrityCheck) {
             Log.warn("File integrity check is disabled!");
         }
@@ -146,6 +167,30 @@ public class CRLauncher {
 
         this.createDirectories();
 
+        this.verificationIndex = new VerificationIndex(this.workDir.resolve("verified.json"));
+        this.verificationIndex.setForceReverify(this.settings.forceFileReverify);
+        try {
+            this.verificationIndex.load();
+        } catch (Exception e) {
+            Log.error("Unable to load file verification index", e);
+        }
+
+        this.javaProbeCache = new JavaProbeCache(this.workDir.resolve("java-probes.json"));
+        try {
+            this.javaProbeCache.load();
+        } catch (Exception e) {
+            Log.error("Unable to load Java probe cache", e);
+        }
+
+        this.blobStore = new BlobStore(this.workDir.resolve("blobs"), this.verificationIndex);
+        try {
+            this.blobStore.load();
+        } catch (Exception e) {
+            Log.error("Unable to load blob store", e);
+        }
+
+        this.libraryRepository = new LibraryRepository(this.librariesDir);
+
         this.languages = new LinkedHashMap<>();
 
         this.loadBuiltinLanguages();
@@ -158,14 +203,22 @@ public class CRLauncher {
         UIManager.put("OptionPane.okButtonText", language.getString("gui.general.ok"));
         UIManager.put("OptionPane.cancelButtonText", language.getString("gui.general.cancel"));
 
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpCache = new HttpCache(this.workDir.resolve("http-cache"), 20L * 1024L * 1024L);
+        this.httpCache.addRule(VersionManager.REMOTE_VERSIONS, Duration.ofMinutes(10), Duration.ofDays(30));
+        this.httpCache.addRule("https://api.github.com/repos/", Duration.ofMinutes(30), Duration.ofDays(30));
+        this.httpCache.addRule("https://codeberg.org/api/v1/repos/", Duration.ofMinutes(30), Duration.ofDays(30));
+
+        this.httpClient = this.httpCache.install(new OkHttpClient.Builder())
             .addNetworkInterceptor(new UserAgentInterceptor(CRLauncher.USER_AGENT))
             .connectTimeout(30, TimeUnit.SECONDS)
             .readTimeout(5, TimeUnit.MINUTES)
             .writeTimeout(5, TimeUnit.MINUTES)
             .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+            .connectionPool(new ConnectionPool(DownloadScheduler.MAX_CONNECTIONS, 5, TimeUnit.MINUTES))
             .build();
 
+        this.downloadScheduler = new DownloadScheduler(this.httpClient);
+
         this.crmmApi = new CrmmApi(this.httpClient);
         this.mcLogsApi = new McLogsApi(this.httpClient);
         this.itchIoApi = new ItchIoApi(this.httpClient);
@@ -205,6 +258,20 @@ public class CRLauncher {
         this.gui = new Gui(BuildConfig.APP_NAME, this.settings.darkTheme);
         this.gui.getFrame().addWindowListener(new WindowClosingListener(e -> CRLauncher.this.shutdown()));
 
+        this.taskPool.execute(() -> {
+            try {
+                int deleted = this.blobStore.collectGarbage();
+
+                if (deleted > 0) {
+                    Log.info("Deleted " + deleted + " unused files from the blob store");
+                }
+            } catch (IOException e) {
+                Log.error("Could not collect blob store garbage", e);
+            }
+        });
+
+        this.taskPool.execute(this::collectLibraryGarbage);
+
         if (this.settings.checkUpdatesStartup) {
             this.taskPool.execute(() -> {
                 CRLauncher.checkForUpdates(false);
@@ -315,6 +382,29 @@ public class CRLauncher {
         return path.toString().endsWith(".jar");
     }
 
+    /**
+     * Deletes libraries that no installed loader version references anymore
+     */
+    private void collectLibraryGarbage() {
+        try {
+            int deleted = this.libraryRepository.collectGarbage(() -> {
+                Set<Path> referenced = new HashSet<>();
+                referenced.addAll(this.quiltManager.getReferencedLibraries());
+                referenced.addAll(this.puzzleManager.getReferencedLibraries());
+                referenced.addAll(FabricCosmicLauncher.getReferencedLibraries(this.modloadersDir));
+                referenced.add(PatchCosmicLauncher.getCRLoaderPath());
+
+                return referenced;
+            });
+
+            if (deleted > 0) {
+                Log.info("Deleted " + deleted + " unused libraries");
+            }
+        } catch (IOException e) {
+            Log.error("Could not collect library garbage", e);
+        }
+    }
+
     private void createDirectories() {
         try {
             FileUtils.createDirectoryIfNotExists(this.workDir);
@@ -386,6 +476,7 @@ public class CRLauncher {
         this.shutdown = true;
 
         this.taskPool.shutdown();
+        this.downloadScheduler.shutdown();
 
         try {
             this.accountManager.save();
@@ -401,6 +492,32 @@ public class CRLauncher {
             }
         });
 
+        try {
+            this.blobStore.save();
+        } catch (IOException e) {
+            Log.error("Exception while saving blob store", e);
+        }
+
+        try {
+            this.verificationIndex.save();
+        } catch (IOException e) {
+            Log.error("Exception while saving file verification index", e);
+        }
+
+        try {
+            this.javaProbeCache.save();
+        } catch (IOException e) {
+            Log.error("Exception while saving Java probe cache", e);
+        }
+
+        Log.info("HTTP cache: " + this.httpCache.getStats());
+
+        try {
+            this.httpCache.close();
+        } catch (IOException e) {
+            Log.error("Exception while closing HTTP cache", e);
+        }
+
         this.settings.lastInstanceGroup = String.valueOf(this.gui.getPlayView().getModel().getSelectedItem());
 
         this.settings.save(this.settingsFile);
@@ -432,10 +549,18 @@ public class CRLauncher {
         CRLauncher.instance = instance;
     }
 
+    public HttpCache getHttpCache() {
+        return this.httpCache;
+    }
+
     public OkHttpClient getHttpClient() {
         return this.httpClient;
     }
 
+    public DownloadScheduler getDownloadScheduler() {
+        return this.downloadScheduler;
+    }
+
     public CrmmApi getCrmmApi() {
         return this.crmmApi;
     }
@@ -468,6 +593,22 @@ public class CRLauncher {
         return this.accountManager;
     }
 
+    public VerificationIndex getVerificationIndex() {
+        return this.verificationIndex;
+    }
+
+    public JavaProbeCache getJavaProbeCache() {
+        return this.javaProbeCache;
+    }
+
+    public BlobStore getBlobStore() {
+        return this.blobStore;
+    }
+
+    public LibraryRepository getLibraryRepository() {
+        return this.libraryRepository;
+    }
+
     public Settings getSettings() {
         return this.settings;
     }
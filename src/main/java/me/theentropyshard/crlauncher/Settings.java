@@ -20,6 +20,7 @@ package me.theentropyshard.crlauncher;
 
 
 import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.logging.LogLevel;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.json.Json;
 
@@ -44,6 +45,11 @@ public class Settings {
     public int whenCRLaunchesOption = 0;
     public int whenCRExitsOption = 0;
     public boolean consoleScrollDown = true;
+    public int consoleHistoryLines = 10000;
+    public LogLevel minLogLevel = LogLevel.DEBUG;
+    public int gameLogRetentionDays = 30;
+    public int gameLogMaxSizeMegabytes = 256;
+    public boolean classDataSharing = true;
     public boolean overrideVersionsPath;
     public String versionsDirPath;
     public boolean overrideInstancesPath;
@@ -53,6 +59,7 @@ public class Settings {
     public boolean appendUsername = false;
     public boolean patchOfflineAccount = false;
     public boolean disableFileIntegrityCheck = false;
+    public boolean forceFileReverify = false;
     public boolean showOnlyInstalledVersions;
     public int versionsSourceOption = 0;
 
@@ -21,21 +21,32 @@ package me.theentropyshard.crlauncher.cosmic;
 import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
 import me.theentropyshard.crlauncher.logging.LogEvent;
 import me.theentropyshard.crlauncher.logging.LogLevel;
-import me.theentropyshard.crlauncher.utils.ansi.AnsiColor;
-import me.theentropyshard.crlauncher.utils.ansi.AnsiParser;
-import me.theentropyshard.crlauncher.utils.ansi.AnsiPart;
-import org.apache.logging.log4j.Logger;
+import me.theentropyshard.crlauncher.utils.ansi.AnsiStyleParser;
+import me.theentropyshard.crlauncher.utils.ansi.StyledLine;
 
 import java.awt.*;
-import java.util.List;
 
+/**
+ * A line of game output. The line is parsed once before it is queued, the console draws its runs
+ * and the log file gets the text without escape sequences.
+ */
 public class AnsiCosmicLogEvent extends LogEvent {
+    private final StyledLine line;
+    private final boolean traceStart;
+
     public AnsiCosmicLogEvent(String message) {
-        super(LogLevel.INFO, message);
+        this(LogLevel.INFO, message);
     }
 
     public AnsiCosmicLogEvent(LogLevel level, String message) {
-        super(level, message);
+        this(level, new AnsiStyleParser().parseLine(message), false);
+    }
+
+    public AnsiCosmicLogEvent(LogLevel level, StyledLine line, boolean traceStart) {
+        super(level, line.getText());
+
+        this.line = line;
+        this.traceStart = traceStart;
     }
 
     @Override
@@ -45,18 +56,39 @@ public class AnsiCosmicLogEvent extends LogEvent {
         }
 
         LauncherConsole c = LauncherConsole.instance;
-        List<AnsiPart> ansiParts = AnsiParser.parseAnsiString(message);
-        for (AnsiPart part : ansiParts) {
-            Color color = part.getColor().getColor();
-            if (color == null) {
-                color = this.getLevel().color();
-            }
-            c.setColor(color).write(AnsiColor.stripAnsiCodes(part.getText()));
+        if (this.traceStart) {
+            c.markCrash();
+        }
+        c.setLevel(this.getLevel());
+        this.writePrefix(c);
+
+        StyledLine line = this.line;
+        int count = line.getRunCount();
+
+        if (count == 0) {
+            c.setColor(this.getLevel().color()).write(message);
         }
+
+        for (int i = 0; i < count; i++) {
+            Color color = line.getRunColor(i);
+            int flags = line.getRunFlags(i);
+
+            c.setColor(color == null ? this.getLevel().color() : color)
+                .setBold((flags & AnsiStyleParser.BOLD) != 0)
+                .setItalic((flags & AnsiStyleParser.ITALIC) != 0)
+                .setUnderline((flags & AnsiStyleParser.UNDERLINE) != 0)
+                .write(message, line.getRunStart(i), line.getRunEnd(i));
+        }
+
+        c.setBold(false).setItalic(false).setUnderline(false);
+        LogEvent.endLine(c, message);
     }
 
-    @Override
-    public void fileLog4j(Logger log, String message) {
-        super.fileLog4j(log, AnsiColor.stripAnsiCodes(message));
+    protected void writePrefix(LauncherConsole c) {
+
+    }
+
+    public boolean isTraceStart() {
+        return this.traceStart;
     }
 }
@@ -5,11 +5,9 @@ import me.theentropyshard.crlauncher.cosmic.version.CosmicArchiveVersion;
 import me.theentropyshard.crlauncher.cosmic.version.VersionManager;
 import me.theentropyshard.crlauncher.network.download.HttpDownload;
 import me.theentropyshard.crlauncher.network.progress.ProgressListener;
-import me.theentropyshard.crlauncher.network.progress.ProgressNetworkInterceptor;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.FileUtils;
-import me.theentropyshard.crlauncher.utils.HashUtils;
 import me.theentropyshard.crlauncher.utils.json.Json;
-import okhttp3.OkHttpClient;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -33,23 +31,19 @@ public class CosmicArchiveDownloader {
 
         boolean disableCheck = CRLauncher.getInstance().getSettings().disableFileIntegrityCheck;
 
-        if (!Files.exists(filePath) || (!HashUtils.sha256(filePath).equals(version.getClient().getSha256()) && !disableCheck)) {
-            if (Files.exists(filePath)) {
-                FileUtils.delete(filePath);
-            }
-
-            OkHttpClient httpClient = CRLauncher.getInstance().getHttpClient().newBuilder()
-                .addNetworkInterceptor(new ProgressNetworkInterceptor(listener))
-                .build();
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
 
+        if (!Files.exists(filePath) || (!verificationIndex.matches(filePath, version.getClient().getSha256()) && !disableCheck)) {
             HttpDownload download = new HttpDownload.Builder()
                 .url(version.getClient().getUrl())
                 .expectedSize(version.getClient().getSize())
-                .httpClient(httpClient)
+                .sha256(version.getClient().getSha256())
+                .segmented()
+                .progressListener(listener)
                 .saveAs(filePath)
                 .build();
 
-            download.execute();
+            CRLauncher.getInstance().getDownloadScheduler().download(download);
         }
     }
 }
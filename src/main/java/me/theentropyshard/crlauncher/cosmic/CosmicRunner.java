@@ -18,6 +18,7 @@
 
 package me.theentropyshard.crlauncher.cosmic;
 
+import me.theentropyshard.crlauncher.BuildConfig;
 import me.theentropyshard.crlauncher.CRLauncher;
 import me.theentropyshard.crlauncher.Settings;
 import me.theentropyshard.crlauncher.cosmic.account.Account;
@@ -29,60 +30,58 @@ import me.theentropyshard.crlauncher.cosmic.version.VersionList;
 import me.theentropyshard.crlauncher.cosmic.version.VersionManager;
 import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
 import me.theentropyshard.crlauncher.gui.components.InstanceItem;
-import me.theentropyshard.crlauncher.gui.dialogs.ProgressDialog;
+import me.theentropyshard.crlauncher.gui.dialogs.LaunchProgressDialog;
 import me.theentropyshard.crlauncher.gui.utils.MessageBox;
 import me.theentropyshard.crlauncher.instance.Instance;
 import me.theentropyshard.crlauncher.cosmic.mods.ModLoader;
+import me.theentropyshard.crlauncher.java.HeapSizer;
+import me.theentropyshard.crlauncher.java.HostInfo;
 import me.theentropyshard.crlauncher.java.JavaLocator;
+import me.theentropyshard.crlauncher.java.JavaProbe;
+import me.theentropyshard.crlauncher.java.JvmFlagProfile;
+import me.theentropyshard.crlauncher.java.JvmFlagResolver;
+import me.theentropyshard.crlauncher.language.Language;
 import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.logging.LogLevel;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.HashUtils;
 import me.theentropyshard.crlauncher.utils.ProcessReader;
 import me.theentropyshard.crlauncher.utils.SystemProperty;
 import me.theentropyshard.crlauncher.utils.TimeUtils;
-import net.lingala.zip4j.ZipFile;
-import net.lingala.zip4j.model.ZipParameters;
+import me.theentropyshard.crlauncher.utils.ZipMerger;
+import me.theentropyshard.crlauncher.utils.ansi.AnsiStyleParser;
+import me.theentropyshard.crlauncher.utils.ansi.StyledLine;
 
 import javax.swing.*;
-import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 public class CosmicRunner extends Thread {
-    public static final String[] FLAG_SET_1 = {
-        "-XX:+UnlockExperimentalVMOptions", "-XX:+UnlockDiagnosticVMOptions", "-XX:+AlwaysPreTouch",
-        "-XX:+DisableExplicitGC", "-XX:+UseNUMA", "-XX:NmethodSweepActivity=1", "-XX:ReservedCodeCacheSize=400M",
-        "-XX:NonNMethodCodeHeapSize=12M", "-XX:ProfiledCodeHeapSize=194M", "-XX:NonProfiledCodeHeapSize=194M",
-        "-XX:-DontCompileHugeMethods", "-XX:MaxNodeLimit=240000", "-XX:NodeLimitFudgeFactor=8000", "-XX:+UseVectorCmov",
-        "-XX:+PerfDisableSharedMem", "-XX:+UseFastUnorderedTimeStamps", "-XX:+UseCriticalJavaThreadPriority",
-        "-XX:ThreadPriorityPolicy=1", "-XX:AllocatePrefetchStyle=3", "-XX:+UseG1GC", "-XX:MaxGCPauseMillis=37",
-        "-XX:+PerfDisableSharedMem", "-XX:G1HeapRegionSize=16M", "-XX:G1NewSizePercent=23", "-XX:G1ReservePercent=20",
-        "-XX:SurvivorRatio=32", "-XX:G1MixedGCCountTarget=3", "-XX:G1HeapWastePercent=20",
-        "-XX:InitiatingHeapOccupancyPercent=10", "-XX:G1RSetUpdatingPauseTimePercent=0", "-XX:MaxTenuringThreshold=1",
-        "-XX:G1SATBBufferEnqueueingThresholdPercent=30", "-XX:G1ConcMarkStepDurationMillis=5.0",
-        "-XX:G1ConcRSHotCardLimit=16", "-XX:G1ConcRefinementServiceIntervalMillis=150", "-XX:GCTimeRatio=99",
-        "-XX:+UseLargePages", "-XX:LargePageSizeInBytes=2m"
-    };
-
-    public static final String[] FLAG_SET_2 = {
-        "-XX:+UnlockExperimentalVMOptions", "-XX:+UseG1GC", "-XX:MaxGCPauseMillis=37", "-XX:+PerfDisableSharedMem",
-        "-XX:G1HeapRegionSize=16M", "-XX:G1NewSizePercent=23", "-XX:G1ReservePercent=20", "-XX:SurvivorRatio=32",
-        "-XX:G1MixedGCCountTarget=3", "-XX:G1HeapWastePercent=20", "-XX:InitiatingHeapOccupancyPercent=10",
-        "-XX:G1RSetUpdatingPauseTimePercent=0", "-XX:MaxTenuringThreshold=1", "-XX:G1SATBBufferEnqueueingThresholdPercent=30",
-        "-XX:G1ConcMarkStepDurationMillis=5.0", "-XX:G1ConcRSHotCardLimit=16",
-        "-XX:G1ConcRefinementServiceIntervalMillis=150", "-XX:GCTimeRatio=99"
-    };
-
     public static final String ITCH_IO_API_KEY_ENV_KEY = "ITCHIO_API_KEY";
 
     private final Instance instance;
     private final InstanceItem item;
 
     private Process process;
-    private Path clientCopyTmp;
+    private LaunchTimer launchTimer;
+
+    // Results of the preparation tasks, only read after the preparation has finished
+    private volatile Version version;
+    private volatile JavaProbe javaProbe;
+    private volatile Collection<String> jvmFlags;
 
     public CosmicRunner(Instance instance, InstanceItem item) {
         this.instance = instance;
@@ -107,47 +106,13 @@ public class CosmicRunner extends Thread {
     public void run() {
         VersionManager versionManager = CRLauncher.getInstance().getVersionManager();
 
-        try {
-            if (!versionManager.isLoaded()) {
-                versionManager.load();
-            }
+        this.launchTimer = new LaunchTimer();
+        long launchTime = System.currentTimeMillis();
 
+        try {
             Log.info("Starting instance \"" + this.instance.getName() + "\"");
-            Log.info("Cosmic Reach version: " + this.instance.getCosmicVersion());
-
-            this.updateCosmicVersion();
-
             Log.info("Mod Loader: " + this.instance.getModLoader());
 
-            Version version = versionManager.getVersion(this.instance.getCosmicVersion());
-
-            Log.info("Versions source: " + (CRLauncher.getInstance().getSettings().versionsSourceOption == 1 ? "Itch" : "Cosmic Archive"));
-
-            if (version == null) {
-                SwingUtilities.invokeLater(() -> {
-                    String s = CRLauncher.getInstance().getLanguage().getString("messages.gui.progressDialog.nonexistentVersion");
-                    String message = s
-                        .replace("$$VERSION_ID$$", this.instance.getCosmicVersion())
-                        .replace("$$VERSION_LIST$$",
-                            switch (CRLauncher.getInstance().getSettings().versionsSourceOption) {
-                                case 1 -> "Itch";
-                                default -> "Cosmic Archive";
-                            });
-
-                    Log.error(message);
-                    MessageBox.showErrorMessage(CRLauncher.frame, message);
-                });
-
-                return;
-            } else {
-                Log.info("Downloading/verifying Cosmic Reach");
-
-                ProgressDialog dialog = new ProgressDialog("Downloading Cosmic Reach");
-                SwingUtilities.invokeLater(() -> dialog.setVisible(true));
-                versionManager.downloadVersion(version, dialog);
-                dialog.getDialog().dispose();
-            }
-
             Path saveDirPath = this.instance.getCosmicDir();
             Log.info("Working directory: " + saveDirPath);
 
@@ -161,51 +126,28 @@ public class CosmicRunner extends Thread {
 
             Log.info("Java path: " + javaPath);
 
-            Path clientPath = this.applyJarMods(version);
+            // The client is only known once the version is downloaded and the jar mods are applied
+            CosmicLauncher launcher = this.createLauncher(javaPath, saveDirPath);
 
-            CosmicLauncher launcher;
+            LaunchPlan launchPlan = new LaunchPlan(this.instance.getLaunchPlanFile());
 
-            if (this.instance.getModLoader() == ModLoader.VANILLA) {
-                launcher = CosmicLauncherFactory.getLauncher(
-                    javaPath,
-                    LaunchType.VANILLA,
-                    saveDirPath,
-                    saveDirPath,
-                    clientPath
-                );
-            } else {
-                launcher = switch (this.instance.getModLoader()) {
-                    case FABRIC -> CosmicLauncherFactory.getLauncher(
-                        javaPath,
-                        LaunchType.FABRIC,
-                        saveDirPath,
-                        saveDirPath,
-                        clientPath,
-                        this.instance.getFabricModsDir(),
-                        this.instance.getFabricVersion()
-                    );
-                    case QUILT -> CosmicLauncherFactory.getLauncher(
-                        javaPath,
-                        LaunchType.QUILT,
-                        saveDirPath,
-                        saveDirPath,
-                        clientPath,
-                        this.instance.getQuiltModsDir(),
-                        this.instance.getQuiltVersion()
-                    );
-                    case PUZZLE -> CosmicLauncherFactory.getLauncher(
-                        javaPath,
-                        LaunchType.PUZZLE,
-                        saveDirPath,
-                        saveDirPath,
-                        clientPath,
-                        this.instance.getPuzzleModsDir(),
-                        this.instance.getPuzzleVersion()
-                    );
-                    default -> throw new IllegalArgumentException("Unknown instance type: " + this.instance.getModLoader());
-                };
+            if (launcher instanceof AbstractCosmicLauncher abstractLauncher) {
+                abstractLauncher.setLaunchTimer(this.launchTimer);
+                abstractLauncher.setLaunchPlan(launchPlan);
             }
 
+            try {
+                this.prepare(versionManager, launcher, javaPath);
+            } catch (LaunchPreparation.TaskFailedException e) {
+                this.showPreparationError(e);
+
+                return;
+            }
+
+            Version version = this.version;
+            JavaProbe javaProbe = this.javaProbe;
+            Collection<String> jvmFlags = this.jvmFlags;
+
             Settings settings = CRLauncher.getInstance().getSettings();
 
             int launchOption = settings.whenCRLaunchesOption;
@@ -247,37 +189,41 @@ public class CosmicRunner extends Thread {
                     patchLauncher.setWindowHeight(this.instance.getCosmicWindowHeight());
                 }
 
-                int currentFlagsOption = this.instance.getCurrentFlagsOption();
+                for (String jvmFlag : jvmFlags) {
+                    if (jvmFlag.isEmpty()) {
+                        continue;
+                    }
 
-                if (currentFlagsOption == 0) {
-                    Set<String> customJvmFlags = this.instance.getCustomJvmFlags();
-                    if (customJvmFlags != null && !customJvmFlags.isEmpty()) {
-                        for (String customJvmFlag : customJvmFlags) {
-                            if (customJvmFlag.isEmpty()) {
-                                continue;
-                            }
+                    patchLauncher.addJvmFlag(jvmFlag);
+                }
+            }
 
-                            patchLauncher.addJvmFlag(customJvmFlag);
-                        }
-                    }
-                } else {
-                    String[] flags = CosmicRunner.getBuiltinFlags(currentFlagsOption);
-                    for (String customJvmFlag : flags) {
-                        if (customJvmFlag.isEmpty()) {
-                            continue;
-                        }
+            if (launcher instanceof AbstractCosmicLauncher abstractLauncher) {
+                HeapSizer.Heap heap = this.getHeap();
+                abstractLauncher.setHeapSize(heap.minimumMegabytes(), heap.maximumMegabytes());
 
-                        patchLauncher.addJvmFlag(customJvmFlag);
-                    }
+                for (String warning : HeapSizer.check(heap, jvmFlags)) {
+                    Log.warn(warning);
+                }
+
+                if (settings.classDataSharing) {
+                    abstractLauncher.setClassDataSharing(this.createClassDataSharing(javaProbe, version));
                 }
             }
 
+            // Argument files are supported since Java 9
+            if (javaProbe != null && javaProbe.featureVersion() >= 9) {
+                launchPlan.setArgumentFile(this.instance.getLaunchArgumentsFile());
+            }
+
             long start = System.currentTimeMillis();
 
             int exitCode = this.startProcess(launcher, launchOption == 3);
 
             long end = System.currentTimeMillis();
 
+            this.recordLaunch(launchTime, javaProbe);
+
             int exitsOption = settings.whenCRExitsOption;
             if (exitsOption == 0) {
                 switch (launchOption) {
@@ -315,36 +261,337 @@ public class CosmicRunner extends Thread {
         } finally {
             this.instance.setRunning(false);
             this.item.setEnabled(true);
+        }
+    }
 
-            if (this.clientCopyTmp != null && Files.exists(this.clientCopyTmp)) {
-                try {
-                    Files.delete(this.clientCopyTmp);
-                } catch (IOException e) {
-                    Log.error("Unable to delete temporary client", e);
-                }
+    private CosmicLauncher createLauncher(String javaPath, Path saveDirPath) {
+        return switch (this.instance.getModLoader()) {
+            case VANILLA -> CosmicLauncherFactory.getLauncher(
+                javaPath,
+                LaunchType.VANILLA,
+                saveDirPath,
+                saveDirPath,
+                null
+            );
+            case FABRIC -> CosmicLauncherFactory.getLauncher(
+                javaPath,
+                LaunchType.FABRIC,
+                saveDirPath,
+                saveDirPath,
+                null,
+                this.instance.getFabricModsDir(),
+                this.instance.getFabricVersion()
+            );
+            case QUILT -> CosmicLauncherFactory.getLauncher(
+                javaPath,
+                LaunchType.QUILT,
+                saveDirPath,
+                saveDirPath,
+                null,
+                this.instance.getQuiltModsDir(),
+                this.instance.getQuiltVersion()
+            );
+            case PUZZLE -> CosmicLauncherFactory.getLauncher(
+                javaPath,
+                LaunchType.PUZZLE,
+                saveDirPath,
+                saveDirPath,
+                null,
+                this.instance.getPuzzleModsDir(),
+                this.instance.getPuzzleVersion()
+            );
+            default -> throw new IllegalArgumentException("Unknown instance type: " + this.instance.getModLoader());
+        };
+    }
+
+    /**
+     * Runs everything that has to happen before the game can start. The client, the Java installation
+     * and the loaders do not depend on each other and are prepared concurrently.
+     */
+    private void prepare(VersionManager versionManager, CosmicLauncher launcher, String javaPath)
+        throws LaunchPreparation.TaskFailedException, InterruptedException {
+
+        LaunchPreparation preparation = new LaunchPreparation(this.launchTimer);
+
+        preparation.add(LaunchTimer.VERSION_LIST, listener -> this.version = this.resolveVersion(versionManager));
+
+        preparation.add(LaunchTimer.DOWNLOAD_VERSION, listener -> {
+            Log.info("Downloading/verifying Cosmic Reach");
+            versionManager.downloadVersion(this.version, listener);
+        }, LaunchTimer.VERSION_LIST);
+
+        preparation.add(LaunchTimer.JAR_MODS, listener -> {
+            Path clientPath = this.applyJarMods(this.version);
+
+            if (launcher instanceof AbstractCosmicLauncher abstractLauncher) {
+                abstractLauncher.setClientPath(clientPath);
             }
+        }, LaunchTimer.DOWNLOAD_VERSION);
+
+        preparation.add(LaunchTimer.JVM_FLAGS, listener -> {
+            this.javaProbe = CRLauncher.getInstance().getJavaProbeCache().get(Paths.get(javaPath));
+            this.jvmFlags = this.getJvmFlags(this.javaProbe);
+        });
+
+        if (launcher instanceof AbstractCosmicLauncher abstractLauncher) {
+            preparation.add(LaunchTimer.CR_LOADER, abstractLauncher::prepareAgent);
+
+            if (this.instance.getModLoader() != ModLoader.VANILLA) {
+                preparation.add(LaunchTimer.PREPARE_LOADER, abstractLauncher::prepareLoader);
+            }
+        }
+
+        LaunchProgressDialog dialog = new LaunchProgressDialog(preparation.getTaskNames());
+        SwingUtilities.invokeLater(() -> dialog.setVisible(true));
+
+        try {
+            preparation.run(dialog);
+        } finally {
+            SwingUtilities.invokeLater(() -> dialog.getDialog().dispose());
+        }
+    }
+
+    private Version resolveVersion(VersionManager versionManager) throws IOException {
+        if (!versionManager.isLoaded()) {
+            versionManager.load();
         }
+
+        Log.info("Cosmic Reach version: " + this.instance.getCosmicVersion());
+
+        this.updateCosmicVersion();
+
+        Version version = versionManager.getVersion(this.instance.getCosmicVersion());
+
+        Log.info("Versions source: " + (CRLauncher.getInstance().getSettings().versionsSourceOption == 1 ? "Itch" : "Cosmic Archive"));
+
+        if (version == null) {
+            String s = CRLauncher.getInstance().getLanguage().getString("messages.gui.progressDialog.nonexistentVersion");
+
+            throw new IOException(s
+                .replace("$$VERSION_ID$$", this.instance.getCosmicVersion())
+                .replace("$$VERSION_LIST$$",
+                    switch (CRLauncher.getInstance().getSettings().versionsSourceOption) {
+                        case 1 -> "Itch";
+                        default -> "Cosmic Archive";
+                    }));
+        }
+
+        return version;
+    }
+
+    private void showPreparationError(LaunchPreparation.TaskFailedException e) {
+        Language language = CRLauncher.getInstance().getLanguage();
+
+        String task = e.getTaskName() == null ? "?" : language.getString("gui.launchProgressDialog.tasks." + e.getTaskName());
+        String message = language.getString("gui.launchProgressDialog.failedMessage")
+            .replace("$$TASK$$", task)
+            .replace("$$MESSAGE$$", String.valueOf(e.getMessage()));
+
+        Log.error(message, e.getCause());
+        MessageBox.showErrorMessage(CRLauncher.frame, message);
     }
 
     private int startProcess(CosmicLauncher launcher, boolean exitAfterLaunch) throws Exception {
         this.process = launcher.launch(exitAfterLaunch);
 
         String userHome = System.getProperty("user.home");
+        String readyMarker = this.instance.getLaunchReadyMarker();
 
-        new ProcessReader(this.process).read(line -> {
-            if (line.contains(userHome)) {
-                line = line.replace(userHome, "<UserHome>");
-            }
+        ModLoader type = this.instance.getModLoader();
+        boolean vanillaFormat = type == ModLoader.VANILLA || type == ModLoader.FABRIC;
+
+        GameLogArchive logArchive = new GameLogArchive(this.instance.getLogsDir());
+        Path logFile = logArchive.newSessionFile();
+
+        // Only touched by the pipeline's consumer thread
+        GameLogClassifier classifier = new GameLogClassifier();
+        AnsiStyleParser ansiParser = new AnsiStyleParser();
+
+        try (GameOutputPipeline pipeline = new GameOutputPipeline(logFile, line -> {
+            // Parsed once, the log thread reuses the runs for the console and the text for the log file
+            StyledLine styledLine = ansiParser.parseLine(line);
+            LogLevel level = classifier.classify(styledLine.getText());
 
-            ModLoader type = this.instance.getModLoader();
-            if (type == ModLoader.VANILLA || type == ModLoader.FABRIC) {
-                Log.cosmicReachVanilla(line);
+            if (vanillaFormat) {
+                Log.cosmicReachVanilla(styledLine, level, classifier.isTraceStart());
             } else {
-                Log.cosmicReachModded(line);
+                Log.cosmicReachModded(styledLine, level, classifier.isTraceStart());
             }
-        });
+        })) {
+
+            new ProcessReader(this.process).read(line -> {
+                this.launchTimer.mark(LaunchTimer.FIRST_OUTPUT);
+
+                if (readyMarker != null && !readyMarker.isEmpty() && !this.launchTimer.isMarked(LaunchTimer.READY) &&
+                    line.contains(readyMarker)) {
+
+                    this.launchTimer.mark(LaunchTimer.READY);
+                    Log.info("Cosmic Reach ready after " + this.launchTimer.elapsedMillis() + " ms");
+                }
 
-        return this.process.waitFor();
+                if (line.contains(userHome)) {
+                    line = line.replace(userHome, "<UserHome>");
+                }
+
+                pipeline.accept(line);
+            });
+        }
+
+        int exitCode = this.process.waitFor();
+
+        if (launcher instanceof AbstractCosmicLauncher abstractLauncher && abstractLauncher.getClassDataSharing() != null) {
+            abstractLauncher.getClassDataSharing().recordStartup(this.getBootMillis());
+        }
+
+        this.archiveGameLog(logArchive, logFile, exitCode);
+
+        return exitCode;
+    }
+
+    /**
+     * @return time from spawning the process to its first line of output, or -1 if either is missing
+     */
+    private long getBootMillis() {
+        LaunchRecord.Phase spawn = null;
+        LaunchRecord.Phase firstOutput = null;
+
+        for (LaunchRecord.Phase phase : this.launchTimer.getPhases()) {
+            if (phase.name().equals(LaunchTimer.SPAWN)) {
+                spawn = phase;
+            } else if (phase.name().equals(LaunchTimer.FIRST_OUTPUT)) {
+                firstOutput = phase;
+            }
+        }
+
+        if (spawn == null || firstOutput == null) {
+            return -1L;
+        }
+
+        return firstOutput.start() - spawn.start();
+    }
+
+    private void recordLaunch(long launchTime, JavaProbe probe) {
+        String loaderVersion = switch (this.instance.getModLoader()) {
+            case FABRIC -> this.instance.getFabricVersion();
+            case QUILT -> this.instance.getQuiltVersion();
+            case PUZZLE -> this.instance.getPuzzleVersion();
+            default -> null;
+        };
+
+        List<Mod> mods = this.instance.getCurrentMods();
+        List<Mod> jarMods = this.instance.getJarMods();
+        int modCount = (mods == null ? 0 : (int) mods.stream().filter(Mod::isActive).count()) +
+            (jarMods == null ? 0 : (int) jarMods.stream().filter(Mod::isActive).count());
+
+        LaunchRecord record = new LaunchRecord(
+            launchTime,
+            BuildConfig.APP_VERSION,
+            probe == null ? 0 : probe.featureVersion(),
+            this.instance.getCosmicVersion(),
+            this.instance.getModLoader().name(),
+            loaderVersion,
+            modCount,
+            this.launchTimer.getPhases()
+        );
+
+        StringBuilder summary = new StringBuilder("Launch timings:");
+        for (LaunchRecord.Phase phase : record.phases()) {
+            summary.append(' ').append(phase.name()).append(phase.isEvent() ? " at " : " ")
+                .append(phase.isEvent() ? phase.start() : phase.duration()).append(" ms,");
+        }
+        summary.setLength(summary.length() - 1);
+        Log.info(summary.toString());
+
+        try {
+            new LaunchHistory(this.instance.getLaunchHistoryFile()).add(record);
+        } catch (IOException e) {
+            Log.error("Could not save launch timings", e);
+        }
+    }
+
+    private void archiveGameLog(GameLogArchive logArchive, Path logFile, int exitCode) {
+        Settings settings = CRLauncher.getInstance().getSettings();
+
+        try {
+            CRLauncher.getInstance().doTask(() -> {
+                try {
+                    logArchive.archive(logFile, exitCode);
+                } catch (IOException e) {
+                    Log.error("Could not archive game log " + logFile, e);
+                }
+
+                logArchive.archiveLeftovers(null);
+                logArchive.applyRetention(
+                    settings.gameLogRetentionDays, settings.gameLogMaxSizeMegabytes * 1024L * 1024L
+                );
+            });
+        } catch (RejectedExecutionException e) {
+            // The launcher is shutting down, the plain log is archived on the next launch
+        }
+    }
+
+    private Collection<String> getJvmFlags(JavaProbe probe) {
+        int currentFlagsOption = this.instance.getCurrentFlagsOption();
+
+        if (currentFlagsOption == 0) {
+            Set<String> customJvmFlags = this.instance.getCustomJvmFlags();
+
+            return customJvmFlags == null ? List.of() : customJvmFlags;
+        }
+
+        JvmFlagProfile profile = JvmFlagProfile.byOption(currentFlagsOption);
+        JvmFlagResolver.Resolution resolution = JvmFlagResolver.resolve(profile, probe, HostInfo.get());
+
+        Log.info("JVM flag profile: " + profile + ", garbage collector: " + resolution.gc());
+        for (String dropped : resolution.dropped()) {
+            Log.info("Dropped JVM flag " + dropped);
+        }
+        Log.info("Resolved JVM flags: " + String.join(" ", resolution.flags()));
+
+        return resolution.flags();
+    }
+
+    private ClassDataSharing createClassDataSharing(JavaProbe probe, Version version) {
+        ModLoader loader = this.instance.getModLoader();
+
+        String loaderVersion = switch (loader) {
+            case FABRIC -> this.instance.getFabricVersion();
+            case QUILT -> this.instance.getQuiltVersion();
+            case PUZZLE -> this.instance.getPuzzleVersion();
+            default -> null;
+        };
+
+        Path archiveDir;
+        String slot;
+
+        if (loaderVersion == null) {
+            archiveDir = CRLauncher.getInstance().getVersionsDir().resolve("cds");
+            slot = "vanilla_" + version.getId();
+        } else {
+            archiveDir = CRLauncher.getInstance().getModloadersDir().resolve("cds");
+            slot = loader.name().toLowerCase(Locale.ROOT) + "_" + loaderVersion + "_" + version.getId();
+        }
+
+        return new ClassDataSharing(archiveDir, slot, probe);
+    }
+
+    private HeapSizer.Heap getHeap() {
+        if (!this.instance.isAutoMemory()) {
+            return new HeapSizer.Heap(this.instance.getMinimumMemoryInMegabytes(), this.instance.getMaximumMemoryInMegabytes());
+        }
+
+        int otherRunning = (int) CRLauncher.getInstance().getInstanceManager().getInstances().stream()
+            .filter(other -> other != this.instance && other.isRunning())
+            .count();
+
+        List<Mod> mods = this.instance.getCurrentMods();
+        int modCount = mods == null ? 0 : (int) mods.stream().filter(Mod::isActive).count();
+
+        HeapSizer.Heap heap = HeapSizer.auto(otherRunning, modCount);
+        Log.info("Automatic heap size: " + heap.minimumMegabytes() + " - " + heap.maximumMegabytes() + " MB (" +
+            modCount + " mods, " + otherRunning + " other instances running)");
+
+        return heap;
     }
 
     public void stopGame() {
@@ -394,59 +641,66 @@ public class CosmicRunner extends Thread {
             return originalClientPath;
         } else {
             try {
-                Log.info("Creating modified client...");
-                this.clientCopyTmp = Files.copy(originalClientPath, this.instance.getWorkDir()
-                    .resolve(originalClientPath.getFileName().toString() + System.currentTimeMillis() + ".jar"));
-
-                Log.info("Collecting jar mods...");
-                List<File> zipFilesToMerge = FileUtils.list(this.instance.getJarModsDir(), Files::isRegularFile)
-                    .stream()
-                    .map(Path::toFile)
-                    .toList();
-
-                Log.info("Merging modified files...");
-                try (ZipFile copyZip = new ZipFile(this.clientCopyTmp.toFile())) {
-                    for (File modFile : zipFilesToMerge) {
-                        Path unpackDir = this.instance.getWorkDir().resolve(modFile.getName().replace(".", "_"));
-                        try (ZipFile modZip = new ZipFile(modFile)) {
-                            if (Files.exists(unpackDir)) {
-                                FileUtils.delete(unpackDir);
-                            }
-                            FileUtils.createDirectoryIfNotExists(unpackDir);
-
-                            modZip.extractAll(unpackDir.toAbsolutePath().toString());
-                        }
+                return this.getMergedClient(originalClientPath, jarMods.stream().filter(Mod::isActive).toList());
+            } catch (IOException e) {
+                Log.error("Exception while applying jar mods", e);
+            }
+        }
 
-                        List<Path> modFiles = FileUtils.walk(unpackDir);
+        return originalClientPath;
+    }
 
-                        ZipParameters zipParameters = new ZipParameters();
+    /**
+     * Returns the client with the jar mods applied in order, merging it only if this combination
+     * of client and mods has not been merged before
+     */
+    private Path getMergedClient(Path clientPath, List<Mod> jarMods) throws IOException {
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
 
-                        for (Path modFileToAdd : modFiles) {
-                            String relative = unpackDir.toAbsolutePath().toUri().relativize(modFileToAdd.toAbsolutePath().toUri()).getPath();
-                            zipParameters.setFileNameInZip(relative);
-                            copyZip.addFile(modFileToAdd.toFile(), zipParameters);
-                        }
+        List<Path> sources = new ArrayList<>();
+        sources.add(clientPath);
 
-                        FileUtils.delete(unpackDir);
-                    }
-                }
+        MessageDigest md = HashUtils.newDigest("SHA-256");
+        md.update(verificationIndex.sha256(clientPath).getBytes(StandardCharsets.UTF_8));
 
-                Log.info("Successfully applied jar mods");
+        for (Mod mod : jarMods) {
+            Path modPath = this.instance.getJarModPath(mod);
+            sources.add(modPath);
 
-                return this.clientCopyTmp;
-            } catch (IOException e) {
-                Log.error("Exception while applying jar mods", e);
-            }
+            md.update((byte) 0);
+            md.update(verificationIndex.sha256(modPath).getBytes(StandardCharsets.UTF_8));
         }
 
-        return originalClientPath;
+        Path mergedClientDir = this.instance.getMergedClientDir();
+        Path mergedClient = mergedClientDir.resolve(HashUtils.toHex(md.digest()) + ".jar");
+
+        if (Files.exists(mergedClient)) {
+            Log.info("Using cached modified client " + mergedClient);
+
+            return mergedClient;
+        }
+
+        FileUtils.createDirectoryIfNotExists(mergedClientDir);
+
+        Log.info("Merging " + jarMods.size() + " jar mods into the client...");
+
+        Path tmp = mergedClientDir.resolve(mergedClient.getFileName() + ".tmp");
+        ZipMerger.merge(sources, tmp);
+        Files.move(tmp, mergedClient, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path old : FileUtils.list(mergedClientDir, file -> !file.equals(mergedClient))) {
+            FileUtils.delete(old);
+        }
+
+        Log.info("Successfully applied jar mods");
+
+        return mergedClient;
     }
 
+    /**
+     * @return the unresolved flags of the built-in profile, see {@link JvmFlagResolver} for what is actually passed
+     */
     public static String[] getBuiltinFlags(int option) {
-        return switch (option) {
-            case 1 -> CosmicRunner.FLAG_SET_1;
-            case 2 -> CosmicRunner.FLAG_SET_2;
-            default -> CosmicRunner.FLAG_SET_1;
-        };
+        return JvmFlagProfile.byOption(option).getFlags();
     }
 }
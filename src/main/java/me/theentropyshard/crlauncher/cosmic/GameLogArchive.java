@@ -0,0 +1,271 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.logging.LogLevel;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.ansi.AnsiStyleParser;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-instance directory of game logs, one file per launch.
+ * <p>
+ * While the game runs its output goes to a plain {@code launch-<time>.log}. When the session ends
+ * the file is compressed into {@code launch-<time>.log.gz}, made of independent gzip members,
+ * and a sidecar {@code launch-<time>.idx.json} is written with member offsets, line counts per level
+ * and the positions of stack traces. Old sessions are removed by age and total size.
+ */
+public class GameLogArchive {
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final String PREFIX = "launch-";
+    private static final String RAW_EXTENSION = ".log";
+    private static final String ARCHIVE_EXTENSION = ".log.gz";
+    private static final String INDEX_EXTENSION = ".idx.json";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private final Path dir;
+
+    public GameLogArchive(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path newSessionFile() {
+        return this.dir.resolve(
+            GameLogArchive.PREFIX + LocalDateTime.now().format(GameLogArchive.FORMATTER) + GameLogArchive.RAW_EXTENSION
+        );
+    }
+
+    /**
+     * Compresses and indexes a finished session, then deletes the plain file.
+     */
+    public GameLogSession archive(Path rawFile, int exitCode) throws IOException {
+        String name = GameLogArchive.baseName(rawFile);
+        Path archiveFile = this.dir.resolve(name + GameLogArchive.ARCHIVE_EXTENSION);
+        Path indexFile = this.dir.resolve(name + GameLogArchive.INDEX_EXTENSION);
+
+        GameLogClassifier classifier = new GameLogClassifier();
+        AnsiStyleParser ansiParser = new AnsiStyleParser();
+        Map<LogLevel, Long> levelCounts = new EnumMap<>(LogLevel.class);
+        List<GameLogSession.Block> blocks = new ArrayList<>();
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream(GameLogArchive.BLOCK_SIZE + 1024);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(GameLogArchive.BLOCK_SIZE / 4);
+        long lineCount = 0;
+        long size = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(rawFile, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            long blockFirstLine = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String text = ansiParser.strip(line);
+
+                levelCounts.merge(classifier.classify(text), 1L, Long::sum);
+
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                block.write(bytes);
+                block.write('\n');
+                size += bytes.length + 1;
+                lineCount++;
+
+                if (block.size() >= GameLogArchive.BLOCK_SIZE) {
+                    blocks.add(new GameLogSession.Block(channel.position(), blockFirstLine));
+                    GameLogArchive.writeMember(channel, block, compressed);
+                    blockFirstLine = lineCount;
+                }
+            }
+
+            if (block.size() > 0) {
+                blocks.add(new GameLogSession.Block(channel.position(), blockFirstLine));
+                GameLogArchive.writeMember(channel, block, compressed);
+            }
+        }
+
+        classifier.finish();
+
+        GameLogSession.Index index = new GameLogSession.Index(
+            System.currentTimeMillis(), exitCode, lineCount, size, levelCounts, blocks, classifier.getCrashes()
+        );
+        FileUtils.writeUtf8(indexFile, Json.write(index));
+
+        Files.delete(rawFile);
+
+        return new GameLogSession(archiveFile, indexFile, index, GameLogArchive.parseStartTime(name));
+    }
+
+    private static void writeMember(FileChannel channel, ByteArrayOutputStream block,
+                                    ByteArrayOutputStream compressed) throws IOException {
+        compressed.reset();
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            block.writeTo(gzip);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(compressed.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        block.reset();
+    }
+
+    /**
+     * Archives plain logs left behind, for example when the launcher was closed while the game was running.
+     *
+     * @param except a session that is being written right now, or {@code null}
+     */
+    public void archiveLeftovers(Path except) {
+        for (Path file : this.listFiles(GameLogArchive.RAW_EXTENSION)) {
+            if (file.equals(except)) {
+                continue;
+            }
+
+            try {
+                this.archive(file, -1);
+            } catch (IOException e) {
+                Log.error("Could not archive game log " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return every session, newest first
+     */
+    public List<GameLogSession> listSessions() {
+        List<GameLogSession> sessions = new ArrayList<>();
+
+        for (Path file : this.listFiles(GameLogArchive.RAW_EXTENSION)) {
+            String name = GameLogArchive.baseName(file);
+            sessions.add(new GameLogSession(file, null, null, GameLogArchive.parseStartTime(name)));
+        }
+
+        for (Path file : this.listFiles(GameLogArchive.ARCHIVE_EXTENSION)) {
+            String name = GameLogArchive.baseName(file);
+            Path indexFile = this.dir.resolve(name + GameLogArchive.INDEX_EXTENSION);
+
+            GameLogSession.Index index = null;
+            try {
+                if (Files.exists(indexFile)) {
+                    index = Json.parse(FileUtils.readUtf8(indexFile), GameLogSession.Index.class);
+                }
+            } catch (Exception e) {
+                Log.error("Could not read game log index " + indexFile, e);
+            }
+
+            if (index == null) {
+                // Without offsets the file still reads fine from the start
+                index = new GameLogSession.Index(0, -1, -1, -1, null, List.of(), List.of());
+            }
+
+            sessions.add(new GameLogSession(file, indexFile, index, GameLogArchive.parseStartTime(name)));
+        }
+
+        sessions.sort(Comparator.comparing(GameLogSession::getStartTime).reversed());
+
+        return sessions;
+    }
+
+    /**
+     * Deletes archived sessions older than {@code maxAgeDays}, then the oldest ones until the rest
+     * fit in {@code maxTotalBytes}. The newest session is always kept. Non-positive limits are ignored.
+     */
+    public void applyRetention(int maxAgeDays, long maxTotalBytes) {
+        List<GameLogSession> sessions = this.listSessions();
+        sessions.removeIf(session -> !session.isArchived());
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofDays(Math.max(0, maxAgeDays)));
+        long total = 0;
+
+        for (int i = 0; i < sessions.size(); i++) {
+            GameLogSession session = sessions.get(i);
+
+            try {
+                long size = session.getSize();
+                boolean expired = maxAgeDays > 0 && session.getStartTime().isBefore(cutoff);
+                boolean overSize = maxTotalBytes > 0 && total + size > maxTotalBytes;
+
+                if (i > 0 && (expired || overSize)) {
+                    session.delete();
+                } else {
+                    total += size;
+                }
+            } catch (IOException e) {
+                Log.error("Could not apply retention to game log " + session.getFile(), e);
+            }
+        }
+    }
+
+    private List<Path> listFiles(String extension) {
+        if (!Files.exists(this.dir)) {
+            return List.of();
+        }
+
+        try {
+            return FileUtils.list(this.dir, file -> {
+                String fileName = file.getFileName().toString();
+
+                return fileName.startsWith(GameLogArchive.PREFIX) && fileName.endsWith(extension);
+            });
+        } catch (IOException e) {
+            Log.error("Could not list game logs in " + this.dir, e);
+
+            return List.of();
+        }
+    }
+
+    private static String baseName(Path file) {
+        String fileName = file.getFileName().toString();
+
+        return fileName.substring(0, fileName.indexOf('.'));
+    }
+
+    private static LocalDateTime parseStartTime(String baseName) {
+        try {
+            return LocalDateTime.parse(baseName.substring(GameLogArchive.PREFIX.length()), GameLogArchive.FORMATTER);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.MIN;
+        }
+    }
+}
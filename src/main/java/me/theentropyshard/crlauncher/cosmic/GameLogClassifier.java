@@ -0,0 +1,232 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import me.theentropyshard.crlauncher.logging.LogLevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assigns a level to each line of game output and records where stack traces start, for the crash list
+ * of archived sessions.
+ * <p>
+ * Each line is looked at once, left to right. Once a trace has started, frames, causes and
+ * "... n more" lines are recognized by their first word and inherit {@link LogLevel#ERROR}
+ * without any further scanning. Instances are stateful and meant for a single game launch.
+ */
+public class GameLogClassifier {
+    private static final int MAX_CRASHES = 100;
+
+    private static final int PLAIN = 0;
+    private static final int PREFIX_INFO = 1;
+    private static final int PREFIX_WARN = 2;
+    private static final int PREFIX_ERROR = 3;
+    private static final int PREFIX_DEBUG = 4;
+    private static final int HEADER = 5;
+    private static final int TRACE = 6;
+
+    private final List<GameLogSession.Crash> crashes = new ArrayList<>();
+
+    private long lineNumber;
+    private String header;
+
+    private boolean inTrace;
+    private String traceHeadline;
+    private long traceLineNumber;
+    private boolean traceStart;
+
+    /**
+     * @param line a line of game output without ANSI escape codes
+     */
+    public LogLevel classify(String line) {
+        this.lineNumber++;
+        this.traceStart = false;
+
+        int kind = GameLogClassifier.scan(line);
+
+        if (kind == GameLogClassifier.TRACE) {
+            if (!this.inTrace) {
+                this.inTrace = true;
+                this.traceHeadline = this.header == null ? line : this.header;
+                this.traceLineNumber = this.lineNumber;
+                this.traceStart = true;
+            }
+
+            return LogLevel.ERROR;
+        }
+
+        this.finish();
+        this.header = kind == GameLogClassifier.HEADER || kind == GameLogClassifier.PREFIX_ERROR ? line : null;
+
+        return switch (kind) {
+            case GameLogClassifier.PREFIX_WARN -> LogLevel.WARN;
+            case GameLogClassifier.PREFIX_ERROR, GameLogClassifier.HEADER -> LogLevel.ERROR;
+            case GameLogClassifier.PREFIX_DEBUG -> LogLevel.DEBUG;
+            default -> LogLevel.INFO;
+        };
+    }
+
+    /**
+     * Closes the trace that is still open, if any. Called once the game output ends.
+     */
+    public void finish() {
+        if (!this.inTrace) {
+            return;
+        }
+
+        if (this.crashes.size() < GameLogClassifier.MAX_CRASHES) {
+            this.crashes.add(new GameLogSession.Crash(this.traceLineNumber - 1, this.traceHeadline));
+        }
+
+        this.inTrace = false;
+        this.traceHeadline = null;
+    }
+
+    /**
+     * @return whether the last classified line started a new stack trace
+     */
+    public boolean isTraceStart() {
+        return this.traceStart;
+    }
+
+    /**
+     * @return the stack traces closed so far, ordered by line
+     */
+    public List<GameLogSession.Crash> getCrashes() {
+        return Collections.unmodifiableList(this.crashes);
+    }
+
+    private static int scan(String line) {
+        int length = line.length();
+
+        if (length == 0) {
+            return GameLogClassifier.PLAIN;
+        }
+
+        if (line.charAt(0) == '[') {
+            int prefix = GameLogClassifier.scanPrefix(line);
+
+            if (prefix != GameLogClassifier.PLAIN) {
+                return prefix;
+            }
+        }
+
+        int i = 0;
+        while (i < length && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+
+        if (i == length) {
+            return GameLogClassifier.PLAIN;
+        }
+
+        switch (line.charAt(i)) {
+            case 'a' -> {
+                if (i > 0 && line.startsWith("at ", i) && i + 3 < length &&
+                    Character.isJavaIdentifierStart(line.charAt(i + 3))) {
+                    return GameLogClassifier.TRACE;
+                }
+            }
+            case '.' -> {
+                if (line.startsWith("... ", i) && line.endsWith(" more")) {
+                    return GameLogClassifier.TRACE;
+                }
+            }
+            case 'C' -> {
+                if (line.startsWith("Caused by: ", i)) {
+                    return GameLogClassifier.TRACE;
+                }
+            }
+            case 'S' -> {
+                if (i > 0 && line.startsWith("Suppressed: ", i)) {
+                    return GameLogClassifier.TRACE;
+                }
+            }
+            case 'E' -> {
+                if (line.startsWith("Exception in thread", i)) {
+                    return GameLogClassifier.HEADER;
+                }
+            }
+        }
+
+        return GameLogClassifier.containsThrowableName(line, i) ? GameLogClassifier.HEADER : GameLogClassifier.PLAIN;
+    }
+
+    private static int scanPrefix(String line) {
+        if (line.startsWith("[INFO]")) {
+            return GameLogClassifier.PREFIX_INFO;
+        } else if (line.startsWith("[WARNING]")) {
+            return GameLogClassifier.PREFIX_WARN;
+        } else if (line.startsWith("[ERROR]")) {
+            return GameLogClassifier.PREFIX_ERROR;
+        } else if (line.startsWith("[DEBUG]")) {
+            return GameLogClassifier.PREFIX_DEBUG;
+        }
+
+        return GameLogClassifier.PLAIN;
+    }
+
+    /**
+     * Looks for a qualified name like {@code java.lang.IllegalStateException}, that is a dotted
+     * identifier whose last segment ends in Exception, Error or Throwable.
+     */
+    private static boolean containsThrowableName(String line, int from) {
+        int length = line.length();
+        int segmentStart = -1;
+        boolean qualified = false;
+
+        for (int i = from; i <= length; i++) {
+            char c = i < length ? line.charAt(i) : ' ';
+
+            if (segmentStart == -1) {
+                if (Character.isJavaIdentifierStart(c)) {
+                    segmentStart = i;
+                }
+            } else if (c == '.' && i + 1 < length && Character.isJavaIdentifierStart(line.charAt(i + 1))) {
+                qualified = true;
+                segmentStart = i + 1;
+                i++;
+            } else if (!Character.isJavaIdentifierPart(c) || Character.isIdentifierIgnorable(c)) {
+                if (qualified && GameLogClassifier.isThrowableName(line, segmentStart, i)) {
+                    return true;
+                }
+
+                segmentStart = -1;
+                qualified = false;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isThrowableName(String line, int start, int end) {
+        return GameLogClassifier.endsWith(line, start, end, "Exception") ||
+            GameLogClassifier.endsWith(line, start, end, "Error") ||
+            GameLogClassifier.endsWith(line, start, end, "Throwable");
+    }
+
+    private static boolean endsWith(String line, int start, int end, String suffix) {
+        int offset = end - suffix.length();
+
+        return offset >= start && line.startsWith(suffix, offset);
+    }
+}
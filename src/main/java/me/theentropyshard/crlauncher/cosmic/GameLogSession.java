@@ -0,0 +1,199 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import me.theentropyshard.crlauncher.logging.LogLevel;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * One launch in a {@link GameLogArchive}. An archived session is a gzip file made of independent
+ * members of about {@link GameLogArchive#BLOCK_SIZE} bytes each, plus an index telling where each member
+ * starts, so reading from any line only decompresses from the member containing it.
+ * A session whose game is still running, or that was never archived, is a plain text file without an index.
+ */
+public class GameLogSession {
+    private final Path file;
+    private final Path indexFile;
+    private final Index index;
+    private final LocalDateTime startTime;
+
+    public GameLogSession(Path file, Path indexFile, Index index, LocalDateTime startTime) {
+        this.file = file;
+        this.indexFile = indexFile;
+        this.index = index;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Reads up to {@code count} lines starting from {@code firstLine}, counted from 0.
+     */
+    public List<String> readLines(long firstLine, int count) throws IOException {
+        List<String> lines = new ArrayList<>(Math.min(count, 4096));
+
+        Block block = this.findBlock(firstLine);
+        long skip = block == null ? firstLine : firstLine - block.firstLine();
+
+        try (BufferedReader reader = this.openReader(block)) {
+            String line;
+            while (lines.size() < count && (line = reader.readLine()) != null) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    lines.add(line);
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    public String readAll() throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        try (BufferedReader reader = this.openReader(this.findBlock(0))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private BufferedReader openReader(Block block) throws IOException {
+        InputStream inputStream;
+
+        if (this.index == null) {
+            inputStream = Files.newInputStream(this.file);
+        } else {
+            FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ);
+            channel.position(block == null ? 0 : block.compressedOffset());
+
+            // Concatenated members are read one after another
+            inputStream = new GZIPInputStream(Channels.newInputStream(channel), 8192);
+        }
+
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the member containing the line, or {@code null} for a plain text session
+     */
+    private Block findBlock(long line) {
+        if (this.index == null || this.index.blocks().isEmpty()) {
+            return null;
+        }
+
+        List<Block> blocks = this.index.blocks();
+
+        int low = 0;
+        int high = blocks.size() - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (blocks.get(mid).firstLine() <= line) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return blocks.get(low);
+    }
+
+    public void delete() throws IOException {
+        FileUtils.delete(this.file);
+
+        if (this.indexFile != null) {
+            FileUtils.delete(this.indexFile);
+        }
+    }
+
+    public long getSize() throws IOException {
+        return Files.size(this.file) + (this.indexFile == null ? 0 : Files.size(this.indexFile));
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return the index, or {@code null} if the session was not archived yet
+     */
+    public Index getIndex() {
+        return this.index;
+    }
+
+    public boolean isArchived() {
+        return this.index != null;
+    }
+
+    public LocalDateTime getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * @param blocks      where each gzip member starts, ordered by line
+     * @param levelCounts number of lines per level, as assigned by {@link GameLogClassifier}
+     * @param crashes     stack traces, ordered by line
+     */
+    public record Index(long endTime, int exitCode, long lineCount, long size, Map<LogLevel, Long> levelCounts,
+                        List<Block> blocks, List<Crash> crashes) {
+
+        public long getCount(LogLevel level) {
+            Long count = this.levelCounts == null ? null : this.levelCounts.get(level);
+
+            return count == null ? 0 : count;
+        }
+    }
+
+    /**
+     * @param compressedOffset position of the gzip member in the archive file
+     * @param firstLine        number of the first line in the member, counted from 0
+     */
+    public record Block(long compressedOffset, long firstLine) {
+
+    }
+
+    /**
+     * @param line     number of the first line of the trace, counted from 0
+     * @param headline the line naming the exception
+     */
+    public record Crash(long line, String headline) {
+
+    }
+}
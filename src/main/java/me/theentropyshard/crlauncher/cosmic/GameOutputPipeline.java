@@ -0,0 +1,203 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import me.theentropyshard.crlauncher.logging.Log;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Carries game output from the process reader to the launcher console.
+ * <p>
+ * Every line is written to the per-launch log file on the reader thread, so nothing is lost
+ * even if the console falls behind. The console path goes through a bounded queue: when it is full
+ * the reader waits for a short while (counted as lagging) and then drops the line for the console only.
+ * A separate thread drains the queue in batches and hands the lines to the sink.
+ */
+public class GameOutputPipeline implements Closeable {
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int BATCH_SIZE = 256;
+    private static final long OFFER_TIMEOUT_MILLIS = 50L;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250L);
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    // Compared by identity, never handed to the sink
+    private static final String END_OF_STREAM = new String("");
+
+    private final Path logFile;
+    private final Writer writer;
+    private final Consumer<String> sink;
+    private final BlockingQueue<String> queue;
+    private final Thread consumerThread;
+
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lagged = new AtomicLong();
+
+    private long lastFlush;
+    private boolean fileFailed;
+    private boolean closed;
+
+    public GameOutputPipeline(Path logFile, Consumer<String> sink) throws IOException {
+        this.logFile = logFile;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(GameOutputPipeline.QUEUE_CAPACITY);
+
+        Files.createDirectories(logFile.getParent());
+        this.writer = new BufferedWriter(
+            Files.newBufferedWriter(logFile, StandardCharsets.UTF_8), GameOutputPipeline.WRITER_BUFFER_SIZE
+        );
+        this.lastFlush = System.nanoTime();
+
+        this.consumerThread = new Thread(this::consume, "CRL-Game-Output");
+        this.consumerThread.setDaemon(true);
+        this.consumerThread.start();
+    }
+
+    /**
+     * Called from the process reader thread for every line of output.
+     */
+    public void accept(String line) {
+        this.lines.incrementAndGet();
+
+        this.writeToFile(line);
+
+        if (this.queue.offer(line)) {
+            return;
+        }
+
+        this.lagged.incrementAndGet();
+
+        try {
+            if (!this.queue.offer(line, GameOutputPipeline.OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                this.dropped.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    private void writeToFile(String line) {
+        if (this.fileFailed) {
+            return;
+        }
+
+        try {
+            this.writer.write(line);
+            this.writer.write(System.lineSeparator());
+
+            long now = System.nanoTime();
+            if (now - this.lastFlush >= GameOutputPipeline.FLUSH_INTERVAL_NANOS) {
+                this.writer.flush();
+                this.lastFlush = now;
+            }
+        } catch (IOException e) {
+            this.fileFailed = true;
+
+            Log.error("Could not write game output to " + this.logFile, e);
+        }
+    }
+
+    private void consume() {
+        List<String> batch = new ArrayList<>(GameOutputPipeline.BATCH_SIZE);
+
+        try {
+            while (true) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, GameOutputPipeline.BATCH_SIZE - 1);
+
+                for (String line : batch) {
+                    if (line == GameOutputPipeline.END_OF_STREAM) {
+                        return;
+                    }
+
+                    try {
+                        this.sink.accept(line);
+                    } catch (RuntimeException e) {
+                        Log.error("Could not pass game output to the console", e);
+                    }
+                }
+
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the console to catch up, then flushes and closes the log file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+
+        try {
+            this.queue.put(GameOutputPipeline.END_OF_STREAM);
+            this.consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.writer.close();
+
+        long dropped = this.dropped.get();
+        if (dropped > 0) {
+            Log.warn("Console fell behind the game: " + dropped + " of " + this.lines.get() +
+                " lines were only written to " + this.logFile);
+        }
+
+        Log.info("Game output saved to " + this.logFile);
+    }
+
+    public Path getLogFile() {
+        return this.logFile;
+    }
+
+    public long getLineCount() {
+        return this.lines.get();
+    }
+
+    public long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    public long getLaggedCount() {
+        return this.lagged.get();
+    }
+}
@@ -25,13 +25,11 @@ import me.theentropyshard.crlauncher.cosmic.version.VersionManager;
 import me.theentropyshard.crlauncher.itch.BuildFile;
 import me.theentropyshard.crlauncher.network.download.HttpDownload;
 import me.theentropyshard.crlauncher.network.progress.ProgressListener;
-import me.theentropyshard.crlauncher.network.progress.ProgressNetworkInterceptor;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.ListUtils;
 import me.theentropyshard.crlauncher.utils.json.Json;
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.model.FileHeader;
-import okhttp3.OkHttpClient;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -58,10 +56,6 @@ public class ItchDownloader {
         }
 
         if (!Files.exists(filePath)) {
-            OkHttpClient httpClient = launcher.getHttpClient().newBuilder()
-                .addNetworkInterceptor(new ProgressNetworkInterceptor(listener))
-                .build();
-
             List<BuildFile> files = version.getFiles();
             BuildFile buildFile = ListUtils.search(files, f -> f.getType().equals("archive"));
             if (buildFile == null) {
@@ -71,11 +65,12 @@ public class ItchDownloader {
                 .url("https://api.itch.io/builds/" + version.getBuildId() + "/download/archive/default?api_key=" +
                     itchAccount.getItchIoApiKey())
                 .expectedSize(buildFile.getSize())
-                .httpClient(httpClient)
+                .segmented()
+                .progressListener(listener)
                 .saveAs(zipPath)
                 .build();
 
-            download.execute();
+            launcher.getDownloadScheduler().download(download);
 
             FileHeader jarFileHeader;
             try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
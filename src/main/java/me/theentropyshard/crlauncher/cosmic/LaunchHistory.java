@@ -0,0 +1,120 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import com.google.gson.reflect.TypeToken;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Last launches of an instance, oldest first
+ */
+public class LaunchHistory {
+    private static final int MAX_RECORDS = 100;
+
+    private final Path file;
+
+    public LaunchHistory(Path file) {
+        this.file = file;
+    }
+
+    public List<LaunchRecord> load() throws IOException {
+        if (!Files.exists(this.file)) {
+            return new ArrayList<>();
+        }
+
+        List<LaunchRecord> records = Json.parse(FileUtils.readUtf8(this.file), new TypeToken<List<LaunchRecord>>() {}.getType());
+
+        return records == null ? new ArrayList<>() : records;
+    }
+
+    public synchronized void add(LaunchRecord record) throws IOException {
+        List<LaunchRecord> records = this.load();
+        records.add(record);
+
+        if (records.size() > LaunchHistory.MAX_RECORDS) {
+            records = new ArrayList<>(records.subList(records.size() - LaunchHistory.MAX_RECORDS, records.size()));
+        }
+
+        FileUtils.writeUtf8(this.file, Json.write(records));
+    }
+
+    /**
+     * Writes the records as CSV, one row per launch and one column per phase
+     */
+    public static void exportCsv(List<LaunchRecord> records, Path target) throws IOException {
+        Set<String> phaseNames = new LinkedHashSet<>();
+        for (LaunchRecord record : records) {
+            for (LaunchRecord.Phase phase : record.phases()) {
+                phaseNames.add(phase.name());
+            }
+        }
+
+        StringBuilder csv = new StringBuilder("time,launcherVersion,javaVersion,cosmicVersion,modLoader,loaderVersion,modCount");
+        for (String name : phaseNames) {
+            csv.append(',').append(name);
+        }
+        csv.append('\n');
+
+        for (LaunchRecord record : records) {
+            csv.append(Instant.ofEpochMilli(record.time()))
+                .append(',').append(LaunchHistory.csvValue(record.launcherVersion()))
+                .append(',').append(record.javaVersion())
+                .append(',').append(LaunchHistory.csvValue(record.cosmicVersion()))
+                .append(',').append(LaunchHistory.csvValue(record.modLoader()))
+                .append(',').append(LaunchHistory.csvValue(record.loaderVersion()))
+                .append(',').append(record.modCount());
+
+            // Phases are exported as their duration, events as their offset from the start
+            for (String name : phaseNames) {
+                csv.append(',');
+
+                LaunchRecord.Phase phase = record.getPhase(name);
+                if (phase != null) {
+                    csv.append(phase.isEvent() ? phase.start() : phase.duration());
+                }
+            }
+
+            csv.append('\n');
+        }
+
+        FileUtils.writeUtf8(target, csv.toString());
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        return value;
+    }
+}
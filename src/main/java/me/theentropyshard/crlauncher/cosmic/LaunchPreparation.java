@@ -0,0 +1,176 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Launch preparation as a small graph of tasks. A task starts as soon as all of its dependencies
+ * have finished, so independent tasks run concurrently. The first failure ends the preparation,
+ * tasks that have not started yet are skipped and running ones are interrupted.
+ */
+public class LaunchPreparation {
+    private final LaunchTimer timer;
+    private final Map<String, Task> tasks;
+
+    public LaunchPreparation(LaunchTimer timer) {
+        this.timer = timer;
+        this.tasks = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a task, dependencies must have been added before, which also rules out cycles
+     *
+     * @param name         unique name, also recorded as a phase by the launch timer
+     * @param action       what the task does
+     * @param dependencies names of the tasks that have to finish first
+     */
+    public void add(String name, Action action, String... dependencies) {
+        if (this.tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Task " + name + " is already added");
+        }
+
+        for (String dependency : dependencies) {
+            if (!this.tasks.containsKey(dependency)) {
+                throw new IllegalArgumentException("Task " + name + " depends on unknown task " + dependency);
+            }
+        }
+
+        this.tasks.put(name, new Task(name, action, List.of(dependencies)));
+    }
+
+    public List<String> getTaskNames() {
+        return new ArrayList<>(this.tasks.keySet());
+    }
+
+    public void run(Listener listener) throws TaskFailedException, InterruptedException {
+        if (this.tasks.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "Launch preparation");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+        try {
+            for (Task task : this.tasks.values()) {
+                CompletableFuture<?>[] dependencies = task.dependencies().stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+
+                CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> this.execute(task, listener), executor);
+
+                future.whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        failure.completeExceptionally(throwable);
+                    }
+                });
+
+                futures.put(task.name(), future);
+            }
+
+            CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new));
+            CompletableFuture.anyOf(all, failure).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof TaskFailedException taskFailed) {
+                throw taskFailed;
+            }
+
+            throw new TaskFailedException(null, cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void execute(Task task, Listener listener) {
+        listener.taskStarted(task.name());
+
+        try {
+            this.timer.time(task.name(), () -> task.action().run(listener.getProgressListener(task.name())));
+        } catch (Exception e) {
+            listener.taskFailed(task.name(), e);
+
+            throw new CompletionException(new TaskFailedException(task.name(), e));
+        }
+
+        listener.taskFinished(task.name());
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run(ProgressListener listener) throws Exception;
+    }
+
+    /**
+     * Notified from the threads running the tasks
+     */
+    public interface Listener {
+        void taskStarted(String name);
+
+        void taskFinished(String name);
+
+        void taskFailed(String name, Throwable cause);
+
+        ProgressListener getProgressListener(String name);
+    }
+
+    private record Task(String name, Action action, List<String> dependencies) {
+
+    }
+
+    public static class TaskFailedException extends Exception {
+        private final String taskName;
+
+        public TaskFailedException(String taskName, Throwable cause) {
+            super(cause.getMessage(), cause);
+
+            this.taskName = taskName;
+        }
+
+        /**
+         * @return name of the failed task, null if the failure did not come from a task
+         */
+        public String getTaskName() {
+            return this.taskName;
+        }
+    }
+}
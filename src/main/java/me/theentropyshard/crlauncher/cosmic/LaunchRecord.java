@@ -0,0 +1,74 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import java.util.List;
+
+/**
+ * Timings of one launch together with what was launched, so regressions can be traced back
+ * to a launcher, Java or mod change
+ *
+ * @param time            when the launch was started, in milliseconds since the epoch
+ * @param launcherVersion version of the launcher
+ * @param javaVersion     feature version of Java, 0 if unknown
+ * @param cosmicVersion   game version
+ * @param modLoader       mod loader of the instance
+ * @param loaderVersion   version of the mod loader, null for vanilla
+ * @param modCount        number of active mods, including jar mods
+ * @param phases          phases in the order they ended
+ */
+public record LaunchRecord(long time, String launcherVersion, int javaVersion, String cosmicVersion, String modLoader,
+                           String loaderVersion, int modCount, List<Phase> phases) {
+
+    public Phase getPhase(String name) {
+        for (Phase phase : this.phases) {
+            if (phase.name().equals(name)) {
+                return phase;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return when the named phase or event ended, or -1 if it was not recorded
+     */
+    public long getEnd(String name) {
+        Phase phase = this.getPhase(name);
+
+        return phase == null ? -1L : phase.end();
+    }
+
+    /**
+     * @param name     phase name, see the constants in {@link LaunchTimer}
+     * @param start    milliseconds since the launch was started
+     * @param duration length of the phase in milliseconds, {@link #EVENT} for a point in time
+     */
+    public record Phase(String name, long start, long duration) {
+        public static final long EVENT = -1L;
+
+        public boolean isEvent() {
+            return this.duration == Phase.EVENT;
+        }
+
+        public long end() {
+            return this.isEvent() ? this.start : this.start + this.duration;
+        }
+    }
+}
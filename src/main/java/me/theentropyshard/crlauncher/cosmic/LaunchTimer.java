@@ -0,0 +1,114 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the phases of one launch, measured from the moment the launch was started.
+ * Phases may nest or run concurrently, so they can be recorded from any thread.
+ */
+public class LaunchTimer {
+    public static final String VERSION_LIST = "versionList";
+    public static final String DOWNLOAD_VERSION = "downloadVersion";
+    public static final String JAR_MODS = "jarMods";
+    public static final String JVM_FLAGS = "jvmFlags";
+    public static final String BUILD_COMMAND = "buildCommand";
+    public static final String CR_LOADER = "crLoader";
+    public static final String PREPARE_LOADER = "prepareLoader";
+    public static final String LOADER = "loader";
+    public static final String CLASSPATH = "classpath";
+    public static final String CLASS_DATA_SHARING = "classDataSharing";
+    public static final String LAUNCH_PLAN = "launchPlan";
+    public static final String SPAWN = "spawn";
+    public static final String FIRST_OUTPUT = "firstOutput";
+    public static final String READY = "ready";
+
+    private final long startNanos;
+    private final List<LaunchRecord.Phase> phases;
+
+    public LaunchTimer() {
+        this.startNanos = System.nanoTime();
+        this.phases = new ArrayList<>();
+    }
+
+    /**
+     * Runs the action as a phase with the given name, the phase is recorded even if the action fails
+     */
+    public <E extends Exception> void time(String name, Action<E> action) throws E {
+        this.time(name, () -> {
+            action.run();
+
+            return null;
+        });
+    }
+
+    /**
+     * Runs the call as a phase with the given name, the phase is recorded even if the call fails
+     *
+     * @return what the call returned
+     */
+    public <T, E extends Exception> T time(String name, Call<T, E> call) throws E {
+        long start = this.elapsedMillis();
+
+        try {
+            return call.run();
+        } finally {
+            this.add(new LaunchRecord.Phase(name, start, this.elapsedMillis() - start));
+        }
+    }
+
+    /**
+     * Records a point in time, only the first mark with a given name is kept
+     */
+    public synchronized void mark(String name) {
+        if (this.isMarked(name)) {
+            return;
+        }
+
+        this.add(new LaunchRecord.Phase(name, this.elapsedMillis(), LaunchRecord.Phase.EVENT));
+    }
+
+    public synchronized boolean isMarked(String name) {
+        return this.phases.stream().anyMatch(phase -> phase.name().equals(name));
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - this.startNanos) / 1_000_000L;
+    }
+
+    public synchronized List<LaunchRecord.Phase> getPhases() {
+        return List.copyOf(this.phases);
+    }
+
+    private synchronized void add(LaunchRecord.Phase phase) {
+        this.phases.add(phase);
+    }
+
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T run() throws E;
+    }
+}
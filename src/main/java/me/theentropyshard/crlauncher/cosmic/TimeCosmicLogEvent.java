@@ -19,8 +19,8 @@
 package me.theentropyshard.crlauncher.cosmic;
 
 import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
-import me.theentropyshard.crlauncher.logging.LogEvent;
 import me.theentropyshard.crlauncher.logging.LogLevel;
+import me.theentropyshard.crlauncher.utils.ansi.StyledLine;
 
 public class TimeCosmicLogEvent extends AnsiCosmicLogEvent {
     public TimeCosmicLogEvent(String message) {
@@ -31,16 +31,15 @@ public class TimeCosmicLogEvent extends AnsiCosmicLogEvent {
         super(level, message);
     }
 
-    @Override
-    public void appConsole(String message) {
-        if (LauncherConsole.instance == null) {
-            return;
-        }
+    public TimeCosmicLogEvent(LogLevel level, StyledLine line, boolean traceStart) {
+        super(level, line, traceStart);
+    }
 
-        LauncherConsole c = LauncherConsole.instance;
-        c.setColor(this.getLevel().color()).setBold(true).write("[" + LogEvent.currentTime() + "]: ");
+    @Override
+    protected void writePrefix(LauncherConsole c) {
+        c.setColor(this.getLevel().color()).setBold(true).write("[");
+        c.write(this.getTime());
+        c.write("]: ");
         c.setBold(false);
-
-        super.appConsole(message);
     }
-}
+}
\ No newline at end of file
@@ -19,11 +19,14 @@
 package me.theentropyshard.crlauncher.cosmic.launcher;
 
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchTimer;
 import me.theentropyshard.crlauncher.java.JavaLocator;
 import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
 import me.theentropyshard.crlauncher.utils.ProcessReader;
 import me.theentropyshard.crlauncher.utils.SystemProperty;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -31,11 +34,16 @@ public abstract class AbstractCosmicLauncher implements CosmicLauncher {
     private final String javaPath;
     private final Path runDir;
     private final Path gameFilesLocation;
-    private final Path clientPath;
+    private Path clientPath;
     private final List<String> command;
     private final List<SystemProperty> properties;
     private final Set<String> jvmFlags;
     private final Map<String, String> environment;
+    private int minimumMemoryInMegabytes;
+    private int maximumMemoryInMegabytes;
+    private ClassDataSharing classDataSharing;
+    private LaunchPlan launchPlan;
+    private LaunchTimer launchTimer;
 
     public AbstractCosmicLauncher(String javaPath, Path runDir, Path gameFilesLocation, Path clientPath) {
         this.javaPath = javaPath;
@@ -46,6 +54,7 @@ public abstract class AbstractCosmicLauncher implements CosmicLauncher {
         this.properties = new ArrayList<>();
         this.jvmFlags = new LinkedHashSet<>();
         this.environment = new LinkedHashMap<>();
+        this.launchTimer = new LaunchTimer();
     }
 
     public void defineProperty(SystemProperty property) {
@@ -56,10 +65,50 @@ public abstract class AbstractCosmicLauncher implements CosmicLauncher {
         this.jvmFlags.add(flag);
     }
 
+    /**
+     * Sets -Xms and -Xmx, values of 0 or less leave the size to the JVM.
+     * Flags added with {@link #addJvmFlag(String)} come later, so they can still override these.
+     */
+    public void setHeapSize(int minimumMemoryInMegabytes, int maximumMemoryInMegabytes) {
+        this.minimumMemoryInMegabytes = minimumMemoryInMegabytes;
+        this.maximumMemoryInMegabytes = maximumMemoryInMegabytes;
+    }
+
+    /**
+     * Enables class data sharing, the archive flags are added once the subclass has built the classpath
+     */
+    public void setClassDataSharing(ClassDataSharing classDataSharing) {
+        this.classDataSharing = classDataSharing;
+    }
+
+    public void setLaunchPlan(LaunchPlan launchPlan) {
+        this.launchPlan = launchPlan;
+    }
+
+    public void setLaunchTimer(LaunchTimer launchTimer) {
+        this.launchTimer = launchTimer;
+    }
+
     public void putEnvironment(String key, String value) {
         this.environment.put(key, value);
     }
 
+    /**
+     * Fetches the java agent the game is started with, if any. Must not depend on the client path,
+     * it runs concurrently with the rest of the launch preparation.
+     */
+    public void prepareAgent(ProgressListener listener) throws IOException {
+
+    }
+
+    /**
+     * Downloads the mod loader and resolves its classpath, if any. Must not depend on the client path,
+     * it runs concurrently with the rest of the launch preparation.
+     */
+    public void prepareLoader(ProgressListener listener) throws IOException {
+
+    }
+
     public void buildCommand(List<String> command) {
         command.clear();
 
@@ -69,22 +118,51 @@ public abstract class AbstractCosmicLauncher implements CosmicLauncher {
             command.add(property.asJvmArg());
         }
 
+        if (this.minimumMemoryInMegabytes > 0) {
+            command.add("-Xms" + this.minimumMemoryInMegabytes + "M");
+        }
+
+        if (this.maximumMemoryInMegabytes > 0) {
+            command.add("-Xmx" + this.maximumMemoryInMegabytes + "M");
+        }
+
         command.addAll(this.jvmFlags);
         this.jvmFlags.clear();
     }
 
     @Override
     public Process launch(boolean exitAfterLaunch) throws Exception {
-        this.buildCommand(this.command);
+        this.launchTimer.time(LaunchTimer.BUILD_COMMAND, () -> this.buildCommand(this.command));
+
+        if (this.classDataSharing != null) {
+            try {
+                this.launchTimer.time(LaunchTimer.CLASS_DATA_SHARING, () -> {
+                    String clientSha256 = CRLauncher.getInstance().getVerificationIndex().sha256(this.clientPath);
+                    this.classDataSharing.apply(this.command, clientSha256);
+                });
+            } catch (IOException e) {
+                Log.warn("Could not set up class data sharing: " + e.getMessage());
+            }
+        }
 
         Log.info("Running: " + String.join(" ", this.command));
 
-        ProcessBuilder processBuilder = new ProcessBuilder(this.command);
+        List<String> command = this.command;
+
+        if (this.launchPlan != null) {
+            try {
+                command = this.launchTimer.time(LaunchTimer.LAUNCH_PLAN, () -> this.launchPlan.apply(this.command));
+            } catch (IOException e) {
+                Log.warn("Could not save the launch plan: " + e.getMessage());
+            }
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
         processBuilder.environment().putAll(this.environment);
         processBuilder.directory(this.runDir.toFile());
         processBuilder.redirectErrorStream(true);
 
-        Process process = processBuilder.start();
+        Process process = this.launchTimer.time(LaunchTimer.SPAWN, processBuilder::start);
 
         if (exitAfterLaunch) {
             CRLauncher.getInstance().shutdown();
@@ -108,4 +186,23 @@ public abstract class AbstractCosmicLauncher implements CosmicLauncher {
     public Path getClientPath() {
         return this.clientPath;
     }
+
+    /**
+     * Replaces the client, e.g. with one that has jar mods applied, which is only known after the launcher is created
+     */
+    public void setClientPath(Path clientPath) {
+        this.clientPath = clientPath;
+    }
+
+    public ClassDataSharing getClassDataSharing() {
+        return this.classDataSharing;
+    }
+
+    public LaunchPlan getLaunchPlan() {
+        return this.launchPlan;
+    }
+
+    public LaunchTimer getLaunchTimer() {
+        return this.launchTimer;
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic.launcher;
+
+import me.theentropyshard.crlauncher.java.JavaProbe;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.HashUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dynamic AppCDS archive for one launch configuration. The first launch dumps the loaded classes
+ * with -XX:ArchiveClassesAtExit, later launches map them with -XX:SharedArchiveFile. The archive name
+ * contains a hash of the java binary, the client jar and every classpath entry, so any change to
+ * them produces a new archive and the old one for the same slot is deleted.
+ */
+public class ClassDataSharing {
+    private static final int KEY_LENGTH = 16;
+
+    private final Path archiveDir;
+    private final String slot;
+    private final JavaProbe probe;
+
+    private Mode mode;
+    private Path archive;
+    private Path timingsFile;
+
+    /**
+     * @param archiveDir where archives are kept
+     * @param slot       name of the launch configuration, e.g. loader and game version, only letters, digits, _ and . are kept
+     * @param probe      probe of the java installation, may be {@code null}
+     */
+    public ClassDataSharing(Path archiveDir, String slot, JavaProbe probe) {
+        this.archiveDir = archiveDir;
+        this.slot = FileUtils.sanitizeFileName(slot);
+        this.probe = probe;
+        this.mode = Mode.OFF;
+    }
+
+    /**
+     * Inserts the archive flags into a built command, right after the java executable
+     *
+     * @param command      the full command
+     * @param clientSha256 hash of the client jar
+     */
+    public void apply(List<String> command, String clientSha256) throws IOException {
+        if (this.probe == null || !this.probe.supports("ArchiveClassesAtExit") || !this.probe.supports("SharedArchiveFile")) {
+            Log.info("Java does not support dynamic class data sharing archives, skipping");
+
+            return;
+        }
+
+        List<String> classpath = ClassDataSharing.getClasspath(command);
+
+        if (classpath.isEmpty()) {
+            return;
+        }
+
+        String key = this.computeKey(command.get(0), clientSha256, classpath);
+        String name = this.slot + "-" + key;
+
+        FileUtils.createDirectoryIfNotExists(this.archiveDir);
+
+        this.archive = this.archiveDir.resolve(name + ".jsa");
+        this.timingsFile = this.archiveDir.resolve(name + ".json");
+
+        List<String> flags = new ArrayList<>();
+
+        if (Files.exists(this.archive)) {
+            this.mode = Mode.USE;
+            flags.add("-XX:SharedArchiveFile=" + this.archive.toAbsolutePath());
+        } else {
+            this.mode = Mode.DUMP;
+            this.deleteStale(key);
+
+            // The JVM refuses to dump with an agent attached unless explicitly allowed
+            if (command.stream().anyMatch(arg -> arg.startsWith("-javaagent:"))) {
+                flags.add("-XX:+UnlockDiagnosticVMOptions");
+                flags.add("-XX:+AllowArchivingWithJavaAgent");
+            }
+
+            flags.add("-XX:ArchiveClassesAtExit=" + this.archive.toAbsolutePath());
+        }
+
+        command.addAll(1, flags);
+
+        Log.info("Class data sharing: " + (this.mode == Mode.USE ? "using " : "creating ") + this.archive);
+    }
+
+    /**
+     * Records how long the game took to start and logs the comparison with the launch that created the archive
+     *
+     * @param startupMillis time from process start to the first line of game output, or -1 if there was none
+     */
+    public void recordStartup(long startupMillis) {
+        if (this.mode == Mode.OFF || startupMillis < 0) {
+            return;
+        }
+
+        try {
+            if (this.mode == Mode.DUMP) {
+                if (!Files.exists(this.archive)) {
+                    Log.warn("Class data sharing archive was not created: " + this.archive);
+
+                    return;
+                }
+
+                FileUtils.writeUtf8(this.timingsFile, Json.write(new Timings(startupMillis, 0, 0)));
+
+                return;
+            }
+
+            Timings timings = Files.exists(this.timingsFile) ?
+                Json.parse(FileUtils.readUtf8(this.timingsFile), Timings.class) :
+                null;
+
+            if (timings == null) {
+                return;
+            }
+
+            timings = new Timings(
+                timings.withoutArchiveMillis(),
+                timings.sharedLaunches() + 1,
+                timings.sharedTotalMillis() + startupMillis
+            );
+
+            FileUtils.writeUtf8(this.timingsFile, Json.write(timings));
+
+            long average = timings.sharedTotalMillis() / timings.sharedLaunches();
+
+            Log.info("Class data sharing: started in " + startupMillis + " ms, " + average + " ms on average over " +
+                timings.sharedLaunches() + " launches, " + timings.withoutArchiveMillis() + " ms without the archive (" +
+                (timings.withoutArchiveMillis() - average) + " ms saved)");
+        } catch (IOException e) {
+            Log.warn("Could not record class data sharing timings: " + e.getMessage());
+        }
+    }
+
+    private String computeKey(String javaPath, String clientSha256, List<String> classpath) throws IOException {
+        MessageDigest md = HashUtils.newDigest("SHA-256");
+
+        ClassDataSharing.update(md, javaPath + "|" + this.probe.size() + "|" + this.probe.lastModified());
+        ClassDataSharing.update(md, clientSha256);
+
+        for (String entry : classpath) {
+            Path path = Path.of(entry);
+
+            if (!Files.exists(path)) {
+                ClassDataSharing.update(md, entry);
+
+                continue;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            ClassDataSharing.update(md, path.toAbsolutePath() + "|" + attributes.size() + "|" +
+                attributes.lastModifiedTime().toMillis());
+        }
+
+        return HashUtils.toHex(md.digest()).substring(0, ClassDataSharing.KEY_LENGTH);
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private void deleteStale(String key) throws IOException {
+        String prefix = this.slot + "-";
+
+        for (Path file : FileUtils.list(this.archiveDir, Files::isRegularFile)) {
+            String fileName = file.getFileName().toString();
+
+            if (!fileName.startsWith(prefix)) {
+                continue;
+            }
+
+            int dot = fileName.lastIndexOf('.');
+            String fileKey = dot == -1 ? "" : fileName.substring(prefix.length(), dot);
+
+            if (fileKey.length() != ClassDataSharing.KEY_LENGTH || fileKey.equals(key) || fileKey.contains("-")) {
+                continue;
+            }
+
+            // Dumped archives are read-only, which prevents deleting them on Windows
+            file.toFile().setWritable(true);
+            Files.delete(file);
+
+            Log.info("Deleted outdated class data sharing file " + file);
+        }
+    }
+
+    /**
+     * @return entries of -classpath, or the jar after -jar
+     */
+    private static List<String> getClasspath(List<String> command) {
+        for (int i = 0; i < command.size() - 1; i++) {
+            String arg = command.get(i);
+
+            if (arg.equals("-jar")) {
+                return List.of(command.get(i + 1));
+            }
+
+            if (arg.equals("-classpath") || arg.equals("-cp")) {
+                return List.of(command.get(i + 1).split(File.pathSeparator));
+            }
+        }
+
+        return List.of();
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public Path getArchive() {
+        return this.archive;
+    }
+
+    public enum Mode {
+        OFF,
+        DUMP,
+        USE
+    }
+
+    public record Timings(long withoutArchiveMillis, int sharedLaunches, long sharedTotalMillis) {
+
+    }
+}
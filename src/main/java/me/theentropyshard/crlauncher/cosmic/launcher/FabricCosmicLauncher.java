@@ -18,156 +18,248 @@
 
 package me.theentropyshard.crlauncher.cosmic.launcher;
 
+import com.google.gson.reflect.TypeToken;
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchTimer;
+import me.theentropyshard.crlauncher.cosmic.mods.LoaderLock;
 import me.theentropyshard.crlauncher.cosmic.mods.fabric.FabricProperties;
 import me.theentropyshard.crlauncher.github.GithubApi;
 import me.theentropyshard.crlauncher.github.GithubRelease;
-import me.theentropyshard.crlauncher.gui.dialogs.ProgressDialog;
-import me.theentropyshard.crlauncher.gui.utils.MessageBox;
-import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.ListUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
 import net.lingala.zip4j.ZipFile;
 
-import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class FabricCosmicLauncher extends ModdedPatchCosmicLauncher {
-    
+    private static final String LIBRARIES_FILE = "libraries.json";
+
     private final String version;
 
+    private List<String> loaderClasspath;
+
     public FabricCosmicLauncher(String javaPath, Path runDir, Path gameFilesLocation, Path clientPath, Path modsDir, String version) {
         super(javaPath, runDir, gameFilesLocation, clientPath, modsDir);
 
         this.version = version;
     }
 
-    private void downloadFabricLoader(Path loaderDir, String version) {
-        try {
-            if (Files.exists(loaderDir) && FileUtils.countFiles(loaderDir) != 0) {
-                return;
-            }
+    private void downloadFabricLoader(Path loaderDir, String version, ProgressListener listener) throws IOException {
+        if (Files.exists(loaderDir) && FileUtils.countFiles(loaderDir) != 0) {
+            return;
+        }
+
+        Path loaderArchivePath = loaderDir.resolve("fabric_loader_%s.zip".formatted(version));
 
-            Path loaderArchivePath = loaderDir.resolve("fabric_loader_%s.zip".formatted(version));
+        FileUtils.createDirectoryIfNotExists(loaderDir);
 
-            FileUtils.createDirectoryIfNotExists(loaderDir);
+        GithubApi downloader = new GithubApi();
 
-            ProgressDialog downloadDialog = new ProgressDialog("Downloading Fabric");
-            downloadDialog.setStage("Downloading Fabric mod loader...");
+        List<GithubRelease> allReleases =
+                downloader.getAllReleases("ForwarD-Nern", "CosmicReach-Mod-Loader");
+        GithubRelease release = ListUtils.search(allReleases, resp -> resp.tag_name.equals(version));
 
-            SwingUtilities.invokeLater(() -> downloadDialog.setVisible(true));
+        if (release == null) {
+            throw new IOException("Could not find Fabric loader version " + version);
+        }
 
-            GithubApi downloader = new GithubApi();
+        downloader.downloadRelease(
+                loaderArchivePath,
+                release,
+                0,
+                listener
+        );
 
-            List<GithubRelease> allReleases =
-                    downloader.getAllReleases("ForwarD-Nern", "CosmicReach-Mod-Loader");
-            GithubRelease release = ListUtils.search(allReleases, resp -> resp.tag_name.equals(version));
+        try (ZipFile loaderArchive = new ZipFile(loaderArchivePath.toFile())) {
+            loaderArchive.removeFile("launch.bat");
+            loaderArchive.removeFile("launch.sh");
 
-            if (release == null) {
-                Log.error("Could find version " + version);
+            loaderArchive.extractAll(loaderDir.toString());
+        }
+    }
 
-                SwingUtilities.invokeLater(() -> downloadDialog.getDialog().dispose());
+    private Path findFabricJar(Path loaderDir) throws IOException {
+        Path fabricJar = null;
 
-                return;
+        for (Path p : FileUtils.list(loaderDir)) {
+            String fileName = p.getFileName().toString();
+            if (fileName.contains("fabric") && fileName.contains("modloader") && fileName.endsWith(".jar")) {
+                fabricJar = p;
             }
+        }
+
+        if (fabricJar == null) {
+            throw new IOException("Cannot find fabric modloader jar in " + loaderDir);
+        }
 
-            downloader.downloadRelease(
-                    loaderArchivePath,
-                    release,
-                    0,
-                    downloadDialog
-            );
+        return fabricJar;
+    }
 
-            SwingUtilities.invokeLater(() -> downloadDialog.getDialog().dispose());
+    /**
+     * @return the dependencies in the order the loader lists them, or {@code null} if one of them is missing
+     */
+    private List<String> resolveDependencies(Path loaderDir) throws IOException {
+        Path librariesFile = loaderDir.resolve(FabricCosmicLauncher.LIBRARIES_FILE);
 
-            try (ZipFile loaderArchive = new ZipFile(loaderArchivePath.toFile())) {
-                loaderArchive.removeFile("launch.bat");
-                loaderArchive.removeFile("launch.sh");
+        if (!Files.exists(librariesFile)) {
+            this.importDependencies(loaderDir);
+        }
+
+        List<String> classpath = new ArrayList<>();
 
-                loaderArchive.extractAll(loaderDir.toString());
+        for (String path : FabricCosmicLauncher.readLibraries(librariesFile)) {
+            Path file = LoaderLock.resolve(loaderDir, path);
+
+            if (!Files.exists(file)) {
+                return null;
             }
-        } catch (IOException e) {
-            Log.error("Exception while downloading Fabric loader", e);
+
+            classpath.add(file.toString());
         }
+
+        return classpath;
     }
 
-    private Path findFabricJar(Path loaderDir) {
-        Path fabricJar = null;
+    /**
+     * Moves the dependencies bundled with the loader into the library repository, the ones that can not be
+     * identified stay in the deps directory. The result is written to the libraries file.
+     */
+    private void importDependencies(Path loaderDir) throws IOException {
+        Path depsDir = loaderDir.resolve("deps");
+        if (!Files.exists(depsDir)) {
+            throw new IOException("Cannot find fabric modloader dependencies in " + depsDir);
+        }
 
-        try {
-            for (Path p : FileUtils.list(loaderDir)) {
-                String fileName = p.getFileName().toString();
-                if (fileName.contains("fabric") && fileName.contains("modloader") && fileName.endsWith(".jar")) {
-                    fabricJar = p;
-                }
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
+
+        List<String> paths = new ArrayList<>();
+
+        for (Path dep : FileUtils.list(depsDir)) {
+            Path library = libraries.importJar(dep, verificationIndex.sha256(dep), verificationIndex);
+
+            if (library == null) {
+                paths.add(loaderDir.relativize(dep).toString().replace('\\', '/'));
+            } else {
+                paths.add(libraries.relativize(library));
             }
-        } catch (IOException e) {
-            Log.error("Exception while listing files in " + loaderDir, e);
         }
 
-        if (fabricJar == null) {
-            Log.error("Cannot find fabric modloader jar in " + loaderDir);
-            MessageBox.showErrorMessage(CRLauncher.frame, "Cannot find fabric modloader jar in " + loaderDir);
+        FileUtils.writeUtf8(loaderDir.resolve(FabricCosmicLauncher.LIBRARIES_FILE), Json.write(paths));
+    }
+
+    private static List<String> readLibraries(Path librariesFile) throws IOException {
+        List<String> paths = Json.parse(FileUtils.readUtf8(librariesFile), new TypeToken<List<String>>() {}.getType());
+
+        return paths == null ? List.of() : paths;
+    }
+
+    /**
+     * @return libraries used by the installed loader versions
+     */
+    public static Set<Path> getReferencedLibraries(Path modloadersDir) throws IOException {
+        Set<Path> referenced = new HashSet<>();
 
-            return null;
+        if (!Files.isDirectory(modloadersDir)) {
+            return referenced;
         }
 
-        return fabricJar;
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        for (Path loaderDir : FileUtils.list(modloadersDir, path -> path.getFileName().toString().startsWith("fabric-loader-"))) {
+            Path librariesFile = loaderDir.resolve(FabricCosmicLauncher.LIBRARIES_FILE);
+
+            if (!Files.exists(librariesFile)) {
+                continue;
+            }
+
+            for (String path : FabricCosmicLauncher.readLibraries(librariesFile)) {
+                if (path.startsWith(LibraryRepository.PATH_PREFIX)) {
+                    referenced.add(libraries.resolve(path));
+                }
+            }
+        }
+
+        return referenced;
     }
 
-    private List<String> resolveDependencies(Path loaderDir) {
-        List<String> classpath = new ArrayList<>();
+    @Override
+    public void prepareLoader(ProgressListener listener) throws IOException {
+        String loader = "fabric " + this.version;
 
-        Path depsDir = loaderDir.resolve("deps");
-        if (!Files.exists(depsDir)) {
-            Log.error("Cannot find fabric modloader dependencies in " + depsDir);
-            MessageBox.showErrorMessage(CRLauncher.frame,
-                    "Cannot find fabric modloader dependencies in " + depsDir);
+        LaunchPlan.Plan plan = this.findLoaderPlan(loader);
 
-            return classpath;
+        if (plan != null) {
+            this.loaderClasspath = plan.classpath();
+
+            return;
         }
 
+        Path fabricLoaderDir = CRLauncher.getInstance().getModloadersDir().resolve("fabric-loader-%s".formatted(this.version));
+
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        libraries.beginInstall();
+
         try {
-            for (Path dep : FileUtils.list(depsDir)) {
-                classpath.add(dep.toString());
+            this.getLaunchTimer().time(LaunchTimer.LOADER, () -> this.downloadFabricLoader(fabricLoaderDir, this.version, listener));
+            this.loaderClasspath = this.getLaunchTimer().time(LaunchTimer.CLASSPATH, () -> this.getLoaderClasspath(fabricLoaderDir, listener));
+        } finally {
+            libraries.endInstall();
+        }
+
+        // Adding or removing a dependency changes the modification time of the directories
+        this.saveLoaderPlan(loader, FabricProperties.MAIN_CLASS, this.loaderClasspath,
+            List.of(fabricLoaderDir, fabricLoaderDir.resolve("deps"), fabricLoaderDir.resolve(FabricCosmicLauncher.LIBRARIES_FILE)));
+    }
+
+    private List<String> getLoaderClasspath(Path fabricLoaderDir, ProgressListener listener) throws IOException {
+        List<String> dependencies = this.resolveDependencies(fabricLoaderDir);
+
+        if (dependencies == null) {
+            // A library went missing, the loader has to be unpacked again
+            FileUtils.delete(fabricLoaderDir);
+            this.downloadFabricLoader(fabricLoaderDir, this.version, listener);
+
+            dependencies = this.resolveDependencies(fabricLoaderDir);
+
+            if (dependencies == null) {
+                throw new IOException("Fabric loader dependencies are missing in " + fabricLoaderDir);
             }
-        } catch (IOException e) {
-            Log.error("Cannot list files in " + depsDir, e);
         }
 
-        return classpath;
+        List<String> loaderClasspath = new ArrayList<>();
+        loaderClasspath.add(this.findFabricJar(fabricLoaderDir).toString());
+        loaderClasspath.addAll(dependencies);
+
+        return loaderClasspath;
     }
 
     @Override
     public void buildCommand(List<String> command) {
+        if (this.loaderClasspath == null) {
+            throw new IllegalStateException("prepareLoader must be called before building the command");
+        }
+
         this.defineProperty(FabricProperties.SKIP_MC_PROVIDER.copy(true));
         this.defineProperty(FabricProperties.GAME_JAR_PATH.copy(this.getClientPath()));
         this.defineProperty(FabricProperties.MODS_FOLDER.copy(this.getModsDir()));
 
         super.buildCommand(command);
 
-        Path fabricLoaderDir = CRLauncher.getInstance().getModloadersDir().resolve("fabric-loader-%s".formatted(this.version));
-        this.downloadFabricLoader(fabricLoaderDir, this.version);
-
         command.add("-classpath");
 
         List<String> classpath = new ArrayList<>();
         classpath.add(this.getClientPath().toString());
-
-        Path fabricJar = this.findFabricJar(fabricLoaderDir);
-
-        if (fabricJar == null) {
-            return;
-        } else {
-            classpath.add(fabricJar.toString());
-        }
-
-        classpath.addAll(this.resolveDependencies(fabricLoaderDir));
+        classpath.addAll(this.loaderClasspath);
 
         command.add(String.join(File.pathSeparator, classpath));
         command.add(FabricProperties.MAIN_CLASS);
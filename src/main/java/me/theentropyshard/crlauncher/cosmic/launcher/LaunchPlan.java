@@ -0,0 +1,250 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic.launcher;
+
+import me.theentropyshard.crlauncher.BuildConfig;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.HashUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Launch plan of an instance, kept between launches. It stores the resolved loader, i.e. main class and
+ * classpath, together with a fingerprint of the files it was resolved from, so the next launch can skip
+ * resolving the loader as long as none of them changed. The JVM arguments are written to an argument file
+ * and passed as {@code @file}, which keeps long classpaths off the command line.
+ */
+public class LaunchPlan {
+    private final Path planFile;
+
+    private Path argumentFile;
+    private Plan stored;
+    private boolean loaded;
+
+    private String loader;
+    private String mainClass;
+    private List<String> classpath;
+    private List<String> inputs;
+    private String fingerprint;
+
+    public LaunchPlan(Path planFile) {
+        this.planFile = planFile;
+    }
+
+    /**
+     * Finds the stored resolution of a loader
+     *
+     * @param loader loader name and version
+     * @return the stored plan if it was resolved for this loader and none of its inputs or classpath entries changed, otherwise {@code null}
+     */
+    public synchronized Plan findLoader(String loader) {
+        Plan plan = this.getStored();
+
+        if (plan == null || !loader.equals(plan.loader()) || plan.classpath() == null || plan.inputs() == null) {
+            return null;
+        }
+
+        try {
+            if (!LaunchPlan.computeFingerprint(loader, plan.inputs(), plan.classpath()).equals(plan.fingerprint())) {
+                Log.info("Launch plan is outdated, resolving " + loader + " again");
+
+                return null;
+            }
+        } catch (IOException e) {
+            Log.warn("Could not check the launch plan: " + e.getMessage());
+
+            return null;
+        }
+
+        this.setResolved(loader, plan.mainClass(), plan.classpath(), plan.inputs(), plan.fingerprint());
+
+        return plan;
+    }
+
+    /**
+     * Stores a freshly resolved loader, it is saved with the rest of the plan on launch
+     *
+     * @param loader    loader name and version
+     * @param mainClass main class of the loader
+     * @param classpath resolved classpath, without the client
+     * @param inputs    files and directories the classpath was resolved from
+     */
+    public synchronized void setLoader(String loader, String mainClass, List<String> classpath, List<Path> inputs) throws IOException {
+        List<String> inputPaths = inputs.stream().map(Path::toString).toList();
+        String fingerprint = LaunchPlan.computeFingerprint(loader, inputPaths, classpath);
+
+        this.setResolved(loader, mainClass, classpath, inputPaths, fingerprint);
+    }
+
+    private void setResolved(String loader, String mainClass, List<String> classpath, List<String> inputs, String fingerprint) {
+        this.loader = loader;
+        this.mainClass = mainClass;
+        this.classpath = List.copyOf(classpath);
+        this.inputs = List.copyOf(inputs);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Saves the plan and moves the arguments of a built command to the argument file, if one is set
+     *
+     * @param command the full command, starting with the java executable
+     * @return the command to run
+     */
+    public synchronized List<String> apply(List<String> command) throws IOException {
+        List<String> arguments = List.copyOf(command.subList(1, command.size()));
+
+        Plan previous = this.getStored();
+        Plan plan = new Plan(this.fingerprint, this.loader, this.mainClass, this.classpath, this.inputs, arguments);
+
+        if (!plan.equals(previous)) {
+            FileUtils.writeUtf8(this.planFile, Json.write(plan));
+            this.stored = plan;
+        }
+
+        if (this.argumentFile == null) {
+            return command;
+        }
+
+        // The java launcher reads argument files in the platform encoding
+        if (arguments.stream().anyMatch(LaunchPlan::isNotAscii)) {
+            Log.info("Launch arguments contain non-ASCII characters, passing them on the command line");
+
+            return command;
+        }
+
+        if (previous == null || !arguments.equals(previous.arguments()) || !Files.exists(this.argumentFile)) {
+            StringBuilder builder = new StringBuilder();
+
+            for (String argument : arguments) {
+                builder.append(LaunchPlan.quote(argument)).append('\n');
+            }
+
+            Files.writeString(this.argumentFile, builder.toString(), StandardCharsets.US_ASCII);
+        }
+
+        return List.of(command.get(0), "@" + this.argumentFile.toAbsolutePath());
+    }
+
+    private Plan getStored() {
+        if (this.loaded) {
+            return this.stored;
+        }
+
+        this.loaded = true;
+
+        if (!Files.exists(this.planFile)) {
+            return null;
+        }
+
+        try {
+            this.stored = Json.parse(FileUtils.readUtf8(this.planFile), Plan.class);
+        } catch (Exception e) {
+            Log.warn("Could not read launch plan " + this.planFile + ": " + e.getMessage());
+        }
+
+        return this.stored;
+    }
+
+    private static String computeFingerprint(String loader, List<String> inputs, List<String> classpath) throws IOException {
+        MessageDigest md = HashUtils.newDigest("SHA-256");
+
+        LaunchPlan.update(md, BuildConfig.APP_VERSION);
+        LaunchPlan.update(md, loader);
+
+        List<String> files = new ArrayList<>(inputs);
+        files.addAll(classpath);
+
+        for (String file : files) {
+            Path path = Path.of(file);
+
+            if (!Files.exists(path)) {
+                LaunchPlan.update(md, file + "|missing");
+
+                continue;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            LaunchPlan.update(md, file + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis());
+        }
+
+        return HashUtils.toHex(md.digest());
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static boolean isNotAscii(String s) {
+        return s.chars().anyMatch(c -> c > 127);
+    }
+
+    /**
+     * Quotes an argument the way the java launcher unquotes argument files, backslash being the escape character
+     */
+    private static String quote(String argument) {
+        StringBuilder builder = new StringBuilder("\"");
+
+        for (char c : argument.toCharArray()) {
+            switch (c) {
+                case '\\' -> builder.append("\\\\");
+                case '"' -> builder.append("\\\"");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> builder.append(c);
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Passes the JVM arguments in this file instead of on the command line, needs Java 9 or newer
+     */
+    public synchronized void setArgumentFile(Path argumentFile) {
+        this.argumentFile = argumentFile;
+    }
+
+    public Path getPlanFile() {
+        return this.planFile;
+    }
+
+    /**
+     * @param fingerprint hash of the launcher version, the loader and the state of every input and classpath entry
+     * @param loader      loader name and version, {@code null} for vanilla
+     * @param mainClass   main class of the loader
+     * @param classpath   loader classpath, without the client
+     * @param inputs      files and directories the classpath was resolved from
+     * @param arguments   JVM arguments of the last launch, without the java executable
+     */
+    public record Plan(String fingerprint, String loader, String mainClass, List<String> classpath,
+                       List<String> inputs, List<String> arguments) {
+
+    }
+}
@@ -18,7 +18,11 @@
 
 package me.theentropyshard.crlauncher.cosmic.launcher;
 
+import me.theentropyshard.crlauncher.logging.Log;
+
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 public class ModdedPatchCosmicLauncher extends PatchCosmicLauncher {
     private final Path modsDir;
@@ -29,6 +33,39 @@ public class ModdedPatchCosmicLauncher extends PatchCosmicLauncher {
         this.modsDir = modsDir;
     }
 
+    /**
+     * @param loader loader name and version
+     * @return the loader resolved by an earlier launch, or {@code null} if it has to be resolved again
+     */
+    protected LaunchPlan.Plan findLoaderPlan(String loader) {
+        LaunchPlan plan = this.getLaunchPlan();
+
+        if (plan == null) {
+            return null;
+        }
+
+        LaunchPlan.Plan loaderPlan = plan.findLoader(loader);
+
+        if (loaderPlan != null) {
+            Log.info("Using " + loader + " from the launch plan");
+        }
+
+        return loaderPlan;
+    }
+
+    /**
+     * Remembers a resolved loader for the next launches
+     *
+     * @see LaunchPlan#setLoader(String, String, List, List)
+     */
+    protected void saveLoaderPlan(String loader, String mainClass, List<String> classpath, List<Path> inputs) throws IOException {
+        LaunchPlan plan = this.getLaunchPlan();
+
+        if (plan != null) {
+            plan.setLoader(loader, mainClass, classpath, inputs);
+        }
+    }
+
     public Path getModsDir() {
         return this.modsDir;
     }
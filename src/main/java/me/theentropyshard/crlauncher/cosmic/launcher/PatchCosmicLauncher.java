@@ -20,17 +20,18 @@ package me.theentropyshard.crlauncher.cosmic.launcher;
 
 import me.theentropyshard.crlauncher.Args;
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven.MavenArtifact;
 import me.theentropyshard.crlauncher.github.GithubApi;
 import me.theentropyshard.crlauncher.github.GithubRelease;
-import me.theentropyshard.crlauncher.gui.dialogs.ProgressDialog;
-import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.*;
 
-import javax.swing.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 public class PatchCosmicLauncher extends AbstractCosmicLauncher {
@@ -47,6 +48,7 @@ public class PatchCosmicLauncher extends AbstractCosmicLauncher {
     private boolean maximized;
     private int windowWidth;
     private int windowHeight;
+    private Path loaderPath;
 
     public PatchCosmicLauncher(String javaPath, Path runDir, Path gameFilesLocation, Path clientPath) {
         super(javaPath, runDir, gameFilesLocation, clientPath);
@@ -54,8 +56,20 @@ public class PatchCosmicLauncher extends AbstractCosmicLauncher {
         this.setChangeSaveLocation(true);
     }
 
-    private void downloadLoader(Path path) throws IOException {
-        if (Files.exists(path) && HashUtils.sha256(path).equals(PatchCosmicLauncher.CR_LOADER_SHA256)) {
+    private void downloadLoader(Path path, ProgressListener listener) throws IOException {
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
+
+        if (verificationIndex.matches(path, PatchCosmicLauncher.CR_LOADER_SHA256)) {
+            return;
+        }
+
+        // Kept directly in the libraries directory before it had Maven layout
+        Path legacyPath = CRLauncher.getInstance().getLibrariesDir().resolve(PatchCosmicLauncher.CR_LOADER_JAR);
+        if (verificationIndex.matches(legacyPath, PatchCosmicLauncher.CR_LOADER_SHA256)) {
+            FileUtils.createDirectoryIfNotExists(path.getParent());
+            Files.move(legacyPath, path, StandardCopyOption.REPLACE_EXISTING);
+            verificationIndex.record(path, PatchCosmicLauncher.CR_LOADER_SHA256);
+
             return;
         }
 
@@ -69,36 +83,34 @@ public class PatchCosmicLauncher extends AbstractCosmicLauncher {
             throw new IOException("Could not find release v" + loaderVersion);
         }
 
-        ProgressDialog dialog = new ProgressDialog("Downloading CRLoader");
-        dialog.setStage("Downloading " + PatchCosmicLauncher.CR_LOADER_JAR);
-        SwingUtilities.invokeLater(() -> dialog.setVisible(true));
-
         GithubRelease.Asset asset = ListUtils.search(releaseResponse.assets, a -> a.name.equals(PatchCosmicLauncher.CR_LOADER_JAR));
-        downloader.downloadRelease(path, releaseResponse, releaseResponse.assets.indexOf(asset), dialog);
+        downloader.downloadRelease(path, releaseResponse, releaseResponse.assets.indexOf(asset), listener);
+    }
+
+    /**
+     * @return where CRLoader is kept in the library repository, under the coordinates jitpack would give it
+     */
+    public static Path getCRLoaderPath() {
+        MavenArtifact artifact = new MavenArtifact("com.github.CRLauncher", "CRLoader", PatchCosmicLauncher.CR_LOADER_VERSION.toVersionString());
 
-        SwingUtilities.invokeLater(() -> dialog.getDialog().dispose());
+        return CRLauncher.getInstance().getLibraryRepository().getPath(artifact);
     }
 
-    private Path setupLoader() {
+    @Override
+    public void prepareAgent(ProgressListener listener) throws IOException {
         CRLauncher launcher = CRLauncher.getInstance();
         Args args = launcher.getArgs();
 
-        Path loaderPath;
-
         String customCRLoaderPath = args.getCustomCRLoaderPath();
         if (customCRLoaderPath != null) {
-            loaderPath = Paths.get(customCRLoaderPath).normalize().toAbsolutePath();
+            this.loaderPath = Paths.get(customCRLoaderPath).normalize().toAbsolutePath();
         } else {
-            loaderPath = launcher.getLibrariesDir().resolve(PatchCosmicLauncher.CR_LOADER_JAR);
+            Path loaderPath = PatchCosmicLauncher.getCRLoaderPath();
 
-            try {
-                this.downloadLoader(loaderPath);
-            } catch (IOException e) {
-                Log.error("Could not download " + PatchCosmicLauncher.CR_LOADER_JAR, e);
-            }
-        }
+            this.downloadLoader(loaderPath, listener);
 
-        return loaderPath;
+            this.loaderPath = loaderPath;
+        }
     }
 
     @Override
@@ -138,9 +150,13 @@ public class PatchCosmicLauncher extends AbstractCosmicLauncher {
             this.defineProperty(new SystemProperty("crloader.windowHeight", this.windowHeight));
         }
 
+        if (this.loaderPath == null) {
+            throw new IllegalStateException("prepareAgent must be called before building the command");
+        }
+
         super.buildCommand(command);
 
-        command.add("-javaagent:" + this.setupLoader());
+        command.add("-javaagent:" + this.loaderPath);
     }
 
     public boolean isChangeSaveLocation() {
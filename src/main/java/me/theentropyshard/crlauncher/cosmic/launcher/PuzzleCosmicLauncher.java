@@ -19,13 +19,12 @@
 package me.theentropyshard.crlauncher.cosmic.launcher;
 
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchTimer;
 import me.theentropyshard.crlauncher.cosmic.mods.puzzle.PuzzleManager;
 import me.theentropyshard.crlauncher.cosmic.mods.puzzle.PuzzleProperties;
-import me.theentropyshard.crlauncher.gui.dialogs.ProgressDialog;
-import me.theentropyshard.crlauncher.gui.utils.MessageBox;
-import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
 
-import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -34,6 +33,9 @@ import java.util.List;
 public class PuzzleCosmicLauncher extends ModdedPatchCosmicLauncher {
     private final String version;
 
+    private String mainClass;
+    private List<String> loaderClasspath;
+
     public PuzzleCosmicLauncher(String javaPath, Path runDir, Path gameFilesLocation, Path clientPath, Path modsDir, String version) {
         super(javaPath, runDir, gameFilesLocation, clientPath, modsDir);
 
@@ -41,44 +43,47 @@ public class PuzzleCosmicLauncher extends ModdedPatchCosmicLauncher {
     }
 
     @Override
-    public void buildCommand(List<String> command) {
-        super.buildCommand(command);
-
-        PuzzleManager puzzleManager = CRLauncher.getInstance().getPuzzleManager();
+    public void prepareLoader(ProgressListener listener) throws IOException {
+        String loader = "puzzle " + this.version;
 
-        try {
-            ProgressDialog dialog = new ProgressDialog("Downloading Puzzle");
-            dialog.setStage("Downloading Puzzle " + this.version);
-
-            SwingUtilities.invokeLater(() -> dialog.setVisible(true));
-            puzzleManager.downloadPuzzle(this.version, dialog);
-            SwingUtilities.invokeLater(() -> dialog.getDialog().dispose());
-        } catch (IOException e) {
-            Log.error("Could not download Puzzle " + this.version, e);
+        LaunchPlan.Plan plan = this.findLoaderPlan(loader);
 
-            MessageBox.showErrorMessage(
-                CRLauncher.frame, "Could not download Puzzle " + this.version + ": " + e.getMessage()
-            );
+        if (plan != null) {
+            this.mainClass = plan.mainClass();
+            this.loaderClasspath = plan.classpath();
 
             return;
         }
 
-        String classpath;
+        PuzzleManager puzzleManager = CRLauncher.getInstance().getPuzzleManager();
+
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        libraries.beginInstall();
+
         try {
-            classpath = puzzleManager.getClasspath(this.version);
-        } catch (IOException e) {
-            Log.error("Could not make classpath for Puzzle " + this.version, e);
+            this.getLaunchTimer().time(LaunchTimer.LOADER, () -> puzzleManager.downloadPuzzle(this.version, listener));
+            this.loaderClasspath = this.getLaunchTimer().time(LaunchTimer.CLASSPATH, () -> puzzleManager.getClasspath(this.version));
+        } finally {
+            libraries.endInstall();
+        }
 
-            MessageBox.showErrorMessage(
-                CRLauncher.frame, "Could not get classpath for Puzzle " + this.version + ": " + e.getMessage()
-            );
+        this.mainClass = PuzzleManager.getMainClass(this.version);
 
-            return;
+        this.saveLoaderPlan(loader, this.mainClass, this.loaderClasspath, List.of(puzzleManager.getLockFile(this.version)));
+    }
+
+    @Override
+    public void buildCommand(List<String> command) {
+        if (this.loaderClasspath == null) {
+            throw new IllegalStateException("prepareLoader must be called before building the command");
         }
 
+        super.buildCommand(command);
+
         command.add("-classpath");
-        command.add(classpath + File.pathSeparator + this.getClientPath());
+        command.add(String.join(File.pathSeparator, this.loaderClasspath) + File.pathSeparator + this.getClientPath());
 
-        command.add(PuzzleManager.getMainClass(this.version));
+        command.add(this.mainClass);
     }
 }
@@ -19,14 +19,14 @@
 package me.theentropyshard.crlauncher.cosmic.launcher;
 
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchTimer;
 import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.CosmicQuiltProperties;
-import me.theentropyshard.crlauncher.gui.dialogs.ProgressDialog;
-import me.theentropyshard.crlauncher.gui.utils.MessageBox;
-import me.theentropyshard.crlauncher.logging.Log;
 import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.QuiltManager;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
 import me.theentropyshard.crlauncher.utils.SemanticVersion;
 
-import javax.swing.*;
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
@@ -34,6 +34,9 @@ import java.util.List;
 public class QuiltCosmicLauncher extends ModdedPatchCosmicLauncher {
     private final String version;
 
+    private String mainClass;
+    private List<String> loaderClasspath;
+
     public QuiltCosmicLauncher(String javaPath, Path runDir, Path gameFilesLocation, Path clientPath, Path modsDir, String version) {
         super(javaPath, runDir, gameFilesLocation, clientPath, modsDir);
 
@@ -41,53 +44,58 @@ public class QuiltCosmicLauncher extends ModdedPatchCosmicLauncher {
     }
 
     @Override
-    public void buildCommand(List<String> command) {
-        this.defineProperty(CosmicQuiltProperties.LAUNCH_DIR.copy(this.getGameFilesLocation()));
-        this.defineProperty(CosmicQuiltProperties.GAME_JAR_PATH.copy(this.getClientPath()));
-        this.defineProperty(CosmicQuiltProperties.MODS_FOLDER.copy(this.getModsDir()));
-
-        super.buildCommand(command);
-
-        QuiltManager quiltManager = CRLauncher.getInstance().getQuiltManager();
-
-        try {
-            ProgressDialog dialog = new ProgressDialog("Downloading Cosmic Quilt");
-            dialog.setStage("Downloading Cosmic Quilt " + this.version);
+    public void prepareLoader(ProgressListener listener) throws IOException {
+        String loader = "quilt " + this.version;
 
-            SwingUtilities.invokeLater(() -> dialog.setVisible(true));
-            quiltManager.downloadCosmicQuilt(this.version, dialog);
-            SwingUtilities.invokeLater(() -> dialog.getDialog().dispose());
-        } catch (IOException e) {
-            Log.error("Could not download Cosmic Quilt " + this.version, e);
+        LaunchPlan.Plan plan = this.findLoaderPlan(loader);
 
-            MessageBox.showErrorMessage(
-                CRLauncher.frame, "Could not download Cosmic Quilt " + this.version + ": " + e.getMessage()
-            );
+        if (plan != null) {
+            this.mainClass = plan.mainClass();
+            this.loaderClasspath = plan.classpath();
 
             return;
         }
 
-        command.add("-classpath");
-        try {
-            command.add(quiltManager.getClasspathFor(this.version));
-        } catch (IOException e) {
-            Log.error("Could not get classpath for " + this.version, e);
+        QuiltManager quiltManager = CRLauncher.getInstance().getQuiltManager();
 
-            MessageBox.showErrorMessage(
-                CRLauncher.frame, "Could not get classpath for " + this.version + ": " + e.getMessage()
-            );
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
 
-            return;
+        libraries.beginInstall();
+
+        try {
+            this.getLaunchTimer().time(LaunchTimer.LOADER, () -> quiltManager.downloadCosmicQuilt(this.version, listener));
+            this.loaderClasspath = this.getLaunchTimer().time(LaunchTimer.CLASSPATH, () -> quiltManager.getClasspathFor(this.version));
+        } finally {
+            libraries.endInstall();
         }
 
         SemanticVersion quiltVersion = SemanticVersion.parse(this.version);
         SemanticVersion newMainClass = new SemanticVersion(2, 2, 0);
 
         if (quiltVersion.equals(newMainClass) || quiltVersion.isHigherThan(newMainClass)) {
-            command.add(CosmicQuiltProperties.MAIN_CLASS);
+            this.mainClass = CosmicQuiltProperties.MAIN_CLASS;
         } else {
-            command.add(CosmicQuiltProperties.LEGACY_MAIN_CLASS);
+            this.mainClass = CosmicQuiltProperties.LEGACY_MAIN_CLASS;
+        }
+
+        this.saveLoaderPlan(loader, this.mainClass, this.loaderClasspath, List.of(quiltManager.getDepsFile(this.version), quiltManager.getLockFile(this.version)));
+    }
+
+    @Override
+    public void buildCommand(List<String> command) {
+        if (this.loaderClasspath == null) {
+            throw new IllegalStateException("prepareLoader must be called before building the command");
         }
+
+        this.defineProperty(CosmicQuiltProperties.LAUNCH_DIR.copy(this.getGameFilesLocation()));
+        this.defineProperty(CosmicQuiltProperties.GAME_JAR_PATH.copy(this.getClientPath()));
+        this.defineProperty(CosmicQuiltProperties.MODS_FOLDER.copy(this.getModsDir()));
+
+        super.buildCommand(command);
+
+        command.add("-classpath");
+        command.add(String.join(File.pathSeparator, this.loaderClasspath));
+        command.add(this.mainClass);
     }
 
     @Override
@@ -0,0 +1,196 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic.mods;
+
+import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.download.DownloadList;
+import me.theentropyshard.crlauncher.network.download.HttpDownload;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lockfile of a loader version, every file it needs with its URL, size and SHA-256. It is written once after
+ * the loader has been resolved and downloaded, later installs only fetch missing or damaged files from the
+ * recorded URLs, without looking anything up, and need no network at all when every file is present.
+ *
+ * @param artifacts the files, in classpath order
+ */
+public record LoaderLock(List<Artifact> artifacts) {
+    // Kept in the directory of the loader version
+    public static final String FILE_NAME = "lock.json";
+
+    /**
+     * @return the lockfile, or {@code null} if there is none or it can't be read
+     */
+    public static LoaderLock load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            LoaderLock lock = Json.parse(FileUtils.readUtf8(file), LoaderLock.class);
+
+            if (lock != null && lock.artifacts() != null) {
+                return lock;
+            }
+        } catch (Exception e) {
+            Log.warn("Could not read lockfile " + file + ": " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Locks the files of finished downloads, hashes come from the verification index
+     *
+     * @param baseDir   directory the paths in the lockfile are relative to
+     * @param downloads downloads in classpath order
+     * @throws IOException if a file was not downloaded
+     */
+    public static LoaderLock create(Path baseDir, List<HttpDownload> downloads) throws IOException {
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
+
+        List<Artifact> artifacts = new ArrayList<>();
+
+        for (HttpDownload download : downloads) {
+            Path file = download.getSaveAs();
+
+            if (!Files.exists(file)) {
+                throw new IOException("Could not download " + download.getUrl());
+            }
+
+            String path = CRLauncher.getInstance().getLibraryRepository().relativize(file);
+
+            if (path == null) {
+                path = baseDir.relativize(file).toString().replace('\\', '/');
+            }
+
+            artifacts.add(new Artifact(path, download.getUrl(), Files.size(file), verificationIndex.sha256(file)));
+        }
+
+        return new LoaderLock(artifacts);
+    }
+
+    public void save(Path file) throws IOException {
+        boolean pretty = CRLauncher.getInstance().getSettings().writePrettyJson;
+        FileUtils.writeUtf8(file, pretty ? Json.writePretty(this) : Json.write(this));
+    }
+
+    /**
+     * Downloads the files that are missing or do not match the lockfile, in parallel
+     *
+     * @param baseDir directory the paths in the lockfile are relative to
+     * @throws IOException if a file could not be downloaded or verified
+     */
+    public void install(Path baseDir, ProgressListener listener) throws IOException {
+        List<Artifact> missing = this.findMissing(baseDir);
+
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Log.info("Downloading " + missing.size() + " locked loader files");
+
+        DownloadList downloadList = new DownloadList((totalSize, downloadedBytes) -> {
+            listener.update(totalSize, downloadedBytes, 0, false);
+        });
+
+        for (Artifact artifact : missing) {
+            downloadList.add(new HttpDownload.Builder()
+                .url(artifact.url())
+                .saveAs(LoaderLock.resolve(baseDir, artifact.path()))
+                .expectedSize(artifact.size())
+                .sha256(artifact.sha256())
+                .deduplicate()
+                .build());
+        }
+
+        downloadList.downloadAll();
+
+        missing = this.findMissing(baseDir);
+
+        if (!missing.isEmpty()) {
+            throw new IOException("Could not download " + missing.size() + " loader files, first is " + missing.get(0).url());
+        }
+    }
+
+    private List<Artifact> findMissing(Path baseDir) throws IOException {
+        VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
+
+        List<Artifact> missing = new ArrayList<>();
+
+        for (Artifact artifact : this.artifacts) {
+            Path file = LoaderLock.resolve(baseDir, artifact.path());
+
+            if (!Files.exists(file) || Files.size(file) != artifact.size() || !verificationIndex.matches(file, artifact.sha256())) {
+                missing.add(artifact);
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * @return absolute paths of the files, in classpath order
+     */
+    public List<String> getPaths(Path baseDir) {
+        return this.artifacts.stream().map(artifact -> LoaderLock.resolve(baseDir, artifact.path()).toString()).toList();
+    }
+
+    /**
+     * @return paths of the files that are in the shared library repository
+     */
+    public List<Path> getLibraries() {
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        return this.artifacts.stream()
+            .filter(artifact -> artifact.path().startsWith(LibraryRepository.PATH_PREFIX))
+            .map(artifact -> libraries.resolve(artifact.path()))
+            .toList();
+    }
+
+    public static Path resolve(Path baseDir, String path) {
+        if (path.startsWith(LibraryRepository.PATH_PREFIX)) {
+            return CRLauncher.getInstance().getLibraryRepository().resolve(path);
+        }
+
+        return baseDir.resolve(path);
+    }
+
+    /**
+     * @param path   path relative to the loader directory, or to the library repository if it starts with
+     *               {@link LibraryRepository#PATH_PREFIX}, with forward slashes
+     * @param url    where the file was downloaded from
+     * @param size   size in bytes
+     * @param sha256 SHA-256 of the file
+     */
+    public record Artifact(String path, String url, long size, String sha256) {
+
+    }
+}
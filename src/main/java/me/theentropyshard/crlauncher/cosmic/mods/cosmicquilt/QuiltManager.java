@@ -20,6 +20,7 @@ package me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt;
 
 import com.google.gson.reflect.TypeToken;
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.mods.LoaderLock;
 import me.theentropyshard.crlauncher.network.download.DownloadList;
 import me.theentropyshard.crlauncher.network.download.HttpDownload;
 import me.theentropyshard.crlauncher.network.progress.ProgressListener;
@@ -28,29 +29,39 @@ import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven.MavenDownload
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.json.Json;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class QuiltManager {
     private static final String COSMIC_QUILT_FILE_NAME = "cosmic-quilt-%s.jar";
     private static final String DEPS_FILE = "deps.json";
 
+    private final Path workDir;
     private final Path versionsDir;
     private final Path depsDir;
+    private final Path pomsDir;
 
     public QuiltManager(Path workDir) {
+        this.workDir = workDir;
         this.versionsDir = workDir.resolve("versions");
         this.depsDir = workDir.resolve("deps");
+        this.pomsDir = workDir.resolve("poms");
     }
 
     public void downloadCosmicQuilt(String version, ProgressListener listener) throws IOException {
         FileUtils.createDirectoryIfNotExists(this.versionsDir);
-        FileUtils.createDirectoryIfNotExists(this.depsDir);
 
+        LoaderLock lock = LoaderLock.load(this.getLockFile(version));
+
+        if (lock != null) {
+            lock.install(this.workDir, listener);
+
+            return;
+        }
+
+        // Installed before lockfiles, the repositories of the dependencies are unknown until resolved again
         if (this.checkIfInstalled(version)) {
             return;
         }
@@ -66,14 +77,17 @@ public class QuiltManager {
 
         String cosmicQuiltJar = QuiltManager.COSMIC_QUILT_FILE_NAME.formatted(version);
 
-        List<MavenArtifact> deps = MavenDownloader.downloadRelease(version, this.depsDir, versionDir.resolve(cosmicQuiltJar), downloads);
+        List<MavenArtifact> deps = MavenDownloader.downloadRelease(version, CRLauncher.getInstance().getLibraryRepository(), this.pomsDir, versionDir.resolve(cosmicQuiltJar), downloads);
         deps.removeIf(mavenArtifact -> mavenArtifact.artifactId().equals("quilt-loader-dependencies"));
+        downloads.removeIf(download -> download.getSaveAs().getFileName().toString().startsWith("quilt-loader-dependencies-"));
 
         downloadList.addAll(downloads);
         downloadList.downloadAll();
 
         boolean pretty = CRLauncher.getInstance().getSettings().writePrettyJson;
         FileUtils.writeUtf8(versionDir.resolve(QuiltManager.DEPS_FILE), pretty ? Json.writePretty(deps) : Json.write(deps));
+
+        LoaderLock.create(this.workDir, downloads).save(this.getLockFile(version));
     }
 
     private boolean checkIfInstalled(String version) throws IOException {
@@ -108,7 +122,42 @@ public class QuiltManager {
         return true;
     }
 
-    public String getClasspathFor(String version) throws IOException {
+    public Path getDepsFile(String version) {
+        return this.versionsDir.resolve(version).resolve(QuiltManager.DEPS_FILE);
+    }
+
+    /**
+     * @return libraries used by the installed versions
+     */
+    public Set<Path> getReferencedLibraries() throws IOException {
+        Set<Path> libraries = new HashSet<>();
+
+        if (!Files.isDirectory(this.versionsDir)) {
+            return libraries;
+        }
+
+        for (Path versionDir : FileUtils.list(this.versionsDir, Files::isDirectory)) {
+            LoaderLock lock = LoaderLock.load(versionDir.resolve(LoaderLock.FILE_NAME));
+
+            if (lock != null) {
+                libraries.addAll(lock.getLibraries());
+            }
+        }
+
+        return libraries;
+    }
+
+    public Path getLockFile(String version) {
+        return this.versionsDir.resolve(version).resolve(LoaderLock.FILE_NAME);
+    }
+
+    public List<String> getClasspathFor(String version) throws IOException {
+        LoaderLock lock = LoaderLock.load(this.getLockFile(version));
+
+        if (lock != null) {
+            return lock.getPaths(this.workDir);
+        }
+
         List<String> classpath = new ArrayList<>();
 
         Path versionDir = this.versionsDir.resolve(version);
@@ -121,6 +170,6 @@ public class QuiltManager {
             classpath.add(depFile.toString());
         }
 
-        return String.join(File.pathSeparator, classpath);
+        return classpath;
     }
 }
@@ -0,0 +1,134 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a POM needed to resolve dependencies
+ *
+ * @param parent       the parent artifact, or {@code null}
+ * @param dependencies every {@code <dependency>} in the document, including dependency management
+ */
+public record MavenPom(MavenArtifact parent, List<Dependency> dependencies) {
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory;
+    });
+
+    public static MavenPom parse(String pom) throws IOException {
+        try {
+            XMLStreamReader reader = MavenPom.FACTORY.get().createXMLStreamReader(new StringReader(pom));
+
+            try {
+                return MavenPom.parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse POM", e);
+        }
+    }
+
+    private static MavenPom parse(XMLStreamReader reader) throws XMLStreamException {
+        MavenArtifact parent = null;
+        boolean parentSeen = false;
+        List<Dependency> dependencies = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            switch (reader.getLocalName()) {
+                case "parent" -> {
+                    // Only the first one counts, like the project's own <parent>
+                    String[] fields = MavenPom.readFields(reader, "groupId", "artifactId", "version");
+
+                    if (!parentSeen && fields[0] != null && fields[1] != null && fields[2] != null) {
+                        parent = new MavenArtifact(fields[0], fields[1], fields[2]);
+                    }
+
+                    parentSeen = true;
+                }
+                case "dependency" -> {
+                    String[] fields = MavenPom.readFields(reader, "groupId", "artifactId", "version", "scope", "optional");
+
+                    if (fields[0] != null && fields[1] != null) {
+                        dependencies.add(new Dependency(fields[0], fields[1], fields[2], fields[3], "true".equalsIgnoreCase(fields[4])));
+                    }
+                }
+            }
+        }
+
+        return new MavenPom(parent, dependencies);
+    }
+
+    /**
+     * Reads the text of the named direct children of the current element and leaves the reader at its end
+     */
+    private static String[] readFields(XMLStreamReader reader, String... names) throws XMLStreamException {
+        String[] values = new String[names.length];
+        int depth = 1;
+
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                int index = depth == 1 ? List.of(names).indexOf(reader.getLocalName()) : -1;
+
+                if (index == -1) {
+                    depth++;
+                } else {
+                    // Reads up to and including the end of the field
+                    String text = reader.getElementText().trim();
+
+                    if (values[index] == null) {
+                        values[index] = text;
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * @param groupId    group id
+     * @param artifactId artifact id
+     * @param version    version as written, may be a property or {@code null}
+     * @param scope      scope, or {@code null}
+     * @param optional   whether the dependency is optional
+     */
+    public record Dependency(String groupId, String artifactId, String version, String scope, boolean optional) {
+
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven;
+
+import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.HttpRequest;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Resolves the dependency graph of a POM. Every level of the graph is fetched in parallel, the POMs are
+ * memoized in memory and stored in a cache directory together with the repository that served them, so the
+ * jars can be downloaded from there without asking every repository again. Repositories that served a group
+ * are tried first for the rest of that group.
+ * <p>
+ * When an artifact is found in several versions, the highest one is kept. Candidates of a level are
+ * considered in document order, so the result does not depend on which download finishes first.
+ */
+public class MavenResolver {
+    private static final int MAX_DEPTH = 9;
+    private static final int THREADS = 8;
+    private static final String REPOSITORY_SUFFIX = ".repository";
+
+    private final List<String> repositories;
+    private final Path cacheDir;
+    private final Map<String, CompletableFuture<FetchedPom>> poms;
+    private final Map<String, String> groupRepositories;
+
+    /**
+     * @param repositories base URLs of the repositories, ending with a slash, in order of preference
+     * @param cacheDir     where fetched POMs are kept, in Maven layout
+     */
+    public MavenResolver(String[] repositories, Path cacheDir) {
+        this.repositories = List.of(repositories);
+        this.cacheDir = cacheDir;
+        this.poms = new ConcurrentHashMap<>();
+        this.groupRepositories = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param rootPom content of the POM to resolve
+     * @return resolved artifacts by artifact id
+     */
+    public Map<String, MavenArtifact> resolve(String rootPom) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(MavenResolver.THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Maven resolver");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        try {
+            Map<String, MavenArtifact> dependencies = new HashMap<>();
+            List<Candidate> candidates = this.collect(MavenPom.parse(rootPom), null, 0);
+
+            while (!candidates.isEmpty()) {
+                List<CompletableFuture<List<Candidate>>> level = new ArrayList<>();
+
+                for (Candidate candidate : candidates) {
+                    MavenArtifact artifact = candidate.artifact();
+                    MavenArtifact existing = dependencies.get(artifact.artifactId());
+
+                    if (existing != null && MavenDownloader.compare(existing.version(), artifact.version()) != 1) {
+                        continue;
+                    }
+
+                    dependencies.put(artifact.artifactId(), artifact);
+
+                    level.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return this.expand(candidate);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor));
+                }
+
+                candidates = new ArrayList<>();
+
+                for (CompletableFuture<List<Candidate>> future : level) {
+                    candidates.addAll(MavenResolver.join(future));
+                }
+            }
+
+            return dependencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the repository that served the POM of the artifact during resolution, or {@code null} if none had it
+     */
+    public String getRepository(MavenArtifact artifact) throws IOException {
+        FetchedPom fetched = this.fetch(artifact);
+
+        return fetched == null ? null : fetched.repository();
+    }
+
+    private List<Candidate> expand(Candidate candidate) throws IOException {
+        // Fetched even past the depth limit, the repository is needed for the download
+        FetchedPom fetched = this.fetch(candidate.artifact());
+
+        if (fetched == null) {
+            return List.of();
+        }
+
+        return this.collect(fetched.pom(), null, candidate.depth() + 1);
+    }
+
+    /**
+     * @param search only dependencies with this artifact id, used when looking up a version in the parent
+     */
+    private List<Candidate> collect(MavenPom pom, String search, int depth) throws IOException {
+        if (depth > MavenResolver.MAX_DEPTH) {
+            return List.of();
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+
+        for (MavenPom.Dependency dependency : pom.dependencies()) {
+            String artifactId = dependency.artifactId();
+
+            if ((search != null && !artifactId.equalsIgnoreCase(search)) || dependency.optional()) {
+                continue;
+            }
+
+            if (dependency.version() == null) {
+                if (pom.parent() == null) {
+                    continue;
+                }
+
+                FetchedPom parent = this.fetch(pom.parent());
+
+                if (parent != null) {
+                    candidates.addAll(this.collect(parent.pom(), artifactId, depth + 1));
+                }
+
+                continue;
+            }
+
+            String version = dependency.version();
+
+            if (version.equals("${project.version}") && pom.parent() != null) {
+                version = pom.parent().version();
+            }
+
+            if (version.matches("\\$\\{.*}")) {
+                continue;
+            }
+
+            boolean test = "test".equalsIgnoreCase(dependency.scope()) && !artifactId.equals("slf4j-api");
+
+            if (test || artifactId.equalsIgnoreCase("cosmicreach")) {
+                continue;
+            }
+
+            candidates.add(new Candidate(new MavenArtifact(dependency.groupId(), artifactId, version), depth));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Fetches a POM once, concurrent callers for the same artifact wait for the first one
+     *
+     * @return the POM and its repository, or {@code null} if no repository has it
+     */
+    private FetchedPom fetch(MavenArtifact artifact) throws IOException {
+        String key = artifact.groupId() + ":" + artifact.artifactId() + ":" + artifact.version();
+
+        CompletableFuture<FetchedPom> future = new CompletableFuture<>();
+        CompletableFuture<FetchedPom> existing = this.poms.putIfAbsent(key, future);
+
+        if (existing != null) {
+            return MavenResolver.join(existing);
+        }
+
+        try {
+            FetchedPom fetched = this.load(artifact);
+            future.complete(fetched);
+
+            return fetched;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+
+            throw e;
+        }
+    }
+
+    private FetchedPom load(MavenArtifact artifact) throws IOException {
+        String path = MavenResolver.getDirectory(artifact) + artifact.pom();
+
+        Path pomFile = this.cacheDir.resolve(path);
+        Path repositoryFile = this.cacheDir.resolve(path + MavenResolver.REPOSITORY_SUFFIX);
+
+        if (Files.exists(pomFile) && Files.exists(repositoryFile)) {
+            String repository = FileUtils.readUtf8(repositoryFile).trim();
+            this.groupRepositories.putIfAbsent(artifact.groupId(), repository);
+
+            return new FetchedPom(repository, MavenPom.parse(FileUtils.readUtf8(pomFile)));
+        }
+
+        for (String repository : this.getRepositories(artifact.groupId())) {
+            String content;
+
+            try (HttpRequest request = new HttpRequest(CRLauncher.getInstance().getHttpClient())) {
+                content = request.asString(repository + path);
+
+                if (request.code() / 100 != 2) {
+                    continue;
+                }
+            }
+
+            MavenPom pom = MavenPom.parse(content);
+
+            this.groupRepositories.putIfAbsent(artifact.groupId(), repository);
+
+            // Released POMs never change, so they can be kept forever
+            FileUtils.createDirectoryIfNotExists(pomFile.getParent());
+            MavenResolver.writeAtomically(pomFile, content);
+            MavenResolver.writeAtomically(repositoryFile, repository);
+
+            return new FetchedPom(repository, pom);
+        }
+
+        Log.warn("Could not find " + artifact.pom() + " in any repository");
+
+        return null;
+    }
+
+    private List<String> getRepositories(String groupId) {
+        String preferred = this.groupRepositories.get(groupId);
+
+        if (preferred == null) {
+            return this.repositories;
+        }
+
+        List<String> repositories = new ArrayList<>(this.repositories);
+        repositories.remove(preferred);
+        repositories.add(0, preferred);
+
+        return repositories;
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileUtils.writeUtf8(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String getDirectory(MavenArtifact artifact) {
+        return artifact.groupId().replace('.', '/') + "/" + artifact.artifactId() + "/" + artifact.version() + "/";
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+
+            throw e;
+        }
+    }
+
+    private record Candidate(MavenArtifact artifact, int depth) {
+
+    }
+
+    private record FetchedPom(String repository, MavenPom pom) {
+
+    }
+}
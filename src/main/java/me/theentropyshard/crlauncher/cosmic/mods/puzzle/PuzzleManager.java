@@ -19,22 +19,22 @@
 package me.theentropyshard.crlauncher.cosmic.mods.puzzle;
 
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.mods.LoaderLock;
 import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven.MavenArtifact;
 import me.theentropyshard.crlauncher.github.GithubApi;
 import me.theentropyshard.crlauncher.github.GithubRelease;
 import me.theentropyshard.crlauncher.network.download.DownloadList;
 import me.theentropyshard.crlauncher.network.download.HttpDownload;
 import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.LibraryRepository;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.ListUtils;
 import me.theentropyshard.crlauncher.utils.SemanticVersion;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 public class PuzzleManager {
     private static final List<PuzzleDependency> LIBRARIES = List.of(
@@ -60,66 +60,137 @@ public class PuzzleManager {
     private static final SemanticVersion VERSION_2_0_0 = new SemanticVersion(2, 0, 0);
     private static final SemanticVersion VERSION_2_1_15 = new SemanticVersion(2, 1, 15);
 
+    private final Path workDir;
     private final Path versionsDir;
     private final Path depsDir;
 
     public PuzzleManager(Path workDir) {
+        this.workDir = workDir;
         this.versionsDir = workDir.resolve("versions");
         this.depsDir = workDir.resolve("deps");
     }
 
     public void downloadPuzzle(String version, ProgressListener progressListener) throws IOException {
         FileUtils.createDirectoryIfNotExists(this.versionsDir);
-        FileUtils.createDirectoryIfNotExists(this.depsDir);
 
-        if (this.isInstalled(version)) {
+        Path lockFile = this.getLockFile(version);
+        LoaderLock lock = LoaderLock.load(lockFile);
+
+        if (lock != null) {
+            lock.install(this.workDir, progressListener);
+
             return;
         }
 
-        GithubApi downloader = new GithubApi();
-        List<GithubRelease> allReleases = downloader.getAllReleases("PuzzleLoader", "PuzzleLoader");
-        GithubRelease release = ListUtils.search(allReleases, r -> r.tag_name.equals(version));
-        if (release == null) {
-            throw new IOException("Puzzle Loader " + version + " not found");
+        this.moveLegacyDependencies(version);
+
+        List<HttpDownload> downloads = this.getDownloads(version);
+
+        if (!this.isInstalled(version)) {
+            GithubApi downloader = new GithubApi();
+            List<GithubRelease> allReleases = downloader.getAllReleases("PuzzleLoader", "PuzzleLoader");
+            GithubRelease release = ListUtils.search(allReleases, r -> r.tag_name.equals(version));
+            if (release == null) {
+                throw new IOException("Puzzle Loader " + version + " not found");
+            }
+
+            DownloadList list = new DownloadList((totalSize, downloadedBytes) -> {
+                progressListener.update(totalSize, downloadedBytes, 0, false);
+            });
+
+            list.addAll(downloads);
+            list.downloadAll();
         }
 
+        // Also locks installs from before lockfiles, their URLs do not depend on anything looked up
+        LoaderLock.create(this.workDir, downloads).save(lockFile);
+    }
+
+    private List<HttpDownload> getDownloads(String version) {
+        List<HttpDownload> downloads = new ArrayList<>();
+
         String fileName = PuzzleManager.getClientName(version);
         Path filePath = this.versionsDir.resolve(fileName);
 
-        DownloadList list = new DownloadList((totalSize, downloadedBytes) -> {
-            progressListener.update(totalSize, downloadedBytes, 0, false);
-        });
-
         HttpDownload loaderDownload = new HttpDownload.Builder()
-            .httpClient(CRLauncher.getInstance().getHttpClient())
             .saveAs(filePath)
+            .deduplicate()
             .url("https://jitpack.io/com/github/PuzzleLoader/PuzzleLoader/" + version + "/" + fileName)
-            // todo add sha 1 to download and verify
             .build();
 
-        list.add(loaderDownload);
+        downloads.add(loaderDownload);
 
         for (PuzzleDependency dependency : PuzzleManager.getLibraries(version)) {
             MavenArtifact artifact = dependency.mavenArtifact();
 
             HttpDownload libDownload = new HttpDownload.Builder()
-                .httpClient(CRLauncher.getInstance().getHttpClient())
-                .saveAs(this.depsDir.resolve(artifact.jar()))
+                .saveAs(CRLauncher.getInstance().getLibraryRepository().getPath(artifact))
+                .deduplicate()
                 .url(dependency.baseRepoURL() + artifact.url())
-                // todo add sha 1 to download and verify
                 .build();
 
-            list.add(libDownload);
+            downloads.add(libDownload);
+        }
+
+        return downloads;
+    }
+
+    public Path getLockFile(String version) {
+        return this.versionsDir.resolve(version).resolve(LoaderLock.FILE_NAME);
+    }
+
+    /**
+     * Moves the libraries of a version from the deps directory, where they were kept before the library repository
+     */
+    private void moveLegacyDependencies(String version) throws IOException {
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        for (PuzzleDependency dependency : PuzzleManager.getLibraries(version)) {
+            MavenArtifact artifact = dependency.mavenArtifact();
+
+            Path legacyFile = this.depsDir.resolve(artifact.jar());
+            Path file = libraries.getPath(artifact);
+
+            if (Files.exists(legacyFile) && !Files.exists(file)) {
+                FileUtils.createDirectoryIfNotExists(file.getParent());
+                Files.move(legacyFile, file);
+            }
+        }
+    }
+
+    public List<String> getClasspath(String version) {
+        LibraryRepository libraries = CRLauncher.getInstance().getLibraryRepository();
+
+        List<Path> classpath = new ArrayList<>();
+
+        for (PuzzleDependency dependency : PuzzleManager.getLibraries(version)) {
+            classpath.add(libraries.getPath(dependency.mavenArtifact()));
         }
 
-        list.downloadAll();
+        classpath.add(this.versionsDir.resolve(PuzzleManager.getClientName(version)));
+
+        return classpath.stream().map(Path::toString).toList();
     }
 
-    public String getClasspath(String version) throws IOException {
-        List<Path> deps = FileUtils.list(this.depsDir);
-        deps.add(this.versionsDir.resolve(PuzzleManager.getClientName(version)));
+    /**
+     * @return libraries used by the installed versions
+     */
+    public Set<Path> getReferencedLibraries() throws IOException {
+        Set<Path> libraries = new HashSet<>();
+
+        if (!Files.isDirectory(this.versionsDir)) {
+            return libraries;
+        }
+
+        for (Path versionDir : FileUtils.list(this.versionsDir, Files::isDirectory)) {
+            LoaderLock lock = LoaderLock.load(versionDir.resolve(LoaderLock.FILE_NAME));
+
+            if (lock != null) {
+                libraries.addAll(lock.getLibraries());
+            }
+        }
 
-        return String.join(File.pathSeparator, deps.stream().map(Path::toString).toList());
+        return libraries;
     }
 
     public boolean isInstalled(String version) {
@@ -131,7 +202,7 @@ public class PuzzleManager {
         for (PuzzleDependency dependency : PuzzleManager.getLibraries(version)) {
             MavenArtifact artifact = dependency.mavenArtifact();
 
-            if (!Files.exists(this.depsDir.resolve(artifact.jar()))) {
+            if (!Files.exists(CRLauncher.getInstance().getLibraryRepository().getPath(artifact))) {
                 return false;
             }
         }
@@ -0,0 +1,283 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring of console lines. Once full, appending a line evicts the oldest one.
+ * The line that is still being written is kept separately and counts as the last line.
+ * <p>
+ * Not thread-safe, only used on the EDT.
+ */
+public class ConsoleBuffer {
+    private static final int TAB_SIZE = 4;
+
+    private ConsoleLine[] lines;
+    private int head;
+    private int size;
+
+    private long evictedLines;
+    private long nextOffset;
+
+    private final StringBuilder openText = new StringBuilder();
+    private final List<Integer> openRunStarts = new ArrayList<>();
+    private final List<ConsoleStyle> openRunStyles = new ArrayList<>();
+    private ConsoleLine openLine;
+
+    public ConsoleBuffer(int capacity) {
+        this.lines = new ConsoleLine[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends text, which may contain several line breaks, in the given style.
+     *
+     * @return number of lines evicted to make room
+     */
+    public int append(String text, ConsoleStyle style) {
+        int evicted = 0;
+        int start = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                this.appendToOpenLine(text, start, i, style);
+
+                if (this.finishOpenLine()) {
+                    evicted++;
+                }
+
+                start = i + 1;
+            }
+        }
+
+        this.appendToOpenLine(text, start, text.length(), style);
+
+        return evicted;
+    }
+
+    private void appendToOpenLine(String text, int start, int end, ConsoleStyle style) {
+        if (start == end) {
+            return;
+        }
+
+        int runCount = this.openRunStyles.size();
+        if (runCount == 0 || !this.openRunStyles.get(runCount - 1).equals(style)) {
+            this.openRunStarts.add(this.openText.length());
+            this.openRunStyles.add(style);
+        }
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+
+            if (c == '\t') {
+                this.openText.append(" ".repeat(ConsoleBuffer.TAB_SIZE));
+            } else if (c != '\r') {
+                this.openText.append(c);
+            }
+        }
+
+        this.openLine = null;
+    }
+
+    private boolean finishOpenLine() {
+        ConsoleLine line = this.createOpenLine();
+
+        this.openText.setLength(0);
+        this.openRunStarts.clear();
+        this.openRunStyles.clear();
+        this.openLine = null;
+
+        this.nextOffset = line.endOffset() + 1;
+
+        boolean evicted = this.size == this.lines.length;
+        if (evicted) {
+            this.lines[this.head] = line;
+            this.head = (this.head + 1) % this.lines.length;
+            this.evictedLines++;
+        } else {
+            this.lines[(this.head + this.size) % this.lines.length] = line;
+            this.size++;
+        }
+
+        return evicted;
+    }
+
+    private ConsoleLine createOpenLine() {
+        int[] runStarts = new int[this.openRunStarts.size()];
+        for (int i = 0; i < runStarts.length; i++) {
+            runStarts[i] = this.openRunStarts.get(i);
+        }
+
+        return new ConsoleLine(
+            this.openText.toString(), runStarts, this.openRunStyles.toArray(new ConsoleStyle[0]), this.nextOffset
+        );
+    }
+
+    /**
+     * @return number of lines, including the one still being written
+     */
+    public int getLineCount() {
+        return this.openText.isEmpty() ? this.size : this.size + 1;
+    }
+
+    public ConsoleLine getLine(int index) {
+        if (index < this.size) {
+            return this.lines[(this.head + index) % this.lines.length];
+        }
+
+        if (this.openLine == null) {
+            this.openLine = this.createOpenLine();
+        }
+
+        return this.openLine;
+    }
+
+    /**
+     * @return index of the line containing the offset, or -1 if that line is no longer in the buffer
+     */
+    public int findLine(long offset) {
+        int count = this.getLineCount();
+
+        if (count == 0 || offset < this.getBaseOffset()) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = count - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (this.getLine(mid).startOffset() <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return offset of the first line still in the buffer
+     */
+    public long getBaseOffset() {
+        return this.size == 0 ? this.nextOffset : this.lines[this.head].startOffset();
+    }
+
+    /**
+     * @return offset just past the last character in the buffer
+     */
+    public long getEndOffset() {
+        return this.nextOffset + this.openText.length();
+    }
+
+    public long getEvictedLines() {
+        return this.evictedLines;
+    }
+
+    /**
+     * @return number of lines that are finished, these never change until evicted
+     */
+    public int getFinishedLineCount() {
+        return this.size;
+    }
+
+    /**
+     * @return absolute number of the first line in the buffer, counting every line ever appended
+     */
+    public long getFirstLineNumber() {
+        return this.evictedLines;
+    }
+
+    public String getText(long startOffset, long endOffset) {
+        StringBuilder builder = new StringBuilder();
+
+        int count = this.getLineCount();
+        for (int i = Math.max(0, this.findLine(startOffset)); i < count; i++) {
+            ConsoleLine line = this.getLine(i);
+
+            if (line.startOffset() >= endOffset) {
+                break;
+            }
+
+            int from = (int) Math.max(0, startOffset - line.startOffset());
+            int to = (int) Math.min(line.text().length(), endOffset - line.startOffset());
+
+            if (from <= to) {
+                builder.append(line.text(), from, to);
+            }
+
+            if (line.endOffset() < endOffset && i < this.size) {
+                builder.append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    public String getText() {
+        return this.getText(this.getBaseOffset(), this.getEndOffset());
+    }
+
+    public int getCapacity() {
+        return this.lines.length;
+    }
+
+    /**
+     * Changes how many finished lines are kept, dropping the oldest ones if needed.
+     *
+     * @return number of lines dropped
+     */
+    public int setCapacity(int capacity) {
+        capacity = Math.max(1, capacity);
+
+        if (capacity == this.lines.length) {
+            return 0;
+        }
+
+        int dropped = Math.max(0, this.size - capacity);
+        ConsoleLine[] newLines = new ConsoleLine[capacity];
+
+        for (int i = 0; i < this.size - dropped; i++) {
+            newLines[i] = this.lines[(this.head + dropped + i) % this.lines.length];
+        }
+
+        this.lines = newLines;
+        this.head = 0;
+        this.size -= dropped;
+        this.evictedLines += dropped;
+
+        return dropped;
+    }
+
+    public void clear() {
+        if (!this.openText.isEmpty()) {
+            this.finishOpenLine();
+        }
+
+        this.evictedLines += this.size;
+        Arrays.fill(this.lines, null);
+        this.head = 0;
+        this.size = 0;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import me.theentropyshard.crlauncher.logging.LogLevel;
+
+/**
+ * A finished line of console output. {@code runStarts[i]} is the index in {@code text}
+ * where {@code runStyles[i]} begins; a run ends where the next one begins.
+ *
+ * @param startOffset offset of the first character, counted from the very first line the console
+ *                    has ever shown (including lines that were evicted or cleared since), with one
+ *                    character for each line break
+ */
+public record ConsoleLine(String text, int[] runStarts, ConsoleStyle[] runStyles, long startOffset) {
+    public LogLevel level() {
+        LogLevel level = this.runStyles.length == 0 ? null : this.runStyles[0].level();
+
+        return level == null ? LogLevel.INFO : level;
+    }
+
+    public long endOffset() {
+        return this.startOffset + this.text.length();
+    }
+}
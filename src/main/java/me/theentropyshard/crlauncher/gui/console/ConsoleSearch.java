@@ -0,0 +1,196 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import me.theentropyshard.crlauncher.utils.TextSearch;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Incremental search over a {@link ConsoleBuffer}.
+ * <p>
+ * Finished lines are scanned in order, in slices of a few milliseconds on the EDT, so a search over
+ * a large history never blocks painting. Lines appended later are scanned as they arrive, and matches
+ * in evicted lines are dropped. Matches are kept as sorted buffer offsets.
+ */
+public class ConsoleSearch {
+    private static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(8L);
+
+    private final ConsoleBuffer buffer;
+    private final Runnable listener;
+    private final Timer timer;
+
+    private final LongQueue starts = new LongQueue();
+    private final LongQueue ends = new LongQueue();
+
+    private TextSearch textSearch;
+    private Predicate<ConsoleLine> filter;
+    private long nextLine;
+
+    /**
+     * @param listener called on the EDT whenever the matches change
+     */
+    public ConsoleSearch(ConsoleBuffer buffer, Runnable listener) {
+        this.buffer = buffer;
+        this.listener = listener;
+
+        this.timer = new Timer(0, e -> this.scan());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Starts a new search from the oldest line, forgetting the previous one.
+     */
+    public void start(TextSearch textSearch, Predicate<ConsoleLine> filter) {
+        this.timer.stop();
+        this.starts.clear();
+        this.ends.clear();
+
+        this.textSearch = textSearch;
+        this.filter = filter;
+        this.nextLine = this.buffer.getFirstLineNumber();
+
+        if (textSearch == null) {
+            this.listener.run();
+        } else {
+            this.scan();
+        }
+    }
+
+    public void stop() {
+        this.start(null, null);
+    }
+
+    /**
+     * Called after lines were appended to or evicted from the buffer.
+     */
+    public void update() {
+        if (this.textSearch == null) {
+            return;
+        }
+
+        int evicted = this.starts.lowerBound(this.buffer.getBaseOffset());
+        if (evicted > 0) {
+            this.starts.removeFirst(evicted);
+            this.ends.removeFirst(evicted);
+        }
+
+        this.nextLine = Math.max(this.nextLine, this.buffer.getFirstLineNumber());
+
+        if (!this.timer.isRunning()) {
+            this.scan();
+        }
+    }
+
+    private void scan() {
+        if (this.textSearch == null) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + ConsoleSearch.SLICE_NANOS;
+        long firstLine = this.buffer.getFirstLineNumber();
+        long endLine = firstLine + this.buffer.getFinishedLineCount();
+        int found = this.starts.size();
+
+        while (this.nextLine < endLine) {
+            if (System.nanoTime() > deadline) {
+                this.timer.restart();
+
+                break;
+            }
+
+            ConsoleLine line = this.buffer.getLine((int) (this.nextLine++ - firstLine));
+
+            if (this.filter != null && !this.filter.test(line)) {
+                continue;
+            }
+
+            long offset = line.startOffset();
+            this.textSearch.find(line.text(), (start, end) -> {
+                this.starts.add(offset + start);
+                this.ends.add(offset + end);
+            });
+        }
+
+        if (found != this.starts.size() || !this.timer.isRunning()) {
+            this.listener.run();
+        }
+    }
+
+    public boolean isActive() {
+        return this.textSearch != null;
+    }
+
+    /**
+     * @return whether every finished line has been scanned
+     */
+    public boolean isComplete() {
+        return this.nextLine >= this.buffer.getFirstLineNumber() + this.buffer.getFinishedLineCount();
+    }
+
+    public int getMatchCount() {
+        return this.starts.size();
+    }
+
+    public long getMatchStart(int index) {
+        return this.starts.get(index);
+    }
+
+    public long getMatchEnd(int index) {
+        return this.ends.get(index);
+    }
+
+    /**
+     * @return index of the first match starting at or after the offset, wrapping around to the first match,
+     * or -1 if there are no matches
+     */
+    public int findNext(long offset) {
+        if (this.starts.isEmpty()) {
+            return -1;
+        }
+
+        int index = this.starts.lowerBound(offset);
+
+        return index == this.starts.size() ? 0 : index;
+    }
+
+    /**
+     * Reports the matches overlapping the given range of offsets.
+     */
+    public void forEachMatch(long from, long to, OffsetConsumer consumer) {
+        // Matches never span lines, so the first candidate can only start at or after the line start
+        for (int i = this.starts.lowerBound(from); i < this.starts.size(); i++) {
+            long start = this.starts.get(i);
+
+            if (start >= to) {
+                break;
+            }
+
+            consumer.accept(start, this.ends.get(i));
+        }
+    }
+
+    @FunctionalInterface
+    public interface OffsetConsumer {
+        void accept(long start, long end);
+    }
+}
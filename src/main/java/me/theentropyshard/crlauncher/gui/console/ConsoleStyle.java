@@ -0,0 +1,32 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import me.theentropyshard.crlauncher.logging.LogLevel;
+
+import java.awt.*;
+
+/**
+ * Style of a run of console text. Instances are immutable and compared by value.
+ * The level is not drawn, it decides the level of the line the run starts.
+ */
+public record ConsoleStyle(Color color, boolean bold, boolean italic, boolean underline, LogLevel level) {
+
+}
@@ -0,0 +1,559 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import me.theentropyshard.crlauncher.logging.LogLevel;
+import me.theentropyshard.crlauncher.utils.OperatingSystem;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Read-only console view over a {@link ConsoleBuffer}. Only the lines intersecting the clip
+ * are painted, and nothing is laid out beyond the total size, so cost does not grow with history.
+ * <p>
+ * Selection is tracked as a pair of buffer offsets, which stay valid while old lines are evicted.
+ * With a level filter set, only matching lines get a row; the rows are kept as a list of line numbers.
+ */
+public class ConsoleView extends JComponent implements Scrollable {
+    private static final Color MATCH_HIGHLIGHT = new Color(255, 200, 0, 110);
+
+    private final ConsoleBuffer buffer;
+    private final ConsoleSearch search;
+
+    private Predicate<ConsoleLine> filter;
+    private final LongQueue filteredLines = new LongQueue();
+    private final LongQueue crashOffsets = new LongQueue();
+    private long filterScannedLines;
+
+    // Indexed by 1 for bold and 2 for italic
+    private final Font[] fonts = new Font[4];
+    private FontMetrics metrics;
+    private int lineHeight;
+    private int maxLineWidth;
+    private long measuredLines;
+
+    private Color selectionBackground;
+    private Color selectionForeground;
+
+    private long selectionAnchor;
+    private long selectionCaret;
+
+    public ConsoleView(int capacity, Font font, Runnable searchListener) {
+        this.buffer = new ConsoleBuffer(capacity);
+        this.search = new ConsoleSearch(this.buffer, () -> {
+            this.repaint();
+            searchListener.run();
+        });
+
+        this.setOpaque(true);
+        this.setFocusable(true);
+        this.setAutoscrolls(true);
+        this.setFont(font);
+        this.updateUI();
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+
+                ConsoleView.this.requestFocusInWindow();
+
+                long offset = ConsoleView.this.offsetAt(e.getPoint());
+                if (!e.isShiftDown()) {
+                    ConsoleView.this.selectionAnchor = offset;
+                }
+                ConsoleView.this.selectionCaret = offset;
+                ConsoleView.this.repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+
+                ConsoleView.this.selectionCaret = ConsoleView.this.offsetAt(e.getPoint());
+                ConsoleView.this.scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                ConsoleView.this.repaint();
+            }
+        };
+        this.addMouseListener(mouseAdapter);
+        this.addMouseMotionListener(mouseAdapter);
+
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+
+        this.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, menuMask), "copy");
+        this.getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (ConsoleView.this.hasSelection()) {
+                    OperatingSystem.copyToClipboard(ConsoleView.this.getSelectedText());
+                }
+            }
+        });
+
+        this.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_A, menuMask), "selectAll");
+        this.getActionMap().put("selectAll", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ConsoleView.this.select(ConsoleView.this.buffer.getBaseOffset(), ConsoleView.this.buffer.getEndOffset());
+            }
+        });
+    }
+
+    @Override
+    public void updateUI() {
+        super.updateUI();
+
+        this.setBackground(UIManager.getColor("TextPane.background"));
+        this.setForeground(UIManager.getColor("TextPane.foreground"));
+        this.selectionBackground = UIManager.getColor("TextPane.selectionBackground");
+        this.selectionForeground = UIManager.getColor("TextPane.selectionForeground");
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+
+        this.fonts[0] = font;
+        this.fonts[1] = font.deriveFont(Font.BOLD);
+        this.fonts[2] = font.deriveFont(Font.ITALIC);
+        this.fonts[3] = font.deriveFont(Font.BOLD | Font.ITALIC);
+        this.metrics = this.getFontMetrics(font);
+        this.lineHeight = this.metrics.getHeight();
+        this.maxLineWidth = 0;
+        this.measuredLines = 0;
+        this.measureNewLines();
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    /**
+     * Appends the runs in order.
+     *
+     * @return number of rows that disappeared from the top to make room
+     */
+    public int append(List<StyledText> runs) {
+        int evicted = 0;
+
+        for (StyledText run : runs) {
+            if (run.crash()) {
+                this.crashOffsets.add(this.buffer.getEndOffset());
+            }
+
+            evicted += this.buffer.append(run.text(), run.style());
+        }
+
+        this.crashOffsets.removeFirst(this.crashOffsets.lowerBound(this.buffer.getBaseOffset()));
+
+        if (this.filter != null) {
+            evicted = this.updateFilteredLines();
+        }
+
+        this.measureNewLines();
+        this.search.update();
+        this.revalidate();
+        this.repaint();
+
+        return evicted;
+    }
+
+    /**
+     * Shows only the lines at {@link LogLevel#WARN} or {@link LogLevel#ERROR}, or every line again.
+     */
+    public void setProblemsOnly(boolean problemsOnly) {
+        this.filter = problemsOnly ? line -> line.level() == LogLevel.WARN || line.level() == LogLevel.ERROR : null;
+
+        this.filteredLines.clear();
+        this.filterScannedLines = this.buffer.getFirstLineNumber();
+        if (this.filter != null) {
+            this.updateFilteredLines();
+        }
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    public Predicate<ConsoleLine> getFilter() {
+        return this.filter;
+    }
+
+    private int updateFilteredLines() {
+        long firstLine = this.buffer.getFirstLineNumber();
+
+        int evicted = this.filteredLines.lowerBound(firstLine);
+        this.filteredLines.removeFirst(evicted);
+
+        long endLine = firstLine + this.buffer.getFinishedLineCount();
+        for (long number = Math.max(this.filterScannedLines, firstLine); number < endLine; number++) {
+            if (this.filter.test(this.buffer.getLine((int) (number - firstLine)))) {
+                this.filteredLines.add(number);
+            }
+        }
+        this.filterScannedLines = endLine;
+
+        return evicted;
+    }
+
+    private int getRowCount() {
+        if (this.filter == null) {
+            return this.buffer.getLineCount();
+        }
+
+        int rows = this.filteredLines.size();
+        int openLine = this.buffer.getFinishedLineCount();
+
+        if (openLine < this.buffer.getLineCount() && this.filter.test(this.buffer.getLine(openLine))) {
+            rows++;
+        }
+
+        return rows;
+    }
+
+    private int getLineIndex(int row) {
+        if (this.filter == null) {
+            return row;
+        }
+
+        if (row < this.filteredLines.size()) {
+            return (int) (this.filteredLines.get(row) - this.buffer.getFirstLineNumber());
+        }
+
+        return this.buffer.getFinishedLineCount();
+    }
+
+    /**
+     * @return row showing the line, or -1 if the line is filtered out
+     */
+    private int getRow(int lineIndex) {
+        if (this.filter == null) {
+            return lineIndex;
+        }
+
+        if (lineIndex >= this.buffer.getFinishedLineCount()) {
+            int rows = this.getRowCount();
+
+            return rows > this.filteredLines.size() ? rows - 1 : -1;
+        }
+
+        long number = this.buffer.getFirstLineNumber() + lineIndex;
+        int row = this.filteredLines.lowerBound(number);
+
+        return row < this.filteredLines.size() && this.filteredLines.get(row) == number ? row : -1;
+    }
+
+    public int getCrashCount() {
+        return this.crashOffsets.size();
+    }
+
+    /**
+     * Selects the first line of the next stack trace after the selection, wrapping around.
+     */
+    public void selectNextCrash() {
+        if (this.crashOffsets.isEmpty()) {
+            return;
+        }
+
+        int index = this.crashOffsets.lowerBound(this.getSelectionEnd());
+        long offset = this.crashOffsets.get(index == this.crashOffsets.size() ? 0 : index);
+
+        int lineIndex = this.buffer.findLine(offset);
+        if (lineIndex == -1) {
+            return;
+        }
+
+        ConsoleLine line = this.buffer.getLine(lineIndex);
+
+        // Bring the line naming the exception, right above the trace, into view as well
+        int row = this.getRow(lineIndex);
+        if (row > 0) {
+            this.scrollRectToVisible(new Rectangle(0, (row - 1) * this.lineHeight, 1, this.lineHeight));
+        }
+
+        this.select(offset, line.endOffset());
+    }
+
+    public ConsoleSearch getSearch() {
+        return this.search;
+    }
+
+    public long getSelectionEnd() {
+        return Math.max(this.selectionAnchor, this.selectionCaret);
+    }
+
+    private void measureNewLines() {
+        if (this.metrics == null) {
+            return;
+        }
+
+        int count = this.buffer.getLineCount();
+        int first = (int) Math.max(0, this.measuredLines - this.buffer.getEvictedLines());
+
+        for (int i = Math.min(first, count); i < count; i++) {
+            int width = this.metrics.stringWidth(this.buffer.getLine(i).text());
+            this.maxLineWidth = Math.max(this.maxLineWidth, width);
+        }
+
+        // The line still being written is measured again next time
+        this.measuredLines = this.buffer.getEvictedLines() + Math.max(0, count - 1);
+    }
+
+    public void clear() {
+        this.buffer.clear();
+        this.filteredLines.clear();
+        this.crashOffsets.clear();
+        this.filterScannedLines = this.buffer.getFirstLineNumber();
+        this.search.update();
+        this.maxLineWidth = 0;
+        this.measuredLines = this.buffer.getEvictedLines();
+        this.selectionAnchor = this.selectionCaret = this.buffer.getEndOffset();
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    public int setCapacity(int capacity) {
+        int dropped = this.buffer.setCapacity(capacity);
+
+        if (dropped > 0) {
+            if (this.filter != null) {
+                this.updateFilteredLines();
+            }
+            this.crashOffsets.removeFirst(this.crashOffsets.lowerBound(this.buffer.getBaseOffset()));
+            this.search.update();
+            this.revalidate();
+            this.repaint();
+        }
+
+        return dropped;
+    }
+
+    public String getText() {
+        return this.buffer.getText();
+    }
+
+    public long getBaseOffset() {
+        return this.buffer.getBaseOffset();
+    }
+
+    public boolean hasSelection() {
+        return this.selectionAnchor != this.selectionCaret &&
+            Math.max(this.selectionAnchor, this.selectionCaret) > this.buffer.getBaseOffset();
+    }
+
+    public String getSelectedText() {
+        return this.buffer.getText(
+            Math.min(this.selectionAnchor, this.selectionCaret),
+            Math.max(this.selectionAnchor, this.selectionCaret)
+        );
+    }
+
+    /**
+     * Selects the range between the two offsets and scrolls it into view.
+     */
+    public void select(long start, long end) {
+        this.selectionAnchor = start;
+        this.selectionCaret = end;
+
+        int index = this.buffer.findLine(start);
+        int row = index == -1 ? -1 : this.getRow(index);
+        if (row != -1) {
+            ConsoleLine line = this.buffer.getLine(index);
+            String text = line.text();
+            int from = (int) Math.min(text.length(), start - line.startOffset());
+            int to = (int) Math.min(text.length(), Math.max(from, end - line.startOffset()));
+
+            int x = this.metrics.stringWidth(text.substring(0, from));
+            int width = Math.max(1, this.metrics.stringWidth(text.substring(from, to)));
+            this.scrollRectToVisible(new Rectangle(x, row * this.lineHeight, width, this.lineHeight));
+        }
+
+        this.repaint();
+    }
+
+    public int getLineHeight() {
+        return this.lineHeight;
+    }
+
+    private long offsetAt(Point point) {
+        int count = this.getRowCount();
+        if (count == 0) {
+            return this.buffer.getEndOffset();
+        }
+
+        int row = Math.max(0, Math.min(count - 1, point.y / this.lineHeight));
+        ConsoleLine line = this.buffer.getLine(this.getLineIndex(row));
+        String text = line.text();
+
+        int x = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int charWidth = this.metrics.charWidth(text.charAt(i));
+
+            if (point.x < x + charWidth / 2) {
+                return line.startOffset() + i;
+            }
+
+            x += charWidth;
+        }
+
+        return line.endOffset();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        Rectangle clip = g.getClipBounds();
+        g.setColor(this.getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int count = this.getRowCount();
+        int first = Math.max(0, clip.y / this.lineHeight);
+        int last = Math.min(count - 1, (clip.y + clip.height) / this.lineHeight);
+
+        long selectionStart = Math.min(this.selectionAnchor, this.selectionCaret);
+        long selectionEnd = Math.max(this.selectionAnchor, this.selectionCaret);
+
+        int ascent = this.metrics.getAscent();
+
+        for (int row = first; row <= last; row++) {
+            ConsoleLine line = this.buffer.getLine(this.getLineIndex(row));
+            int y = row * this.lineHeight;
+
+            if (this.search.isActive()) {
+                this.paintMatches(g, line, y);
+            }
+
+            if (selectionStart < selectionEnd && selectionStart <= line.endOffset() && selectionEnd > line.startOffset()) {
+                String text = line.text();
+                int from = (int) Math.max(0, selectionStart - line.startOffset());
+                int to = (int) Math.min(text.length(), selectionEnd - line.startOffset());
+
+                int x = this.metrics.stringWidth(text.substring(0, from));
+                int width = this.metrics.stringWidth(text.substring(from, Math.max(from, to)));
+
+                // Selected line break
+                if (selectionEnd > line.endOffset()) {
+                    width += this.metrics.charWidth(' ');
+                }
+
+                g.setColor(this.selectionBackground);
+                g.fillRect(x, y, width, this.lineHeight);
+            }
+
+            this.paintLine(g, line, y + ascent, selectionStart, selectionEnd);
+        }
+    }
+
+    private void paintMatches(Graphics g, ConsoleLine line, int y) {
+        String text = line.text();
+
+        g.setColor(ConsoleView.MATCH_HIGHLIGHT);
+        this.search.forEachMatch(line.startOffset(), line.endOffset(), (start, end) -> {
+            int from = (int) (start - line.startOffset());
+            int to = (int) Math.min(text.length(), end - line.startOffset());
+
+            int x = this.metrics.stringWidth(text.substring(0, from));
+            g.fillRect(x, y, this.metrics.stringWidth(text.substring(from, to)), this.lineHeight);
+        });
+    }
+
+    private void paintLine(Graphics g, ConsoleLine line, int baseline, long selectionStart, long selectionEnd) {
+        String text = line.text();
+        int[] runStarts = line.runStarts();
+        ConsoleStyle[] runStyles = line.runStyles();
+
+        boolean selected = selectionStart < selectionEnd && this.selectionForeground != null &&
+            selectionStart <= line.startOffset() && selectionEnd >= line.endOffset();
+
+        int x = 0;
+        for (int i = 0; i < runStyles.length; i++) {
+            int start = runStarts[i];
+            int end = i + 1 < runStarts.length ? runStarts[i + 1] : text.length();
+            String part = text.substring(start, end);
+
+            ConsoleStyle style = runStyles[i];
+            Color color = style.color() == null ? this.getForeground() : style.color();
+
+            int width = this.metrics.stringWidth(part);
+
+            g.setFont(this.fonts[(style.bold() ? 1 : 0) | (style.italic() ? 2 : 0)]);
+            g.setColor(selected ? this.selectionForeground : color);
+            g.drawString(part, x, baseline);
+
+            if (style.underline()) {
+                g.drawLine(x, baseline + 1, x + width - 1, baseline + 1);
+            }
+
+            x += width;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = this.getInsets();
+
+        return new Dimension(
+            this.maxLineWidth + this.metrics.charWidth(' ') + insets.left + insets.right,
+            this.getRowCount() * this.lineHeight + insets.top + insets.bottom
+        );
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return this.getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? this.lineHeight : this.metrics.charWidth(' ');
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return this.getParent() instanceof JViewport viewport && viewport.getWidth() > this.getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return this.getParent() instanceof JViewport viewport && viewport.getHeight() > this.getPreferredSize().height;
+    }
+
+    public record StyledText(String text, ConsoleStyle style, boolean crash) {
+
+    }
+}
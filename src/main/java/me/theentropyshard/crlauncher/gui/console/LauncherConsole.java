@@ -18,21 +18,23 @@
 
 package me.theentropyshard.crlauncher.gui.console;
 
+import com.formdev.flatlaf.FlatClientProperties;
 import me.theentropyshard.crlauncher.CRLauncher;
 import me.theentropyshard.crlauncher.gui.FlatSmoothScrollPaneUI;
-import me.theentropyshard.crlauncher.gui.utils.Worker;
 import me.theentropyshard.crlauncher.language.Language;
-import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.logging.LogLevel;
 import me.theentropyshard.crlauncher.utils.OperatingSystem;
-import me.theentropyshard.crlauncher.utils.Pair;
 import me.theentropyshard.crlauncher.utils.TextSearch;
 
 import javax.swing.*;
-import javax.swing.text.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.WindowListener;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
 
 public class LauncherConsole {
     private static final int DEFAULT_X = 80;
@@ -40,20 +42,25 @@ public class LauncherConsole {
     private static final int INITIAL_WIDTH = 960;
     private static final int INITIAL_HEIGHT = 540;
     private static final int INITIAL_FONT_SIZE = 14;
+    private static final int FLUSH_INTERVAL_MS = 25;
     public static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, LauncherConsole.INITIAL_FONT_SIZE);
 
     public static final String SCROLL_DOWN = "gui.console.scrollDown";
     public static final String COPY = "gui.console.copyButton";
     public static final String CLEAR = "gui.console.clearButton";
     public static final String TITLE = "gui.console.title";
+    public static final String REGEX = "gui.console.regex";
+    public static final String PROBLEMS_ONLY = "gui.console.problemsOnly";
+    public static final String MATCHES = "gui.console.matches";
+    public static final String NEXT_CRASH = "gui.console.nextCrash";
 
     // TODO thats dumb but uhh
     public static final String SEARCH_BUTTON = "gui.instanceSettingsDialog.gameLogTab.find";
 
     private final JCheckBox scrollDown;
     public static LauncherConsole instance;
-    private final JTextPane textPane;
-    private final SimpleAttributeSet attrs;
+    private final ConsoleView view;
+    private final Timer flushTimer;
     private final JFrame frame;
     private final JScrollPane scrollPane;
     private final JButton copyButton;
@@ -61,30 +68,35 @@ public class LauncherConsole {
     private final JTextField searchField;
     private final JButton searchButton;
 
-    private String lastWordSearched;
-    private List<Pair<Integer, Integer>> searchIndices;
-    private int searchPairIndex;
+    private final JCheckBox regexCheckBox;
+    private final JCheckBox problemsOnlyCheckBox;
+    private final JLabel matchesLabel;
+    private final JButton nextCrashButton;
+
+    // Written by the log thread, taken by the EDT once per frame
+    private final Object pendingLock = new Object();
+    private List<StyledRun> pendingRuns = new ArrayList<>();
+    private Color currentColor;
+    private boolean currentBold;
+    private boolean currentItalic;
+    private boolean currentUnderline;
+    private LogLevel currentLevel;
+    private ConsoleStyle lastStyle;
+    private boolean markNextRun;
+    private boolean flushScheduled;
 
     public LauncherConsole() {
         Language language = CRLauncher.getInstance().getLanguage();
 
-        this.textPane = new NoWrapJTextPane() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                super.paintComponent(g);
-            }
-        };
-        this.textPane.setFont(LauncherConsole.FONT);
-        ((DefaultCaret) this.textPane.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
-        this.textPane.setEditable(false);
-        //this.textPane.getDocument().addDocumentListener(new ConsoleLinesLimiter(1000));
+        this.view = new ConsoleView(
+            CRLauncher.getInstance().getSettings().consoleHistoryLines, LauncherConsole.FONT, this::updateMatchesLabel
+        );
 
-        this.attrs = new SimpleAttributeSet();
+        this.flushTimer = new Timer(LauncherConsole.FLUSH_INTERVAL_MS, e -> this.flush());
+        this.flushTimer.setRepeats(false);
 
         this.scrollPane = new JScrollPane(
-            this.textPane,
+            this.view,
             JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
             JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS
         );
@@ -94,56 +106,60 @@ public class LauncherConsole {
         root.setPreferredSize(new Dimension(LauncherConsole.INITIAL_WIDTH, LauncherConsole.INITIAL_HEIGHT));
         root.add(this.scrollPane, BorderLayout.CENTER);
 
-        JPanel bottomPanel = new JPanel(new GridLayout(1, 2));
+        JPanel bottomPanel = new JPanel(new BorderLayout());
         root.add(bottomPanel, BorderLayout.SOUTH);
 
         JPanel leftButtonsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        bottomPanel.add(leftButtonsPanel);
+        bottomPanel.add(leftButtonsPanel, BorderLayout.CENTER);
 
         this.searchField = new JTextField();
         this.searchField.setPreferredSize(new Dimension(250, this.searchField.getPreferredSize().height));
         leftButtonsPanel.add(this.searchField);
 
-        this.searchButton = new JButton(language.getString(LauncherConsole.SEARCH_BUTTON));
-        this.searchButton.addActionListener(e -> {
-            String searchText = this.searchField.getText();
-
-            if (searchText.equals(this.lastWordSearched)) {
-                this.performSearch();
-            } else {
-                this.lastWordSearched = searchText;
-                this.searchPairIndex = 0;
+        this.searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                LauncherConsole.this.restartSearch();
+            }
 
-                new Worker<List<Pair<Integer, Integer>>, Void>("searching text") {
-                    @Override
-                    protected List<Pair<Integer, Integer>> work() throws Exception {
-                        String areaText = LauncherConsole.this.textPane.getText();
-                        String searchText = LauncherConsole.this.searchField.getText();
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                LauncherConsole.this.restartSearch();
+            }
 
-                        TextSearch textSearch = TextSearch.create();
+            @Override
+            public void changedUpdate(DocumentEvent e) {
 
-                        return textSearch.findOccurrences(areaText, searchText);
-                    }
+            }
+        });
+        this.searchField.addActionListener(e -> this.selectNextMatch());
 
-                    @Override
-                    protected void done() {
-                        try {
-                            LauncherConsole.this.searchIndices = this.get();
-                        } catch (InterruptedException | ExecutionException ex) {
-                            Log.error("Unexpected error", ex);
+        this.searchButton = new JButton(language.getString(LauncherConsole.SEARCH_BUTTON));
+        this.searchButton.addActionListener(e -> this.selectNextMatch());
+        leftButtonsPanel.add(this.searchButton);
 
-                            return;
-                        }
+        this.regexCheckBox = new JCheckBox(language.getString(LauncherConsole.REGEX));
+        this.regexCheckBox.addActionListener(e -> this.restartSearch());
+        leftButtonsPanel.add(this.regexCheckBox);
 
-                        LauncherConsole.this.performSearch();
-                    }
-                }.execute();
-            }
+        this.problemsOnlyCheckBox = new JCheckBox(language.getString(LauncherConsole.PROBLEMS_ONLY));
+        this.problemsOnlyCheckBox.addActionListener(e -> {
+            this.view.setProblemsOnly(this.problemsOnlyCheckBox.isSelected());
+            this.restartSearch();
+            this.scrollToBottom();
         });
-        leftButtonsPanel.add(this.searchButton);
+        leftButtonsPanel.add(this.problemsOnlyCheckBox);
+
+        this.matchesLabel = new JLabel();
+        leftButtonsPanel.add(this.matchesLabel);
+
+        this.nextCrashButton = new JButton(language.getString(LauncherConsole.NEXT_CRASH));
+        this.nextCrashButton.setEnabled(false);
+        this.nextCrashButton.addActionListener(e -> this.selectNextCrash());
+        leftButtonsPanel.add(this.nextCrashButton);
 
         JPanel rightButtonsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        bottomPanel.add(rightButtonsPanel);
+        bottomPanel.add(rightButtonsPanel, BorderLayout.EAST);
 
         this.scrollDown = new JCheckBox(language.getString(LauncherConsole.SCROLL_DOWN));
         this.scrollDown.setSelected(CRLauncher.getInstance().getSettings().consoleScrollDown);
@@ -156,16 +172,17 @@ public class LauncherConsole {
 
         this.copyButton = new JButton(language.getString(LauncherConsole.COPY));
         this.copyButton.addActionListener(e -> {
-            OperatingSystem.copyToClipboard(this.textPane.getText());
+            OperatingSystem.copyToClipboard(this.view.hasSelection() ? this.view.getSelectedText() : this.view.getText());
         });
         rightButtonsPanel.add(this.copyButton);
 
         this.clearButton = new JButton(language.getString(LauncherConsole.CLEAR));
         this.clearButton.addActionListener(e -> {
-            this.textPane.setText("");
-            this.searchIndices = null;
-            this.searchPairIndex = 0;
-            this.lastWordSearched = "";
+            synchronized (this.pendingLock) {
+                this.pendingRuns.clear();
+            }
+            this.view.clear();
+            this.nextCrashButton.setEnabled(false);
         });
         rightButtonsPanel.add(this.clearButton);
 
@@ -176,18 +193,66 @@ public class LauncherConsole {
         this.frame.setLocation(LauncherConsole.DEFAULT_X, LauncherConsole.DEFAULT_Y);
     }
 
-    private void performSearch() {
-        if (this.searchIndices != null && this.searchIndices.size() != 0) {
-            int pairIndex = (this.searchPairIndex++) % this.searchIndices.size();
-            Pair<Integer, Integer> indices = this.searchIndices.get(pairIndex);
-            LauncherConsole.this.textPane.requestFocus();
-            LauncherConsole.this.textPane.select(indices.getLeft(), indices.getRight());
-            LauncherConsole.this.textPane.repaint();
+    private void restartSearch() {
+        String query = this.searchField.getText();
+        ConsoleSearch search = this.view.getSearch();
+
+        this.searchField.putClientProperty(FlatClientProperties.OUTLINE, null);
+
+        if (query.isEmpty()) {
+            search.stop();
+
+            return;
+        }
+
+        TextSearch textSearch;
+        try {
+            textSearch = TextSearch.create(query, this.regexCheckBox.isSelected());
+        } catch (PatternSyntaxException e) {
+            this.searchField.putClientProperty(FlatClientProperties.OUTLINE, FlatClientProperties.OUTLINE_ERROR);
+            search.stop();
+
+            return;
+        }
+
+        search.start(textSearch, this.view.getFilter());
+    }
+
+    private void selectNextMatch() {
+        ConsoleSearch search = this.view.getSearch();
+        int index = search.findNext(this.view.getSelectionEnd());
+
+        if (index == -1) {
+            return;
         }
+
+        this.scrollDown.setSelected(false);
+        this.view.requestFocus();
+        this.view.select(search.getMatchStart(index), search.getMatchEnd(index));
+    }
+
+    private void selectNextCrash() {
+        this.scrollDown.setSelected(false);
+        this.view.requestFocus();
+        this.view.selectNextCrash();
+    }
+
+    private void updateMatchesLabel() {
+        ConsoleSearch search = this.view.getSearch();
+
+        if (!search.isActive()) {
+            this.matchesLabel.setText("");
+
+            return;
+        }
+
+        String text = search.getMatchCount() + " " + CRLauncher.getInstance().getLanguage().getString(LauncherConsole.MATCHES);
+        this.matchesLabel.setText(search.isComplete() ? text : text + "...");
     }
 
     private void scrollToBottom() {
         if (this.scrollDown.isSelected()) {
+            this.scrollPane.validate();
             JScrollBar scrollBar = this.scrollPane.getVerticalScrollBar();
             scrollBar.setValue(scrollBar.getMaximum());
         }
@@ -206,32 +271,142 @@ public class LauncherConsole {
     }
 
     public LauncherConsole setColor(Color c) {
-        SwingUtilities.invokeLater(() -> {
-            StyleConstants.setForeground(this.attrs, c);
-        });
+        synchronized (this.pendingLock) {
+            this.currentColor = c;
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the level for lines started by the following writes, used by the level filter.
+     */
+    public LauncherConsole setLevel(LogLevel level) {
+        synchronized (this.pendingLock) {
+            this.currentLevel = level;
+        }
+
+        return this;
+    }
+
+    /**
+     * Marks the next write as the start of a stack trace, so it can be jumped to.
+     */
+    public LauncherConsole markCrash() {
+        synchronized (this.pendingLock) {
+            this.markNextRun = true;
+        }
 
         return this;
     }
 
     public LauncherConsole setBold(boolean bold) {
-        SwingUtilities.invokeLater(() -> {
-            StyleConstants.setBold(this.attrs, bold);
-        });
+        synchronized (this.pendingLock) {
+            this.currentBold = bold;
+        }
+
+        return this;
+    }
+
+    public LauncherConsole setItalic(boolean italic) {
+        synchronized (this.pendingLock) {
+            this.currentItalic = italic;
+        }
+
+        return this;
+    }
+
+    public LauncherConsole setUnderline(boolean underline) {
+        synchronized (this.pendingLock) {
+            this.currentUnderline = underline;
+        }
 
         return this;
     }
 
     public void write(String line) {
-        SwingUtilities.invokeLater(() -> {
-            Document document = this.textPane.getDocument();
+        this.write(line, 0, line.length());
+    }
+
+    /**
+     * Queues part of the text with the current style. Queued runs are added to
+     * the view together on the next frame, see {@link #flush()}.
+     */
+    public void write(CharSequence text, int start, int end) {
+        synchronized (this.pendingLock) {
+            ConsoleStyle style = this.getStyle();
+
+            int size = this.pendingRuns.size();
+            StyledRun last = size == 0 ? null : this.pendingRuns.get(size - 1);
+            if (last != null && last.style.equals(style) && !this.markNextRun) {
+                last.text.append(text, start, end);
+            } else {
+                this.pendingRuns.add(new StyledRun(style, text, start, end, this.markNextRun));
+                this.markNextRun = false;
+            }
 
-            try {
-                document.insertString(document.getLength(), line, this.attrs);
-            } catch (BadLocationException e) {
-                e.printStackTrace();
+            if (!this.flushScheduled) {
+                this.flushScheduled = true;
+                this.flushTimer.restart();
             }
+        }
+    }
 
+    private ConsoleStyle getStyle() {
+        // Most writes keep the style of the previous one
+        ConsoleStyle last = this.lastStyle;
+        if (last != null && Objects.equals(last.color(), this.currentColor) && last.bold() == this.currentBold &&
+            last.italic() == this.currentItalic && last.underline() == this.currentUnderline && last.level() == this.currentLevel) {
+
+            return last;
+        }
+
+        this.lastStyle = new ConsoleStyle(
+            this.currentColor, this.currentBold, this.currentItalic, this.currentUnderline, this.currentLevel
+        );
+
+        return this.lastStyle;
+    }
+
+    private void flush() {
+        List<StyledRun> runs;
+
+        synchronized (this.pendingLock) {
+            runs = this.pendingRuns;
+            this.pendingRuns = new ArrayList<>(runs.size());
+            this.flushScheduled = false;
+        }
+
+        if (runs.isEmpty()) {
+            return;
+        }
+
+        List<ConsoleView.StyledText> texts = new ArrayList<>(runs.size());
+        for (StyledRun run : runs) {
+            texts.add(new ConsoleView.StyledText(run.text.toString(), run.style, run.crash));
+        }
+
+        JScrollBar scrollBar = this.scrollPane.getVerticalScrollBar();
+        int value = scrollBar.getValue();
+
+        int evicted = this.view.append(texts);
+        this.nextCrashButton.setEnabled(this.view.getCrashCount() > 0);
+
+        if (this.scrollDown.isSelected()) {
             this.scrollToBottom();
+        } else if (evicted > 0) {
+            // Keep the lines the user is reading in place while old ones fall off the top
+            this.scrollPane.validate();
+            scrollBar.setValue(Math.max(0, value - evicted * this.view.getLineHeight()));
+        }
+    }
+
+    /**
+     * Changes how many lines the console keeps.
+     */
+    public void setHistorySize(int lines) {
+        SwingUtilities.invokeLater(() -> {
+            this.view.setCapacity(lines);
         });
     }
 
@@ -243,5 +418,21 @@ public class LauncherConsole {
         this.copyButton.setText(language.getString(LauncherConsole.COPY));
         this.clearButton.setText(language.getString(LauncherConsole.CLEAR));
         this.searchButton.setText(language.getString(LauncherConsole.SEARCH_BUTTON));
+        this.regexCheckBox.setText(language.getString(LauncherConsole.REGEX));
+        this.problemsOnlyCheckBox.setText(language.getString(LauncherConsole.PROBLEMS_ONLY));
+        this.nextCrashButton.setText(language.getString(LauncherConsole.NEXT_CRASH));
+        this.updateMatchesLabel();
+    }
+
+    private static final class StyledRun {
+        private final ConsoleStyle style;
+        private final StringBuilder text;
+        private final boolean crash;
+
+        private StyledRun(ConsoleStyle style, CharSequence text, int start, int end, boolean crash) {
+            this.style = style;
+            this.text = new StringBuilder(Math.max(16, end - start)).append(text, start, end);
+            this.crash = crash;
+        }
     }
 }
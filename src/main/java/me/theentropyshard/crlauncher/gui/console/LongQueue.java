@@ -0,0 +1,94 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.gui.console;
+
+import java.util.Arrays;
+
+/**
+ * Growable queue of longs, appended at the end and trimmed from the front.
+ * Used for sorted offsets and line numbers, so it can be binary searched.
+ */
+public class LongQueue {
+    private long[] values = new long[64];
+    private int head;
+    private int size;
+
+    public void add(long value) {
+        if (this.head + this.size == this.values.length) {
+            if (this.head > this.values.length / 2) {
+                System.arraycopy(this.values, this.head, this.values, 0, this.size);
+            } else {
+                this.values = Arrays.copyOf(this.values, this.values.length * 2);
+                System.arraycopy(this.values, this.head, this.values, 0, this.size);
+            }
+
+            this.head = 0;
+        }
+
+        this.values[this.head + this.size++] = value;
+    }
+
+    public long get(int index) {
+        return this.values[this.head + index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void removeFirst(int count) {
+        count = Math.min(count, this.size);
+        this.head += count;
+        this.size -= count;
+
+        if (this.size == 0) {
+            this.head = 0;
+        }
+    }
+
+    public void clear() {
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * @return index of the first value that is not less than the given one, or {@link #size()} if there is none
+     */
+    public int lowerBound(long value) {
+        int low = 0;
+        int high = this.size;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (this.get(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
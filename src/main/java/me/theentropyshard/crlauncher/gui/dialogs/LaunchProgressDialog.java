@@ -0,0 +1,130 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs;
+
+import com.formdev.flatlaf.FlatClientProperties;
+import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchPreparation;
+import me.theentropyshard.crlauncher.language.LanguageSection;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.utils.MathUtils;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One dialog for all launch preparation tasks, with a progress bar per task
+ */
+public class LaunchProgressDialog extends AppDialog implements LaunchPreparation.Listener {
+    private final LanguageSection section;
+    private final Map<String, JProgressBar> progressBars;
+
+    public LaunchProgressDialog(List<String> taskNames) {
+        super(CRLauncher.frame, CRLauncher.getInstance().getLanguage().getString("gui.launchProgressDialog.title"));
+
+        this.section = CRLauncher.getInstance().getLanguage().getSection("gui.launchProgressDialog");
+        this.progressBars = new LinkedHashMap<>();
+
+        JPanel root = new JPanel(new GridBagLayout());
+        root.setBorder(new EmptyBorder(8, 8, 8, 8));
+        root.setPreferredSize(new Dimension(450, Math.max(120, taskNames.size() * 34 + 16)));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(3, 3, 3, 3);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.gridy = 0;
+
+        for (String name : taskNames) {
+            gbc.gridx = 0;
+            gbc.weightx = 0;
+            root.add(new JLabel(this.section.getString("tasks." + name)), gbc);
+
+            JProgressBar progressBar = new JProgressBar(JProgressBar.HORIZONTAL);
+            progressBar.putClientProperty(FlatClientProperties.PROGRESS_BAR_SQUARE, true);
+            progressBar.setFont(progressBar.getFont().deriveFont(12.0f));
+            progressBar.setStringPainted(true);
+            progressBar.setString(this.section.getString("waiting"));
+            this.progressBars.put(name, progressBar);
+
+            gbc.gridx = 1;
+            gbc.weightx = 1;
+            root.add(progressBar, gbc);
+
+            gbc.gridy++;
+        }
+
+        this.setResizable(false);
+        this.setContent(root);
+        this.center(0);
+    }
+
+    @Override
+    public void taskStarted(String name) {
+        SwingUtilities.invokeLater(() -> {
+            JProgressBar progressBar = this.progressBars.get(name);
+            progressBar.setIndeterminate(true);
+            progressBar.setString(this.section.getString("running"));
+        });
+    }
+
+    @Override
+    public void taskFinished(String name) {
+        SwingUtilities.invokeLater(() -> {
+            JProgressBar progressBar = this.progressBars.get(name);
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(1);
+            progressBar.setValue(1);
+            progressBar.setString(this.section.getString("done"));
+        });
+    }
+
+    @Override
+    public void taskFailed(String name, Throwable cause) {
+        SwingUtilities.invokeLater(() -> {
+            JProgressBar progressBar = this.progressBars.get(name);
+            progressBar.setIndeterminate(false);
+            progressBar.setString(this.section.getString("failed"));
+            progressBar.putClientProperty(FlatClientProperties.OUTLINE, FlatClientProperties.OUTLINE_ERROR);
+        });
+    }
+
+    @Override
+    public ProgressListener getProgressListener(String name) {
+        return (contentLength, totalBytesRead, bytesReadThisTime, done) -> SwingUtilities.invokeLater(() -> {
+            JProgressBar progressBar = this.progressBars.get(name);
+
+            if (contentLength <= 0) {
+                progressBar.setString(MathUtils.round(totalBytesRead / 1024.0D / 1024.0D, 2) + " MiB");
+
+                return;
+            }
+
+            progressBar.setIndeterminate(false);
+            progressBar.setMinimum(0);
+            progressBar.setMaximum((int) contentLength);
+            progressBar.setValue((int) totalBytesRead);
+            progressBar.setString(MathUtils.round(totalBytesRead / 1024.0D / 1024.0D, 2) + " MiB / " +
+                MathUtils.round(contentLength / 1024.0D / 1024.0D, 2) + " MiB");
+        });
+    }
+}
@@ -29,6 +29,7 @@ import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.java.JavaT
 import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.mods.ModsTab;
 import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.mods.jar.JarModsTab;
 import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.screenshots.ScreenshotsTab;
+import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.timings.LaunchTimingsTab;
 import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.worlds.WorldsTab;
 import me.theentropyshard.crlauncher.gui.view.playview.InstancesPanel;
 import me.theentropyshard.crlauncher.instance.Instance;
@@ -79,6 +80,7 @@ public class InstanceSettingsDialog extends AppDialog {
         this.addTab(new WorldsTab(instance, this.getDialog()));
         this.addTab(new ScreenshotsTab(instance, this.getDialog()));
         this.addTab(new GameLogTab(instance, this.getDialog()));
+        this.addTab(new LaunchTimingsTab(instance, this.getDialog()));
 
         this.tabbedPane.addChangeListener(e -> {
             int index = this.tabbedPane.getSelectedIndex();
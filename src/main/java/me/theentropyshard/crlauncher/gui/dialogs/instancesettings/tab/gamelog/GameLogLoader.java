@@ -18,49 +18,68 @@
 
 package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
 
+import me.theentropyshard.crlauncher.cosmic.GameLogSession;
 import me.theentropyshard.crlauncher.gui.utils.Worker;
 
 import javax.swing.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
 
-public class GameLogLoader extends Worker<Void, String> {
+public class GameLogLoader extends Worker<Void, Void> {
+    // Bytes indexed between view updates
+    public static final long INDEX_STEP = 8L * 1024L * 1024L;
+
     private final GameLogTab gameLogTab;
+    private final GameLogSession session;
+    private final long firstLine;
 
-    public GameLogLoader(GameLogTab gameLogTab) {
+    /**
+     * @param session   session to read from, or {@code null} for the game's own error log
+     * @param firstLine first line of the page for archived sessions, counted from 0
+     */
+    public GameLogLoader(GameLogTab gameLogTab, GameLogSession session, long firstLine) {
         super("loading game log");
 
         this.gameLogTab = gameLogTab;
+        this.session = session;
+        this.firstLine = firstLine;
     }
 
     @Override
     protected Void work() throws Exception {
-        Path logFile = this.gameLogTab.getInstance().getCosmicDir().resolve("errorLogLatest.txt");
+        if (this.session != null && this.session.isArchived()) {
+            LogPage page = new LogPage(this.firstLine, this.session.readLines(this.firstLine, GameLogTab.PAGE_SIZE));
+
+            SwingUtilities.invokeLater(() -> {
+                this.gameLogTab.setLines(this, page);
+                this.gameLogTab.linesIndexed(this, true);
+            });
 
-        if (!Files.exists(logFile) || Files.size(logFile) == 0L) {
             return null;
         }
 
-        List<String> lines = Files.readAllLines(logFile);
-        int lastIndex = lines.size() - 1;
+        Path logFile = this.session == null ?
+            this.gameLogTab.getInstance().getCosmicDir().resolve("errorLogLatest.txt") :
+            this.session.getFile();
 
-        String lastLine = lines.get(lastIndex);
-        lines.remove(lastLine);
+        if (!Files.exists(logFile)) {
+            SwingUtilities.invokeLater(() -> this.gameLogTab.setLines(this, null));
 
-        SwingUtilities.invokeLater(() -> {
-            this.process(lines);
-            this.gameLogTab.appendLine(lastLine);
-            this.gameLogTab.toggleButtons(true);
-        });
+            return null;
+        }
 
-        return null;
-    }
+        IndexedLogFile indexedFile = IndexedLogFile.open(logFile);
+        SwingUtilities.invokeLater(() -> this.gameLogTab.setLines(this, indexedFile));
 
-    @Override
-    protected void process(List<String> chunks) {
-        for (String line : chunks) {
-            this.gameLogTab.appendLine(line + "\n");
-        }
+        // Lines become visible as they get indexed
+        boolean more;
+        do {
+            more = indexedFile.indexMore(GameLogLoader.INDEX_STEP);
+
+            boolean finished = !more;
+            SwingUtilities.invokeLater(() -> this.gameLogTab.linesIndexed(this, finished));
+        } while (more && !this.isCancelled());
+
+        return null;
     }
 }
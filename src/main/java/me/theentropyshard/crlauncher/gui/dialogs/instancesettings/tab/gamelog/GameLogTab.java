@@ -20,10 +20,11 @@ package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
 
 import com.formdev.flatlaf.ui.FlatScrollPaneBorder;
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.GameLogArchive;
+import me.theentropyshard.crlauncher.cosmic.GameLogSession;
 import me.theentropyshard.crlauncher.gui.BrowseHyperlinkListener;
 import me.theentropyshard.crlauncher.gui.FlatSmoothScrollPaneUI;
 import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
-import me.theentropyshard.crlauncher.gui.console.NoWrapJTextPane;
 import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.Tab;
 import me.theentropyshard.crlauncher.gui.utils.MessageBox;
 import me.theentropyshard.crlauncher.gui.utils.SwingUtils;
@@ -32,40 +33,59 @@ import me.theentropyshard.crlauncher.instance.Instance;
 import me.theentropyshard.crlauncher.language.Language;
 import me.theentropyshard.crlauncher.language.LanguageSection;
 import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.logging.LogLevel;
 import me.theentropyshard.crlauncher.mclogs.McLogsApi;
 import me.theentropyshard.crlauncher.mclogs.model.LimitsResponse;
 import me.theentropyshard.crlauncher.mclogs.model.PasteResponse;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.OperatingSystem;
-import me.theentropyshard.crlauncher.utils.Pair;
 import me.theentropyshard.crlauncher.utils.TextSearch;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.DefaultCaret;
-import javax.swing.text.Document;
 import javax.swing.text.html.HTMLEditorKit;
 import java.awt.*;
+import java.awt.event.ItemEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GameLogTab extends Tab {
-    private final JTextPane logArea;
+    public static final int PAGE_SIZE = 5000;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final GameLogView logView;
+    private final JComboBox<GameLogSession> sessionCombo;
+    private final JSpinner lineSpinner;
+    private final JComboBox<GameLogSession.Crash> crashCombo;
+    private final GameLogArchive logArchive;
+    private final JCheckBox followCheckBox;
+    private final Timer followTimer;
     private final JButton uploadButton;
     private final JButton copyFileButton;
     private final JButton copyTextButton;
     private final JButton clearButton;
 
-    private String lastWordSearched;
-    private List<Pair<Integer, Integer>> searchIndices;
-    private int searchPairIndex;
+    private GameLogSession currentSession;
+    private boolean updatingCombos;
+
+    private GameLogLoader loader;
+    private IndexedLogFile indexedFile;
+    private boolean polling;
+
+    // Line to select once it is loaded, -1 for none
+    private long pendingLine = -1L;
+
+    private Worker<long[], Void> searchWorker;
 
     public GameLogTab(Instance instance, JDialog dialog) {
         super(CRLauncher.getInstance().getLanguage().getString("gui.instanceSettingsDialog.gameLogTab.name"), instance, dialog);
@@ -77,72 +97,93 @@ public class GameLogTab extends Tab {
         root.setBorder(new EmptyBorder(3, 3, 3, 3));
         root.setLayout(new BorderLayout());
 
-        JPanel topSearchPanel = new JPanel(new BorderLayout());
-        topSearchPanel.setBorder(new EmptyBorder(0, 4, 3, 4));
+        this.logArchive = new GameLogArchive(instance.getLogsDir());
 
-        JLabel searchLabel = new JLabel(section.getString("search") + ": ");
-        topSearchPanel.add(searchLabel, BorderLayout.WEST);
+        JPanel topPanel = new JPanel(new BorderLayout());
 
-        JTextField searchField = new JTextField();
-        topSearchPanel.add(searchField, BorderLayout.CENTER);
+        JPanel sessionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(sessionPanel, BorderLayout.NORTH);
 
-        JButton searchButton = new JButton(section.getString("find"));
-        searchButton.addActionListener(e -> {
-            String searchText = searchField.getText();
+        sessionPanel.add(new JLabel(section.getString("session") + ": "));
 
-            if (searchText.equals(this.lastWordSearched)) {
-                this.performSearch();
-            } else {
-                this.lastWordSearched = searchText;
-                this.searchPairIndex = 0;
+        // A null item stands for the game's own error log
+        this.sessionCombo = new JComboBox<>();
+        this.sessionCombo.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                String text = GameLogTab.describe(section, (GameLogSession) value);
 
-                new Worker<List<Pair<Integer, Integer>>, Void>("searching text") {
-                    @Override
-                    protected List<Pair<Integer, Integer>> work() throws Exception {
-                        String areaText = GameLogTab.this.logArea.getText();
-                        String searchText = searchField.getText();
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        this.sessionCombo.addActionListener(e -> {
+            if (!this.updatingCombos) {
+                this.sessionSelected();
+            }
+        });
+        sessionPanel.add(this.sessionCombo);
 
-                        TextSearch textSearch = TextSearch.create();
+        sessionPanel.add(new JLabel(section.getString("line") + ": "));
 
-                        return textSearch.findOccurrences(areaText, searchText);
-                    }
+        this.lineSpinner = new JSpinner(new SpinnerNumberModel(1L, 1L, Long.MAX_VALUE, 1L));
+        this.lineSpinner.setPreferredSize(new Dimension(110, this.lineSpinner.getPreferredSize().height));
+        sessionPanel.add(this.lineSpinner);
 
-                    @Override
-                    protected void done() {
-                        try {
-                            GameLogTab.this.searchIndices = this.get();
-                        } catch (InterruptedException | ExecutionException ex) {
-                            Log.error("Unexpected error", ex);
+        JButton goButton = new JButton(section.getString("go"));
+        goButton.addActionListener(e -> this.goToLine((Long) this.lineSpinner.getValue() - 1));
+        sessionPanel.add(goButton);
 
-                            return;
-                        }
+        sessionPanel.add(new JLabel(section.getString("crashes") + ": "));
 
-                        GameLogTab.this.performSearch();
-                    }
-                }.execute();
+        this.crashCombo = new JComboBox<>();
+        this.crashCombo.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                GameLogSession.Crash crash = (GameLogSession.Crash) value;
+                String text = crash == null ? "" : (crash.line() + 1) + ": " + crash.headline();
+
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
             }
         });
+        this.crashCombo.setPrototypeDisplayValue(new GameLogSession.Crash(0, "java.lang.IllegalStateException"));
+        this.crashCombo.addItemListener(e -> {
+            if (!this.updatingCombos && e.getStateChange() == ItemEvent.SELECTED) {
+                GameLogSession.Crash crash = (GameLogSession.Crash) e.getItem();
+                this.lineSpinner.setValue(crash.line() + 1);
+                this.goToLine(crash.line());
+            }
+        });
+        sessionPanel.add(this.crashCombo);
+
+        this.followTimer = new Timer(500, e -> this.pollFile());
+
+        this.followCheckBox = new JCheckBox(section.getString("follow"));
+        this.followCheckBox.addActionListener(e -> this.followToggled());
+        sessionPanel.add(this.followCheckBox);
+
+        JPanel topSearchPanel = new JPanel(new BorderLayout());
+        topSearchPanel.setBorder(new EmptyBorder(0, 4, 3, 4));
+
+        JLabel searchLabel = new JLabel(section.getString("search") + ": ");
+        topSearchPanel.add(searchLabel, BorderLayout.WEST);
+
+        JTextField searchField = new JTextField();
+        topSearchPanel.add(searchField, BorderLayout.CENTER);
+
+        JButton searchButton = new JButton(section.getString("find"));
+        searchButton.addActionListener(e -> this.findNext(searchField.getText()));
+        searchField.addActionListener(e -> this.findNext(searchField.getText()));
         topSearchPanel.add(searchButton, BorderLayout.EAST);
 
-        root.add(topSearchPanel, BorderLayout.NORTH);
+        topPanel.add(topSearchPanel, BorderLayout.SOUTH);
+        root.add(topPanel, BorderLayout.NORTH);
 
         // TODO: try making also colored
-        this.logArea = new NoWrapJTextPane() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                super.paintComponent(g);
-            }
-        };
-        this.logArea.getCaret().setSelectionVisible(true);
-        this.logArea.setFont(LauncherConsole.FONT);
-        ((DefaultCaret) this.logArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
-        this.logArea.setEditable(false);
-        this.logArea.setBackground(UIManager.getColor("TextField.background"));
+        this.logView = new GameLogView(LauncherConsole.FONT);
+        this.logView.setBackground(UIManager.getColor("TextField.background"));
 
         JScrollPane scrollPane = new JScrollPane(
-            this.logArea,
+            this.logView,
             JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
             JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS
         );
@@ -160,9 +201,10 @@ public class GameLogTab extends Tab {
             SwingUtils.startWorker(() -> {
                 String log;
 
-                Path logFile = this.getInstance().getCosmicDir().resolve("errorLogLatest.txt");
+                GameLogSession session = this.currentSession;
+                Path logFile = this.getCurrentFile();
                 try {
-                    log = FileUtils.readUtf8(logFile);
+                    log = session == null ? FileUtils.readUtf8(logFile) : session.readAll();
                 } catch (IOException ex) {
                     Log.error("Could not read file: " + logFile, ex);
                     MessageBox.showErrorMessage(CRLauncher.frame, section.getString("failed") + ": " + ex.getMessage());
@@ -209,68 +251,410 @@ public class GameLogTab extends Tab {
         bottomButtonsPanel.add(this.uploadButton);
 
         this.copyFileButton = new JButton(section.getString("copyFile"));
-        Path logFile = this.getInstance().getCosmicDir().resolve("errorLogLatest.txt");
         this.copyFileButton.addActionListener(e -> {
             SwingUtils.startWorker(() -> {
-                OperatingSystem.copyToClipboard(this.getInstance().getCosmicDir().resolve("errorLogLatest.txt"));
+                OperatingSystem.copyToClipboard(this.getCurrentFile());
             });
         });
         bottomButtonsPanel.add(this.copyFileButton);
 
         this.copyTextButton = new JButton(section.getString("copyText"));
         this.copyTextButton.addActionListener(e -> {
+            LogLines lines = this.logView.getLines();
+            if (lines == null) {
+                return;
+            }
+
+            if (this.logView.hasSelection()) {
+                OperatingSystem.copyToClipboard(this.logView.getSelectedText());
+
+                return;
+            }
+
             SwingUtils.startWorker(() -> {
-                OperatingSystem.copyToClipboard(this.logArea.getText());
+                StringBuilder builder = new StringBuilder();
+
+                long count = lines.getLineCount();
+                for (long i = 0; i < count; i++) {
+                    builder.append(lines.getLine(i)).append('\n');
+                }
+
+                OperatingSystem.copyToClipboard(builder.toString());
             });
         });
         bottomButtonsPanel.add(this.copyTextButton);
 
         this.clearButton = new JButton(section.getString("clear"));
         this.clearButton.addActionListener(e -> {
+            GameLogSession session = this.currentSession;
+
+            // Release the file before deleting it
+            this.logView.setLines(null);
+            this.closeLogFile();
+
             SwingUtils.startWorker(() -> {
                 try {
-                    FileUtils.delete(this.getInstance().getCosmicDir().resolve("errorLogLatest.txt"));
+                    if (session == null) {
+                        FileUtils.delete(this.getErrorLogFile());
+                    } else {
+                        session.delete();
+                    }
                 } catch (IOException ex) {
                     Log.error("Could not delete log file", ex);
                 }
 
                 SwingUtilities.invokeLater(() -> {
-                    this.logArea.setText("");
-                    this.copyFileButton.setEnabled(false);
+                    this.toggleButtons(false);
+
+                    if (session != null) {
+                        this.refreshSessions();
+                    }
                 });
             });
         });
         bottomButtonsPanel.add(this.clearButton);
 
-        if (!Files.exists(logFile)) {
-            this.toggleButtons(false);
+        root.add(bottomButtonsPanel, BorderLayout.SOUTH);
+
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                GameLogTab.this.followTimer.stop();
+
+                if (GameLogTab.this.loader != null) {
+                    GameLogTab.this.loader.cancel(false);
+                }
+
+                GameLogTab.this.closeLogFile();
+            }
+        });
+
+        this.refreshSessions();
+    }
+
+    private static String describe(LanguageSection section, GameLogSession session) {
+        if (session == null) {
+            return section.getString("latestErrorLog");
         }
 
-        root.add(bottomButtonsPanel, BorderLayout.SOUTH);
+        String time = GameLogTab.TIME_FORMATTER.format(session.getStartTime());
+        GameLogSession.Index index = session.getIndex();
+
+        if (index == null) {
+            return time + " - " + section.getString("running");
+        }
+
+        return time + " - " + index.lineCount() + " " + section.getString("lines") + ", " +
+            index.getCount(LogLevel.WARN) + " " + section.getString("warnings") + ", " +
+            index.getCount(LogLevel.ERROR) + " " + section.getString("errors");
+    }
+
+    public void refreshSessions() {
+        new Worker<List<GameLogSession>, Void>("listing game log sessions") {
+            @Override
+            protected List<GameLogSession> work() {
+                return GameLogTab.this.logArchive.listSessions();
+            }
+
+            @Override
+            protected void done() {
+                List<GameLogSession> sessions;
+
+                try {
+                    sessions = this.get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Log.error("Could not list game log sessions", ex);
+
+                    return;
+                }
+
+                GameLogTab.this.setSessions(sessions);
+            }
+        }.execute();
+    }
+
+    private void setSessions(List<GameLogSession> sessions) {
+        this.updatingCombos = true;
+
+        this.sessionCombo.removeAllItems();
+        this.sessionCombo.addItem(null);
+        sessions.forEach(this.sessionCombo::addItem);
+        this.sessionCombo.setSelectedItem(null);
+
+        this.updatingCombos = false;
+
+        this.sessionSelected();
+    }
+
+    private void sessionSelected() {
+        this.currentSession = (GameLogSession) this.sessionCombo.getSelectedItem();
+
+        this.updatingCombos = true;
+
+        this.crashCombo.removeAllItems();
+        if (this.currentSession != null && this.currentSession.isArchived()) {
+            this.currentSession.getIndex().crashes().forEach(this.crashCombo::addItem);
+        }
+        this.crashCombo.setSelectedItem(null);
+        this.crashCombo.setEnabled(this.crashCombo.getItemCount() != 0);
+
+        this.updatingCombos = false;
+
+        this.lineSpinner.setValue(1L);
+        this.openAt(-1L);
+    }
+
+    /**
+     * Loads the current source. Archived sessions are loaded a page at a time starting at the given line,
+     * other logs are indexed as a whole and the line is selected once indexed.
+     *
+     * @param line line to show, counted from 0, or -1 for the start
+     */
+    private void openAt(long line) {
+        if (this.loader != null) {
+            this.loader.cancel(false);
+        }
+
+        if (this.searchWorker != null) {
+            this.searchWorker.cancel(false);
+        }
+
+        this.pendingLine = line;
+        this.toggleButtons(false);
+
+        this.loader = new GameLogLoader(this, this.currentSession, Math.max(0L, line));
+        this.loader.execute();
+    }
+
+    private void goToLine(long line) {
+        LogLines lines = this.logView.getLines();
+
+        if (lines instanceof LogPage) {
+            this.openAt(line);
+        } else {
+            this.pendingLine = line;
+            this.showPendingLine(this.indexedFile != null && this.indexedFile.isFullyIndexed());
+        }
+    }
+
+    private void showPendingLine(boolean finished) {
+        LogLines lines = this.logView.getLines();
+        if (this.pendingLine < 0 || lines == null) {
+            return;
+        }
+
+        long index = this.pendingLine - lines.getFirstLineNumber();
+
+        if (index >= 0 && index < lines.getLineCount()) {
+            this.logView.select(index, 0, lines.getLine(index).length());
+            this.pendingLine = -1L;
+        } else if (finished) {
+            this.logView.scrollToEnd();
+            this.pendingLine = -1L;
+        }
+    }
+
+    void setLines(GameLogLoader loader, LogLines lines) {
+        if (loader != this.loader) {
+            if (lines instanceof IndexedLogFile file) {
+                GameLogTab.closeQuietly(file);
+            }
+
+            return;
+        }
+
+        this.closeLogFile();
+        this.indexedFile = lines instanceof IndexedLogFile file ? file : null;
+
+        this.logView.setLines(lines);
+        this.toggleButtons(lines != null);
+    }
+
+    void linesIndexed(GameLogLoader loader, boolean finished) {
+        if (loader != this.loader) {
+            return;
+        }
+
+        this.logView.linesChanged();
+        this.showPendingLine(finished);
+
+        if (this.followCheckBox.isSelected()) {
+            this.logView.scrollToEnd();
+        }
+    }
+
+    private void followToggled() {
+        if (this.followCheckBox.isSelected()) {
+            this.followTimer.start();
+            this.logView.scrollToEnd();
+        } else {
+            this.followTimer.stop();
+        }
+    }
+
+    /**
+     * Picks up bytes appended to the open file, or opens the log once it appears.
+     */
+    private void pollFile() {
+        if (this.polling || (this.loader != null && !this.loader.isDone())) {
+            return;
+        }
+
+        IndexedLogFile file = this.indexedFile;
+
+        if (file == null) {
+            boolean archived = this.currentSession != null && this.currentSession.isArchived();
+
+            if (!archived && Files.exists(this.getCurrentFile())) {
+                this.openAt(-1L);
+            }
+
+            return;
+        }
+
+        this.polling = true;
+
+        new Worker<Boolean, Void>("following game log") {
+            @Override
+            protected Boolean work() throws Exception {
+                if (!file.refresh()) {
+                    return false;
+                }
+
+                while (file.indexMore(GameLogLoader.INDEX_STEP)) {
+                    // Indexing everything appended
+                }
+
+                return true;
+            }
+
+            @Override
+            protected void done() {
+                GameLogTab.this.polling = false;
+
+                if (file != GameLogTab.this.indexedFile) {
+                    return;
+                }
+
+                boolean valid;
+                try {
+                    valid = Boolean.TRUE.equals(this.get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Log.error("Unexpected error", ex);
+
+                    return;
+                }
 
-        new GameLogLoader(this).execute();
+                // The game replaces its error log on every launch
+                if (!valid) {
+                    GameLogTab.this.openAt(-1L);
+
+                    return;
+                }
+
+                GameLogTab.this.logView.linesChanged();
+
+                if (GameLogTab.this.followCheckBox.isSelected()) {
+                    GameLogTab.this.logView.scrollToEnd();
+                }
+            }
+        }.execute();
     }
 
-    private void performSearch() {
-        if (this.searchIndices != null && this.searchIndices.size() != 0) {
-            int pairIndex = (this.searchPairIndex++) % this.searchIndices.size();
-            Pair<Integer, Integer> indices = this.searchIndices.get(pairIndex);
-            GameLogTab.this.logArea.requestFocus();
-            GameLogTab.this.logArea.select(indices.getLeft(), indices.getRight());
-            GameLogTab.this.logArea.repaint();
+    private void findNext(String query) {
+        LogLines lines = this.logView.getLines();
+        if (lines == null || query.isEmpty()) {
+            return;
+        }
+
+        if (this.searchWorker != null) {
+            this.searchWorker.cancel(false);
         }
+
+        long fromLine = this.logView.getSelectionEndLine();
+        int fromColumn = this.logView.getSelectionEndColumn();
+        TextSearch search = TextSearch.create(query, false);
+
+        this.searchWorker = new Worker<>("searching game log") {
+            @Override
+            protected long[] work() {
+                long count = lines.getLineCount();
+
+                // A session that has not written anything yet
+                if (count == 0) {
+                    return null;
+                }
+
+                int[] match = new int[2];
+
+                // Lines are decoded one at a time, the start line is searched again after wrapping around
+                for (long i = 0; i <= count && !this.isCancelled(); i++) {
+                    long line = (fromLine + i) % count;
+                    int minStart = i == 0 ? fromColumn : 0;
+
+                    match[0] = -1;
+                    search.find(lines.getLine(line), (start, end) -> {
+                        if (match[0] == -1 && start >= minStart) {
+                            match[0] = start;
+                            match[1] = end;
+                        }
+                    });
+
+                    if (match[0] != -1) {
+                        return new long[]{line, match[0], match[1]};
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if (this.isCancelled() || GameLogTab.this.logView.getLines() != lines) {
+                    return;
+                }
+
+                long[] result;
+                try {
+                    result = this.get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Log.error("Unexpected error", ex);
+
+                    return;
+                }
+
+                if (result != null) {
+                    GameLogTab.this.logView.requestFocusInWindow();
+                    GameLogTab.this.logView.select(result[0], (int) result[1], (int) result[2]);
+                }
+            }
+        };
+        this.searchWorker.execute();
     }
 
-    public void appendLine(String line) {
-        Document doc = this.logArea.getDocument();
+    private void closeLogFile() {
+        if (this.indexedFile != null) {
+            GameLogTab.closeQuietly(this.indexedFile);
+            this.indexedFile = null;
+        }
+    }
 
+    private static void closeQuietly(IndexedLogFile file) {
         try {
-            doc.insertString(doc.getLength(), line, null);
-        } catch (BadLocationException e) {
-            Log.error("Could not append line to game log area", e);
+            file.close();
+        } catch (IOException e) {
+            Log.warn("Could not close " + file.getFile() + ": " + e.getMessage());
         }
     }
 
+    private Path getErrorLogFile() {
+        return this.getInstance().getCosmicDir().resolve("errorLogLatest.txt");
+    }
+
+    private Path getCurrentFile() {
+        return this.currentSession == null ? this.getErrorLogFile() : this.currentSession.getFile();
+    }
+
     public void toggleButtons(boolean enabled) {
         this.uploadButton.setEnabled(enabled);
         this.copyFileButton.setEnabled(enabled);
@@ -0,0 +1,339 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
+
+import me.theentropyshard.crlauncher.utils.OperatingSystem;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Read-only view over {@link LogLines}. Only the rows intersecting the clip are fetched and painted,
+ * so the size of the log does not matter. The width grows as longer lines get painted.
+ */
+public class GameLogView extends JComponent implements Scrollable {
+    // Keeps the height within int range
+    private static final long MAX_ROWS = 50_000_000L;
+
+    private LogLines lines;
+
+    private FontMetrics metrics;
+    private int lineHeight;
+    private int maxLineWidth;
+
+    private Color selectionBackground;
+
+    private long anchorLine;
+    private int anchorColumn;
+    private long caretLine;
+    private int caretColumn;
+
+    public GameLogView(Font font) {
+        this.setOpaque(true);
+        this.setFocusable(true);
+        this.setAutoscrolls(true);
+        this.setFont(font);
+        this.updateUI();
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || GameLogView.this.lines == null) {
+                    return;
+                }
+
+                GameLogView.this.requestFocusInWindow();
+                GameLogView.this.moveCaret(e.getPoint(), !e.isShiftDown());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || GameLogView.this.lines == null) {
+                    return;
+                }
+
+                GameLogView.this.moveCaret(e.getPoint(), false);
+                GameLogView.this.scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+            }
+        };
+        this.addMouseListener(mouseAdapter);
+        this.addMouseMotionListener(mouseAdapter);
+
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+
+        this.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, menuMask), "copy");
+        this.getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (GameLogView.this.hasSelection()) {
+                    OperatingSystem.copyToClipboard(GameLogView.this.getSelectedText());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void updateUI() {
+        super.updateUI();
+
+        this.setBackground(UIManager.getColor("TextPane.background"));
+        this.setForeground(UIManager.getColor("TextPane.foreground"));
+        this.selectionBackground = UIManager.getColor("TextPane.selectionBackground");
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+
+        this.metrics = this.getFontMetrics(font);
+        this.lineHeight = this.metrics.getHeight();
+        this.maxLineWidth = 0;
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    /**
+     * @param lines new source, or {@code null} to show nothing
+     */
+    public void setLines(LogLines lines) {
+        this.lines = lines;
+        this.maxLineWidth = 0;
+        this.anchorLine = this.caretLine = 0;
+        this.anchorColumn = this.caretColumn = 0;
+
+        this.linesChanged();
+    }
+
+    public LogLines getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Must be called after lines were added to the current source.
+     */
+    public void linesChanged() {
+        this.revalidate();
+        this.repaint();
+    }
+
+    private int getRowCount() {
+        return this.lines == null ? 0 : (int) Math.min(GameLogView.MAX_ROWS, this.lines.getLineCount());
+    }
+
+    public void select(long line, int start, int end) {
+        this.anchorLine = this.caretLine = line;
+        this.anchorColumn = start;
+        this.caretColumn = end;
+
+        String text = this.lines.getLine(line);
+        int x = this.metrics.stringWidth(text.substring(0, Math.min(start, text.length())));
+        int width = this.metrics.stringWidth(text.substring(Math.min(start, text.length()), Math.min(end, text.length())));
+
+        // Centers the line vertically if it is off screen
+        Rectangle visible = this.getVisibleRect();
+        int y = (int) line * this.lineHeight;
+        if (y < visible.y || y + this.lineHeight > visible.y + visible.height) {
+            y = Math.max(0, y - visible.height / 2);
+            this.scrollRectToVisible(new Rectangle(visible.x, y, 1, visible.height));
+        }
+
+        this.scrollRectToVisible(new Rectangle(x, (int) line * this.lineHeight, Math.max(1, width), this.lineHeight));
+        this.repaint();
+    }
+
+    public void scrollToEnd() {
+        this.scrollRectToVisible(new Rectangle(0, this.getRowCount() * this.lineHeight - 1, 1, 1));
+    }
+
+    public boolean hasSelection() {
+        return this.anchorLine != this.caretLine || this.anchorColumn != this.caretColumn;
+    }
+
+    private boolean isCaretFirst() {
+        return this.caretLine < this.anchorLine || (this.caretLine == this.anchorLine && this.caretColumn < this.anchorColumn);
+    }
+
+    /**
+     * @return the line where the selection ends, or the caret line without a selection
+     */
+    public long getSelectionEndLine() {
+        return this.isCaretFirst() ? this.anchorLine : this.caretLine;
+    }
+
+    public int getSelectionEndColumn() {
+        return this.isCaretFirst() ? this.anchorColumn : this.caretColumn;
+    }
+
+    public String getSelectedText() {
+        boolean caretFirst = this.isCaretFirst();
+        long startLine = caretFirst ? this.caretLine : this.anchorLine;
+        int startColumn = caretFirst ? this.caretColumn : this.anchorColumn;
+        long endLine = caretFirst ? this.anchorLine : this.caretLine;
+        int endColumn = caretFirst ? this.anchorColumn : this.caretColumn;
+
+        StringBuilder builder = new StringBuilder();
+
+        for (long line = startLine; line <= endLine; line++) {
+            String text = this.lines.getLine(line);
+            int from = line == startLine ? Math.min(startColumn, text.length()) : 0;
+            int to = line == endLine ? Math.min(endColumn, text.length()) : text.length();
+
+            builder.append(text, from, Math.max(from, to));
+
+            if (line != endLine) {
+                builder.append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private void moveCaret(Point point, boolean moveAnchor) {
+        int count = this.getRowCount();
+        if (count == 0) {
+            return;
+        }
+
+        int row = Math.max(0, Math.min(count - 1, point.y / this.lineHeight));
+        String text = this.lines.getLine(row);
+
+        int column = text.length();
+        int x = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int charWidth = this.metrics.charWidth(text.charAt(i));
+
+            if (point.x < x + charWidth / 2) {
+                column = i;
+
+                break;
+            }
+
+            x += charWidth;
+        }
+
+        this.caretLine = row;
+        this.caretColumn = column;
+
+        if (moveAnchor) {
+            this.anchorLine = row;
+            this.anchorColumn = column;
+        }
+
+        this.repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        Rectangle clip = g.getClipBounds();
+        g.setColor(this.getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int count = this.getRowCount();
+        int first = Math.max(0, clip.y / this.lineHeight);
+        int last = Math.min(count - 1, (clip.y + clip.height) / this.lineHeight);
+
+        boolean caretFirst = this.isCaretFirst();
+        long startLine = caretFirst ? this.caretLine : this.anchorLine;
+        int startColumn = caretFirst ? this.caretColumn : this.anchorColumn;
+        long endLine = caretFirst ? this.anchorLine : this.caretLine;
+        int endColumn = caretFirst ? this.anchorColumn : this.caretColumn;
+        boolean selection = this.hasSelection();
+
+        int ascent = this.metrics.getAscent();
+        int widest = this.maxLineWidth;
+
+        g.setFont(this.getFont());
+
+        for (int row = first; row <= last; row++) {
+            String text = this.lines.getLine(row);
+            int y = row * this.lineHeight;
+
+            if (selection && row >= startLine && row <= endLine) {
+                int from = row == startLine ? Math.min(startColumn, text.length()) : 0;
+                int to = row == endLine ? Math.min(endColumn, text.length()) : text.length();
+
+                int x = this.metrics.stringWidth(text.substring(0, from));
+                int width = this.metrics.stringWidth(text.substring(from, Math.max(from, to)));
+
+                // Selected line break
+                if (row < endLine) {
+                    width += this.metrics.charWidth(' ');
+                }
+
+                g.setColor(this.selectionBackground);
+                g.fillRect(x, y, width, this.lineHeight);
+            }
+
+            g.setColor(this.getForeground());
+            g.drawString(text, 0, y + ascent);
+
+            widest = Math.max(widest, this.metrics.stringWidth(text));
+        }
+
+        if (widest > this.maxLineWidth) {
+            this.maxLineWidth = widest;
+
+            SwingUtilities.invokeLater(this::revalidate);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = this.getInsets();
+
+        return new Dimension(
+            this.maxLineWidth + this.metrics.charWidth(' ') + insets.left + insets.right,
+            this.getRowCount() * this.lineHeight + insets.top + insets.bottom
+        );
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return this.getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? this.lineHeight : this.metrics.charWidth(' ');
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return this.getParent() instanceof JViewport viewport && viewport.getWidth() > this.getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return this.getParent() instanceof JViewport viewport && viewport.getHeight() > this.getPreferredSize().height;
+    }
+}
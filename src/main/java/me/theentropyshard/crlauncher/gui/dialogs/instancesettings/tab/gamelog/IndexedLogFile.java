@@ -0,0 +1,212 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A plain text log read with positional reads, so the file is never loaded on the heap.
+ * <p>
+ * Line breaks are indexed incrementally by {@link #indexMore(long)} on a single background thread,
+ * while lines already indexed can be read from any thread. {@link #refresh()} picks up bytes appended
+ * since the last call, which allows following a file that is still being written. Nothing is mapped,
+ * so once closed the file can be deleted or truncated right away, even on Windows.
+ */
+public class IndexedLogFile implements LogLines, Closeable {
+    private static final int INDEX_BUFFER_SIZE = 64 * 1024;
+
+    // Longer lines are cut when decoded
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    // Only used by indexMore, which is synchronized
+    private final ByteBuffer indexBuffer;
+
+    private volatile long size;
+
+    // Offsets of the line breaks, the array is replaced before the count is raised
+    private volatile long[] lineBreaks = new long[1024];
+    private volatile int lineBreakCount;
+    private volatile long indexedSize;
+
+    private IndexedLogFile(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.indexBuffer = ByteBuffer.allocate(IndexedLogFile.INDEX_BUFFER_SIZE);
+    }
+
+    public static IndexedLogFile open(Path file) throws IOException {
+        IndexedLogFile logFile = new IndexedLogFile(file, FileChannel.open(file, StandardOpenOption.READ));
+
+        try {
+            logFile.refresh();
+        } catch (IOException e) {
+            logFile.close();
+
+            throw e;
+        }
+
+        return logFile;
+    }
+
+    /**
+     * Picks up the bytes appended since the last call.
+     *
+     * @return {@code false} if the file got shorter, meaning it was truncated or replaced and has to be reopened
+     */
+    public synchronized boolean refresh() throws IOException {
+        long size = this.channel.size();
+
+        if (size < this.size) {
+            return false;
+        }
+
+        this.size = size;
+
+        return true;
+    }
+
+    /**
+     * Indexes line breaks in up to {@code maxBytes} of the known bytes.
+     *
+     * @return {@code true} if there are known bytes left to index
+     */
+    public synchronized boolean indexMore(long maxBytes) throws IOException {
+        ByteBuffer buffer = this.indexBuffer;
+        long position = this.indexedSize;
+        long end = Math.min(this.size, position + maxBytes);
+
+        long[] lineBreaks = this.lineBreaks;
+        int count = this.lineBreakCount;
+
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+
+            int read = this.channel.read(buffer, position);
+            if (read <= 0) {
+                throw new EOFException("Log file " + this.file + " got shorter while indexing");
+            }
+
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+
+                if (count == lineBreaks.length) {
+                    lineBreaks = Arrays.copyOf(lineBreaks, count * 2);
+                    this.lineBreaks = lineBreaks;
+                }
+
+                lineBreaks[count++] = position + i;
+            }
+
+            position += read;
+        }
+
+        this.lineBreakCount = count;
+        this.indexedSize = end;
+
+        return end < this.size;
+    }
+
+    /**
+     * @return the number of lines indexed so far, including an unterminated last line
+     */
+    @Override
+    public long getLineCount() {
+        // Read before the count, which is raised first
+        long indexedSize = this.indexedSize;
+        int count = this.lineBreakCount;
+
+        return indexedSize > this.lineStart(count) ? count + 1 : count;
+    }
+
+    @Override
+    public String getLine(long index) {
+        long indexedSize = this.indexedSize;
+        int count = this.lineBreakCount;
+
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("Line " + index + " out of " + count);
+        }
+
+        long start = this.lineStart((int) index);
+        long end = index < count ? this.lineBreaks[(int) index] : Math.max(start, indexedSize);
+
+        byte[] bytes = new byte[(int) Math.min(IndexedLogFile.MAX_LINE_BYTES, end - start)];
+
+        try {
+            this.read(start, ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private long lineStart(int index) {
+        return index == 0 ? 0L : this.lineBreaks[index - 1] + 1;
+    }
+
+    private void read(long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = this.channel.read(buffer, position);
+            if (read <= 0) {
+                throw new EOFException("Log file " + this.file + " got shorter while reading");
+            }
+
+            position += read;
+        }
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public boolean isFullyIndexed() {
+        return this.indexedSize == this.size;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -16,27 +16,20 @@
  * along with this program. If not, see <https://www.gnu.org/licenses/>.
  */
 
-package me.theentropyshard.crlauncher.utils.ansi;
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
 
-public class AnsiPart {
-    private final AnsiColor color;
-    private final String text;
-
-    AnsiPart(AnsiColor color, String text) {
-        this.color = color;
-        this.text = text;
-    }
-
-    @Override
-    public String toString() {
-        return this.color.getCode() + this.text;
-    }
+/**
+ * Random access to the lines of a log. Lines are counted from 0 and returned without line breaks.
+ */
+public interface LogLines {
+    long getLineCount();
 
-    public AnsiColor getColor() {
-        return this.color;
-    }
+    String getLine(long index);
 
-    public String getText() {
-        return this.text;
+    /**
+     * @return the number of the first line within the whole log, for sources showing only a part of it
+     */
+    default long getFirstLineNumber() {
+        return 0L;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.gamelog;
+
+import java.util.List;
+
+/**
+ * A page of an archived log, starting at {@code firstLine}.
+ */
+public record LogPage(long firstLine, List<String> lines) implements LogLines {
+    @Override
+    public long getLineCount() {
+        return this.lines.size();
+    }
+
+    @Override
+    public String getLine(long index) {
+        return this.lines.get((int) index);
+    }
+
+    @Override
+    public long getFirstLineNumber() {
+        return this.firstLine;
+    }
+}
@@ -66,7 +66,7 @@ public class JavaTab extends Tab {
             language.getString("gui.instanceSettingsDialog.javaTab.javaInstallation.borderName")
         ));
 
-        JPanel memorySettings = new JPanel(new GridLayout(2, 2));
+        JPanel memorySettings = new JPanel(new GridLayout(3, 2));
         JLabel minMemoryLabel = new JLabel(
             language.getString("gui.instanceSettingsDialog.javaTab.memorySettings.minimum") +
                 ":");
@@ -79,6 +79,18 @@ public class JavaTab extends Tab {
         JTextField maxMemoryField = new JTextField();
         maxMemoryField.setText(String.valueOf(instance.getMaximumMemoryInMegabytes()));
         maxMemoryField.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT, "2048");
+        JCheckBox autoMemoryCheckBox = new JCheckBox(
+            language.getString("gui.instanceSettingsDialog.javaTab.memorySettings.auto")
+        );
+        autoMemoryCheckBox.setSelected(instance.isAutoMemory());
+        autoMemoryCheckBox.addActionListener(e -> {
+            minMemoryField.setEnabled(!autoMemoryCheckBox.isSelected());
+            maxMemoryField.setEnabled(!autoMemoryCheckBox.isSelected());
+        });
+        minMemoryField.setEnabled(!instance.isAutoMemory());
+        maxMemoryField.setEnabled(!instance.isAutoMemory());
+        memorySettings.add(autoMemoryCheckBox);
+        memorySettings.add(new JLabel());
         memorySettings.add(minMemoryLabel);
         memorySettings.add(minMemoryField);
         memorySettings.add(maxMemoryLabel);
@@ -184,6 +196,8 @@ public class JavaTab extends Tab {
         this.getDialog().addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                instance.setAutoMemory(autoMemoryCheckBox.isSelected());
+
                 String minMemory = minMemoryField.getText();
                 if (minMemory.isEmpty()) {
                     minMemory = "512";
@@ -107,7 +107,7 @@ public class ModInstaller {
                 jarMod.setName(fileName);
                 jarMod.setFileName(fileName);
 
-                Files.copy(jarModPath, instance.getJarModPath(jarMod));
+                CRLauncher.getInstance().getBlobStore().store(jarModPath, instance.getJarModPath(jarMod));
                 jarMods.add(jarMod);
 
                 return jarMod;
@@ -368,10 +368,7 @@ public class ModInstaller {
                 Path modPathInFolder = modsDir.resolve(jarModPath.getFileName());
                 mod.setFileName(modPathInFolder.getFileName().toString());
 
-                if (Files.exists(modPathInFolder)) {
-                    FileUtils.delete(modPathInFolder);
-                }
-                Files.copy(jarModPath, modPathInFolder);
+                CRLauncher.getInstance().getBlobStore().store(jarModPath, modPathInFolder);
 
                 UIManager.put("FileChooser.readOnly", Boolean.FALSE);
 
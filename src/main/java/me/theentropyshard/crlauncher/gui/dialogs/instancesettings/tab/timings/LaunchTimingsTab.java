@@ -0,0 +1,250 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.timings;
+
+import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.cosmic.LaunchHistory;
+import me.theentropyshard.crlauncher.cosmic.LaunchRecord;
+import me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.Tab;
+import me.theentropyshard.crlauncher.gui.utils.MessageBox;
+import me.theentropyshard.crlauncher.gui.utils.Worker;
+import me.theentropyshard.crlauncher.instance.Instance;
+import me.theentropyshard.crlauncher.language.Language;
+import me.theentropyshard.crlauncher.language.LanguageSection;
+import me.theentropyshard.crlauncher.logging.Log;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+public class LaunchTimingsTab extends Tab {
+    private final LaunchHistory history;
+    private final LaunchesTableModel launchesModel;
+    private final PhasesTableModel phasesModel;
+    private final JTable launchesTable;
+
+    private List<LaunchRecord> records;
+
+    public LaunchTimingsTab(Instance instance, JDialog dialog) {
+        super(CRLauncher.getInstance().getLanguage().getString("gui.instanceSettingsDialog.launchTimingsTab.name"), instance, dialog);
+
+        Language language = CRLauncher.getInstance().getLanguage();
+        LanguageSection section = language.getSection("gui.instanceSettingsDialog.launchTimingsTab");
+
+        JPanel root = this.getRoot();
+        root.setBorder(new EmptyBorder(3, 3, 3, 3));
+        root.setLayout(new BorderLayout());
+
+        this.history = new LaunchHistory(instance.getLaunchHistoryFile());
+        this.records = List.of();
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.setBorder(new EmptyBorder(0, 4, 3, 4));
+
+        topPanel.add(new JLabel(section.getString("readyMarker") + ": "), BorderLayout.WEST);
+
+        JTextField readyMarkerField = new JTextField(instance.getLaunchReadyMarker());
+        readyMarkerField.setToolTipText(section.getString("readyMarkerTooltip"));
+        readyMarkerField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                instance.setLaunchReadyMarker(readyMarkerField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                instance.setLaunchReadyMarker(readyMarkerField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                instance.setLaunchReadyMarker(readyMarkerField.getText());
+            }
+        });
+        topPanel.add(readyMarkerField, BorderLayout.CENTER);
+
+        JButton exportButton = new JButton(section.getString("export"));
+        exportButton.addActionListener(e -> this.export(section));
+        topPanel.add(exportButton, BorderLayout.EAST);
+
+        root.add(topPanel, BorderLayout.NORTH);
+
+        this.launchesModel = new LaunchesTableModel(section);
+        this.launchesTable = new JTable(this.launchesModel);
+        this.launchesTable.getTableHeader().setReorderingAllowed(false);
+        this.launchesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        this.phasesModel = new PhasesTableModel(section);
+        JTable phasesTable = new JTable(this.phasesModel);
+        phasesTable.getTableHeader().setReorderingAllowed(false);
+        phasesTable.setDefaultRenderer(LaunchRecord.Phase.class, new TimelineRenderer(this.phasesModel));
+        phasesTable.getColumnModel().getColumn(3).setPreferredWidth(300);
+
+        this.launchesTable.getSelectionModel().addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting()) {
+                return;
+            }
+
+            int row = this.launchesTable.getSelectedRow();
+            this.phasesModel.setRecord(row == -1 ? null : this.launchesModel.recordAt(row));
+        });
+
+        JSplitPane splitPane = new JSplitPane(
+            JSplitPane.VERTICAL_SPLIT,
+            new JScrollPane(this.launchesTable),
+            new JScrollPane(phasesTable)
+        );
+        splitPane.setResizeWeight(0.5);
+        root.add(splitPane, BorderLayout.CENTER);
+    }
+
+    @Override
+    public void shown() {
+        new Worker<List<LaunchRecord>, Void>("loading launch timings") {
+            @Override
+            protected List<LaunchRecord> work() throws Exception {
+                List<LaunchRecord> records = new ArrayList<>(LaunchTimingsTab.this.history.load());
+
+                // Newest first
+                Collections.reverse(records);
+
+                return records;
+            }
+
+            @Override
+            protected void done() {
+                List<LaunchRecord> records;
+
+                try {
+                    records = this.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.error("Could not load launch timings", e);
+
+                    return;
+                }
+
+                if (records == null) {
+                    return;
+                }
+
+                LaunchTimingsTab.this.records = records;
+                LaunchTimingsTab.this.launchesModel.setRecords(records);
+
+                if (!records.isEmpty()) {
+                    LaunchTimingsTab.this.launchesTable.setRowSelectionInterval(0, 0);
+                }
+            }
+        }.execute();
+    }
+
+    private void export(LanguageSection section) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        fileChooser.setFileFilter(new FileNameExtensionFilter(section.getString("csvFiles"), "csv"));
+        fileChooser.setSelectedFile(new File(this.getInstance().getName() + "-launch-timings.csv"));
+
+        if (fileChooser.showSaveDialog(this.getDialog()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File saveAs = fileChooser.getSelectedFile();
+
+        if (saveAs == null) {
+            return;
+        }
+
+        List<LaunchRecord> records = new ArrayList<>(this.records);
+        Collections.reverse(records);
+
+        new Worker<Void, Void>("exporting launch timings") {
+            @Override
+            protected Void work() {
+                try {
+                    LaunchHistory.exportCsv(records, saveAs.toPath());
+                } catch (IOException e) {
+                    Log.error("Could not export launch timings to " + saveAs, e);
+
+                    MessageBox.showErrorMessage(CRLauncher.frame, section.getString("exportFailed") + ": " + e.getMessage());
+                }
+
+                return null;
+            }
+        }.execute();
+    }
+
+    /**
+     * Draws a phase as a bar, or an event as a tick, on a timeline spanning the whole launch
+     */
+    private static final class TimelineRenderer extends JComponent implements TableCellRenderer {
+        private final PhasesTableModel model;
+
+        private LaunchRecord.Phase phase;
+        private boolean selected;
+
+        public TimelineRenderer(PhasesTableModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            this.phase = (LaunchRecord.Phase) value;
+            this.selected = isSelected;
+            this.setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int width = this.getWidth();
+            int height = this.getHeight();
+
+            g.setColor(this.getBackground());
+            g.fillRect(0, 0, width, height);
+
+            long total = this.model.getTotal();
+
+            if (this.phase == null || total <= 0) {
+                return;
+            }
+
+            int x = (int) (this.phase.start() * (width - 1) / total);
+
+            Color color = UIManager.getColor(this.selected ? "Table.selectionForeground" : "Component.accentColor");
+            g.setColor(color == null ? Color.GRAY : color);
+
+            if (this.phase.isEvent()) {
+                g.fillRect(x, 2, 2, height - 4);
+            } else {
+                int barWidth = Math.max(1, (int) (this.phase.duration() * (width - 1) / total));
+                g.fillRect(x, 4, barWidth, height - 8);
+            }
+        }
+    }
+}
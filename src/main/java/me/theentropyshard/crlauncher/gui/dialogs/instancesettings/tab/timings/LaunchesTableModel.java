@@ -0,0 +1,100 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.timings;
+
+import me.theentropyshard.crlauncher.cosmic.LaunchRecord;
+import me.theentropyshard.crlauncher.cosmic.LaunchTimer;
+import me.theentropyshard.crlauncher.language.LanguageSection;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LaunchesTableModel extends AbstractTableModel {
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    private final String[] columnNames;
+    private final List<LaunchRecord> records;
+
+    public LaunchesTableModel(LanguageSection section) {
+        this.columnNames = new String[]{
+            section.getString("table.date"),
+            section.getString("table.version"),
+            section.getString("table.loader"),
+            section.getString("table.java"),
+            section.getString("table.mods"),
+            section.getString("table.preparation"),
+            section.getString("table.firstOutput"),
+            section.getString("table.ready")
+        };
+        this.records = new ArrayList<>();
+    }
+
+    public void setRecords(List<LaunchRecord> records) {
+        this.records.clear();
+        this.records.addAll(records);
+
+        this.fireTableDataChanged();
+    }
+
+    public LaunchRecord recordAt(int rowIndex) {
+        return this.records.get(rowIndex);
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.records.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        LaunchRecord record = this.records.get(rowIndex);
+
+        return switch (columnIndex) {
+            case 0 -> LaunchesTableModel.TIME_FORMATTER.format(Instant.ofEpochMilli(record.time()));
+            case 1 -> record.cosmicVersion();
+            case 2 -> record.loaderVersion() == null ? record.modLoader() : record.modLoader() + " " + record.loaderVersion();
+            case 3 -> record.javaVersion() == 0 ? "" : String.valueOf(record.javaVersion());
+            case 4 -> String.valueOf(record.modCount());
+            case 5 -> LaunchesTableModel.millis(record.getPhase(LaunchTimer.SPAWN) == null ? -1L :
+                record.getPhase(LaunchTimer.SPAWN).start());
+            case 6 -> LaunchesTableModel.millis(record.getEnd(LaunchTimer.FIRST_OUTPUT));
+            case 7 -> LaunchesTableModel.millis(record.getEnd(LaunchTimer.READY));
+            default -> null;
+        };
+    }
+
+    static String millis(long millis) {
+        return millis < 0 ? "-" : millis + " ms";
+    }
+}
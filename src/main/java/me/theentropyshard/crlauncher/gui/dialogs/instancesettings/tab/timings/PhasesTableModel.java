@@ -0,0 +1,102 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.gui.dialogs.instancesettings.tab.timings;
+
+import me.theentropyshard.crlauncher.cosmic.LaunchRecord;
+import me.theentropyshard.crlauncher.language.LanguageSection;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class PhasesTableModel extends AbstractTableModel {
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, String.class, String.class, LaunchRecord.Phase.class};
+
+    private final String[] columnNames;
+    private final List<LaunchRecord.Phase> phases;
+
+    private long total;
+
+    public PhasesTableModel(LanguageSection section) {
+        this.columnNames = new String[]{
+            section.getString("table.phase"),
+            section.getString("table.start"),
+            section.getString("table.duration"),
+            section.getString("table.timeline")
+        };
+        this.phases = new ArrayList<>();
+    }
+
+    public void setRecord(LaunchRecord record) {
+        this.phases.clear();
+        this.total = 0L;
+
+        if (record != null) {
+            this.phases.addAll(record.phases());
+            this.phases.sort(Comparator.comparingLong(LaunchRecord.Phase::start));
+
+            for (LaunchRecord.Phase phase : this.phases) {
+                this.total = Math.max(this.total, phase.end());
+            }
+        }
+
+        this.fireTableDataChanged();
+    }
+
+    /**
+     * @return end of the last phase, the length of the whole timeline
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.phases.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return PhasesTableModel.COLUMN_CLASSES[columnIndex];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        LaunchRecord.Phase phase = this.phases.get(rowIndex);
+
+        return switch (columnIndex) {
+            case 0 -> phase.name();
+            case 1 -> LaunchesTableModel.millis(phase.start());
+            case 2 -> phase.isEvent() ? "" : LaunchesTableModel.millis(phase.duration());
+            case 3 -> phase;
+            default -> null;
+        };
+    }
+}
@@ -32,7 +32,6 @@ import me.theentropyshard.crlauncher.gui.utils.Worker;
 import me.theentropyshard.crlauncher.instance.Instance;
 import me.theentropyshard.crlauncher.logging.Log;
 import me.theentropyshard.crlauncher.network.download.HttpDownload;
-import me.theentropyshard.crlauncher.network.progress.ProgressNetworkInterceptor;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.ListUtils;
 import me.theentropyshard.crlauncher.utils.Pair;
@@ -40,7 +39,6 @@ import me.theentropyshard.crlauncher.utils.StreamUtils;
 import me.theentropyshard.crlauncher.utils.json.Json;
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.model.FileHeader;
-import okhttp3.OkHttpClient;
 
 import javax.swing.*;
 import java.io.IOException;
@@ -79,10 +77,6 @@ public class ModDownloadWorker extends Worker<Void, Pair<Mod, ModLoader>> {
         ProgressDialog progressDialog = new ProgressDialog("Downloading " + this.file.getName());
         progressDialog.setStage("Downloading mod...");
 
-        OkHttpClient httpClient = CRLauncher.getInstance().getHttpClient().newBuilder()
-            .addNetworkInterceptor(new ProgressNetworkInterceptor(progressDialog))
-            .build();
-
         Path tmpDir = CRLauncher.getInstance().getWorkDir().resolve("tmp");
         FileUtils.createDirectoryIfNotExists(tmpDir);
 
@@ -91,12 +85,12 @@ public class ModDownloadWorker extends Worker<Void, Pair<Mod, ModLoader>> {
         HttpDownload download = new HttpDownload.Builder()
             .url(this.file.getUrl())
             .expectedSize(this.file.getSize())
-            .httpClient(httpClient)
+            .progressListener(progressDialog)
             .saveAs(saveAs)
             .build();
 
         SwingUtilities.invokeLater(() -> progressDialog.setVisible(true));
-        download.execute();
+        CRLauncher.getInstance().getDownloadScheduler().download(download);
         SwingUtilities.invokeLater(() -> progressDialog.getDialog().dispose());
 
         if (loaders.size() == 0) {
@@ -145,9 +139,8 @@ public class ModDownloadWorker extends Worker<Void, Pair<Mod, ModLoader>> {
 
         FileUtils.createDirectoryIfNotExists(modFolder);
 
-        Path modPath = Files.copy(
-            saveAs, modFolder.resolve(saveAs.getFileName()), StandardCopyOption.REPLACE_EXISTING
-        );
+        Path modPath = modFolder.resolve(saveAs.getFileName());
+        CRLauncher.getInstance().getBlobStore().store(saveAs, modPath);
 
         mod.setFileName(modPath.getFileName().toString());
         mod.setActive(true);
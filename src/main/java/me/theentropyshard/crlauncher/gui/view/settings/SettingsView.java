@@ -20,6 +20,7 @@ package me.theentropyshard.crlauncher.gui.view.settings;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import me.theentropyshard.crlauncher.CRLauncher;
+import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
 import me.theentropyshard.crlauncher.gui.utils.SwingUtils;
 import me.theentropyshard.crlauncher.language.Language;
 import me.theentropyshard.crlauncher.Settings;
@@ -47,6 +48,7 @@ public class SettingsView extends JPanel {
     public static final String ALWAYS_CENTERED = "gui.settingsView.ui.dialogPosition.options.alwaysCentered";
     public static final String AMOUNT_OF_TIME = "gui.settingsView.ui.amountOfTime";
     public static final String CONSOLE_AT_STARTUP = "gui.settingsView.ui.showConsoleAtStartup";
+    public static final String CONSOLE_HISTORY = "gui.settingsView.ui.consoleHistoryLines";
     public static final String OTHER_BORDER = "gui.settingsView.other.borderName";
     public static final String WRITE_PRETTY_JSON = "gui.settingsView.other.writePrettyJson";
     public static final String GAME_LAUNCH_LABEL = "gui.settingsView.other.onGameLaunch.label";
@@ -64,6 +66,8 @@ public class SettingsView extends JPanel {
     public static final String APPEND_USERNAME = "gui.settingsView.other.appendUsername";
     public static final String LANGUAGE = "gui.settingsView.other.language";
     public static final String DISABLE_CHECK = "gui.settingsView.other.disableFileIntegrityCheck";
+    public static final String FORCE_REVERIFY = "gui.settingsView.other.forceFileReverify";
+    public static final String CLASS_DATA_SHARING = "gui.settingsView.other.classDataSharing";
     public static final String STORAGE_BORDER = "gui.settingsView.storageSettings.borderName";
     public static final String VERSIONS_PATH_LABEL = "gui.settingsView.storageSettings.versionsPathLabel";
     public static final String VERSIONS_PATH_PLACEHOLDER = "gui.settingsView.storageSettings.versionsPathFieldPlaceholder";
@@ -80,6 +84,7 @@ public class SettingsView extends JPanel {
     private final JLabel dialogPositionLabel;
     private final JCheckBox showAmountOfTime;
     private final JCheckBox showConsoleAtStartup;
+    private final JLabel consoleHistoryLabel;
     private final TitledBorder storageSettingsBorder;
     private final JCheckBox versionsPathCheckbox;
     private final JTextField versionsPathField;
@@ -101,6 +106,8 @@ public class SettingsView extends JPanel {
     private final JCheckBox appendUsername;
     private final JLabel languageLabel;
     private final JCheckBox disableFileIntegrityCheck;
+    private final JCheckBox forceFileReverify;
+    private final JCheckBox classDataSharing;
     private final JComboBox<String> whenLaunchesBehavior;
     private final JComboBox<String> whenExitsBehavior;
     private final JComboBox<String> position;
@@ -160,7 +167,7 @@ public class SettingsView extends JPanel {
         }
 
         {
-            JPanel uiSettings = new JPanel(new GridLayout(3, 2));
+            JPanel uiSettings = new JPanel(new GridLayout(4, 2));
             this.uiSettingsBorder = new TitledBorder(language.getString(SettingsView.UI_BORDER));
             uiSettings.setBorder(this.uiSettingsBorder);
 
@@ -212,6 +219,24 @@ public class SettingsView extends JPanel {
             });
             uiSettings.add(this.showConsoleAtStartup);
 
+            uiSettings.add(Box.createVerticalGlue());
+
+            this.consoleHistoryLabel = new JLabel(language.getString(SettingsView.CONSOLE_HISTORY) + ": ");
+            uiSettings.add(this.consoleHistoryLabel);
+
+            JSpinner consoleHistory = new JSpinner(new SpinnerNumberModel(
+                Math.max(1000, CRLauncher.getInstance().getSettings().consoleHistoryLines), 1000, 1_000_000, 1000
+            ));
+            consoleHistory.addChangeListener(e -> {
+                int lines = (Integer) consoleHistory.getValue();
+                CRLauncher.getInstance().getSettings().consoleHistoryLines = lines;
+
+                if (LauncherConsole.instance != null) {
+                    LauncherConsole.instance.setHistorySize(lines);
+                }
+            });
+            uiSettings.add(consoleHistory);
+
             gbc.gridy++;
             root.add(uiSettings, gbc);
         }
@@ -361,7 +386,7 @@ public class SettingsView extends JPanel {
         }
 
         {
-            JPanel otherSettings = new JPanel(new GridLayout(8, 3));
+            JPanel otherSettings = new JPanel(new GridLayout(9, 3));
             this.otherSettingsBorder = new TitledBorder(language.getString(SettingsView.OTHER_BORDER));
             otherSettings.setBorder(this.otherSettingsBorder);
 
@@ -484,6 +509,24 @@ public class SettingsView extends JPanel {
             });
             otherSettings.add(this.disableFileIntegrityCheck);
 
+            this.forceFileReverify = new JCheckBox(language.getString(SettingsView.FORCE_REVERIFY));
+            this.forceFileReverify.setSelected(CRLauncher.getInstance().getSettings().forceFileReverify);
+            this.forceFileReverify.addActionListener(e -> {
+                boolean selected = this.forceFileReverify.isSelected();
+                CRLauncher.getInstance().getSettings().forceFileReverify = selected;
+                CRLauncher.getInstance().getVerificationIndex().setForceReverify(selected);
+            });
+            otherSettings.add(this.forceFileReverify);
+
+            this.classDataSharing = new JCheckBox(language.getString(SettingsView.CLASS_DATA_SHARING));
+            this.classDataSharing.setSelected(CRLauncher.getInstance().getSettings().classDataSharing);
+            this.classDataSharing.addActionListener(e -> {
+                CRLauncher.getInstance().getSettings().classDataSharing = this.classDataSharing.isSelected();
+            });
+            otherSettings.add(this.classDataSharing);
+
+            otherSettings.add(Box.createHorizontalGlue());
+
             gbc.gridy++;
             gbc.weighty = 1;
             root.add(otherSettings, gbc);
@@ -533,6 +576,7 @@ public class SettingsView extends JPanel {
 
         this.showAmountOfTime.setText(language.getString(SettingsView.AMOUNT_OF_TIME));
         this.showConsoleAtStartup.setText(language.getString(SettingsView.CONSOLE_AT_STARTUP));
+        this.consoleHistoryLabel.setText(language.getString(SettingsView.CONSOLE_HISTORY) + ": ");
         this.otherSettingsBorder.setTitle(language.getString(SettingsView.OTHER_BORDER));
         this.prettyJson.setText(language.getString(SettingsView.WRITE_PRETTY_JSON));
 
@@ -587,5 +631,7 @@ public class SettingsView extends JPanel {
         this.appendUsername.setText(language.getString(SettingsView.APPEND_USERNAME));
         this.languageLabel.setText(language.getString(SettingsView.LANGUAGE));
         this.disableFileIntegrityCheck.setText(language.getString(SettingsView.DISABLE_CHECK));
+        this.forceFileReverify.setText(language.getString(SettingsView.FORCE_REVERIFY));
+        this.classDataSharing.setText(language.getString(SettingsView.CLASS_DATA_SHARING));
     }
 }
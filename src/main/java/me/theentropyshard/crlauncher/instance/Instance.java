@@ -43,6 +43,7 @@ public class Instance {
 
     private static final String JARMODS_DIR_NAME = "jarmods";
     private static final String DISABLED_JARMODS_DIR_NAME = "disabledjarmods";
+    private static final String MERGED_CLIENT_DIR_NAME = "mergedclient";
 
     private static final String FABRIC_MODS_DIR_NAME = "fabricmods";
     private static final String DISABLED_FABRIC_MODS_DIR_NAME = "disabledfabricmods";
@@ -53,6 +54,11 @@ public class Instance {
     private static final String PUZZLE_MODS_DIR_NAME = "pmods";
     private static final String DISABLED_PUZZLE_MODS_DIR_NAME = "disabledpuzzlemods";
 
+    private static final String LOGS_DIR_NAME = "logs";
+    private static final String LAUNCH_HISTORY_FILE_NAME = "launch-history.json";
+    private static final String LAUNCH_PLAN_FILE_NAME = "launch-plan.json";
+    private static final String LAUNCH_ARGUMENTS_FILE_NAME = "launch-plan.args";
+
     public static final String DATA_MODS_DIR_NAME = "mods";
     public static final String DISABLED_DATA_MODS_DIR_NAME = "disabledmods";
 
@@ -70,6 +76,7 @@ public class Instance {
     private String customWindowTitle;
     private int minimumMemoryInMegabytes = 512;
     private int maximumMemoryInMegabytes = 2048;
+    private boolean autoMemory;
     private LocalDateTime lastTimePlayed = LocalDateTime.MIN;
     private long lastPlaytime;
     private long totalPlaytime;
@@ -85,6 +92,7 @@ public class Instance {
     private boolean autoUpdateToLatest;
     private Set<String> customJvmFlags;
     private int currentFlagsOption;
+    private String launchReadyMarker;
     private transient volatile boolean running;
 
     public Instance() {
@@ -288,6 +296,22 @@ public class Instance {
         return this.getCosmicDir().resolve(Instance.DISABLED_DATA_MODS_DIR_NAME);
     }
 
+    public Path getLogsDir() {
+        return this.workDir.resolve(Instance.LOGS_DIR_NAME);
+    }
+
+    public Path getLaunchHistoryFile() {
+        return this.workDir.resolve(Instance.LAUNCH_HISTORY_FILE_NAME);
+    }
+
+    public Path getLaunchPlanFile() {
+        return this.workDir.resolve(Instance.LAUNCH_PLAN_FILE_NAME);
+    }
+
+    public Path getLaunchArgumentsFile() {
+        return this.workDir.resolve(Instance.LAUNCH_ARGUMENTS_FILE_NAME);
+    }
+
     public Path getJarModsDir() {
         return this.workDir.resolve(Instance.JARMODS_DIR_NAME);
     }
@@ -296,6 +320,10 @@ public class Instance {
         return this.workDir.resolve(Instance.DISABLED_JARMODS_DIR_NAME);
     }
 
+    public Path getMergedClientDir() {
+        return this.workDir.resolve(Instance.MERGED_CLIENT_DIR_NAME);
+    }
+
     public List<Mod> getJarMods() {
         return this.jarMods;
     }
@@ -424,6 +452,28 @@ public class Instance {
         this.maximumMemoryInMegabytes = maximumMemoryInMegabytes;
     }
 
+    /**
+     * @return whether the heap is sized from the host memory instead of the configured values
+     */
+    public boolean isAutoMemory() {
+        return this.autoMemory;
+    }
+
+    public void setAutoMemory(boolean autoMemory) {
+        this.autoMemory = autoMemory;
+    }
+
+    /**
+     * @return text of the game output line that counts as the game being ready, null or empty if not tracked
+     */
+    public String getLaunchReadyMarker() {
+        return this.launchReadyMarker;
+    }
+
+    public void setLaunchReadyMarker(String launchReadyMarker) {
+        this.launchReadyMarker = launchReadyMarker;
+    }
+
     public LocalDateTime getLastTimePlayed() {
         return this.lastTimePlayed;
     }
@@ -0,0 +1,177 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.OperatingSystem;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Picks heap sizes for the game from the memory of the host and checks them against JVM flags.
+ */
+public final class HeapSizer {
+    // Heap sizes are kept a multiple of -XX:G1HeapRegionSize used by the built-in flags
+    private static final int REGION_MEGABYTES = 16;
+
+    private static final int MIN_HEAP_MEGABYTES = 1024;
+    private static final int BASE_HEAP_MEGABYTES = 2048;
+    private static final int MAX_AUTO_HEAP_MEGABYTES = 8192;
+    private static final int PER_MOD_MEGABYTES = 48;
+
+    // Left for the system and the launcher itself
+    private static final int RESERVED_MEGABYTES = 2048;
+
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+    /**
+     * Sizes the heap to fit the mods, while leaving memory for the system and the other running instances.
+     *
+     * @param otherRunning number of other instances currently running
+     * @param modCount     number of active mods of the instance
+     */
+    public static Heap auto(int otherRunning, int modCount) {
+        long total = HeapSizer.getTotalMemoryMegabytes();
+
+        if (total <= 0) {
+            return new Heap(HeapSizer.MIN_HEAP_MEGABYTES, HeapSizer.BASE_HEAP_MEGABYTES);
+        }
+
+        long reserved = Math.max(HeapSizer.RESERVED_MEGABYTES, total / 4);
+        long share = (total - reserved) / (otherRunning + 1);
+        long wanted = HeapSizer.BASE_HEAP_MEGABYTES + (long) HeapSizer.PER_MOD_MEGABYTES * modCount;
+
+        long max = Math.min(wanted, Math.min(share, HeapSizer.MAX_AUTO_HEAP_MEGABYTES));
+        max = HeapSizer.align(Math.max(HeapSizer.MIN_HEAP_MEGABYTES, max));
+
+        // Lets the heap grow instead of committing everything up front
+        long min = Math.max(512, HeapSizer.align(max / 2));
+
+        return new Heap((int) min, (int) max);
+    }
+
+    private static long align(long megabytes) {
+        return megabytes / HeapSizer.REGION_MEGABYTES * HeapSizer.REGION_MEGABYTES;
+    }
+
+    /**
+     * @return warnings about flags that do not work well with the heap, empty if there are none
+     */
+    public static List<String> check(Heap heap, Collection<String> flags) {
+        List<String> warnings = new ArrayList<>();
+
+        long total = HeapSizer.getTotalMemoryMegabytes();
+        if (total > 0 && heap.maximumMegabytes() > total) {
+            warnings.add("Maximum heap of " + heap.maximumMegabytes() + " MB exceeds physical memory of " + total + " MB");
+        }
+
+        if (flags.contains("-XX:+AlwaysPreTouch")) {
+            long free = HeapSizer.getFreeMemoryMegabytes();
+
+            if (free > 0 && heap.minimumMegabytes() > free) {
+                warnings.add("-XX:+AlwaysPreTouch commits the whole initial heap of " + heap.minimumMegabytes() +
+                    " MB at startup, but only " + free + " MB of memory is free, startup will be slow");
+            }
+        }
+
+        if (flags.contains("-XX:+UseLargePages") && OperatingSystem.isLinux()) {
+            long hugePages = HeapSizer.getFreeHugePagesMegabytes();
+
+            if (hugePages >= 0 && hugePages < heap.maximumMegabytes()) {
+                warnings.add("-XX:+UseLargePages is set, but only " + hugePages + " MB of huge pages are free for a heap of " +
+                    heap.maximumMegabytes() + " MB, the rest will use regular pages");
+            }
+        }
+
+        return warnings;
+    }
+
+    /**
+     * @return physical memory in megabytes, or -1 if it cannot be determined
+     */
+    public static long getTotalMemoryMegabytes() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+        if (bean instanceof com.sun.management.OperatingSystemMXBean sunBean) {
+            return sunBean.getTotalMemorySize() / (1024L * 1024L);
+        }
+
+        return -1L;
+    }
+
+    /**
+     * @return free physical memory in megabytes, or -1 if it cannot be determined
+     */
+    public static long getFreeMemoryMegabytes() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+        if (bean instanceof com.sun.management.OperatingSystemMXBean sunBean) {
+            return sunBean.getFreeMemorySize() / (1024L * 1024L);
+        }
+
+        return -1L;
+    }
+
+    private static long getFreeHugePagesMegabytes() {
+        long freePages = -1L;
+        long pageSizeKilobytes = -1L;
+
+        try {
+            for (String line : Files.readAllLines(HeapSizer.MEMINFO)) {
+                String[] parts = line.split("\\s+");
+
+                if (parts.length < 2) {
+                    continue;
+                }
+
+                if (parts[0].equals("HugePages_Free:")) {
+                    freePages = Long.parseLong(parts[1]);
+                } else if (parts[0].equals("Hugepagesize:")) {
+                    pageSizeKilobytes = Long.parseLong(parts[1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.debug("Could not read huge page info: {}", e.getMessage());
+
+            return -1L;
+        }
+
+        if (freePages < 0 || pageSizeKilobytes < 0) {
+            return -1L;
+        }
+
+        return freePages * pageSizeKilobytes / 1024L;
+    }
+
+    public record Heap(int minimumMegabytes, int maximumMegabytes) {
+
+    }
+
+    private HeapSizer() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.OperatingSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Hardware facts that decide which JVM flags are useful.
+ *
+ * @param cores     available processors
+ * @param numaNodes number of NUMA nodes, 1 if unknown
+ * @param hugePages number of reserved huge pages of any size, 0 where the JVM cannot use them without setup
+ */
+public record HostInfo(int cores, int numaNodes, long hugePages) {
+    private static final Path NODES_DIR = Paths.get("/sys/devices/system/node");
+    private static final Path HUGE_PAGES_DIR = Paths.get("/sys/kernel/mm/hugepages");
+
+    private static HostInfo current;
+
+    /**
+     * @return facts about this machine, detected on first call
+     */
+    public static synchronized HostInfo get() {
+        if (HostInfo.current == null) {
+            HostInfo.current = HostInfo.detect();
+        }
+
+        return HostInfo.current;
+    }
+
+    private static HostInfo detect() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Large pages need extra privileges on Windows and are not supported on macOS
+        if (!OperatingSystem.isLinux()) {
+            return new HostInfo(cores, 1, 0L);
+        }
+
+        int numaNodes = 0;
+        long hugePages = 0L;
+
+        try {
+            if (Files.isDirectory(HostInfo.NODES_DIR)) {
+                numaNodes = FileUtils.list(HostInfo.NODES_DIR, path -> path.getFileName().toString().matches("node\\d+")).size();
+            }
+
+            if (Files.isDirectory(HostInfo.HUGE_PAGES_DIR)) {
+                for (Path sizeDir : FileUtils.list(HostInfo.HUGE_PAGES_DIR, Files::isDirectory)) {
+                    Path countFile = sizeDir.resolve("nr_hugepages");
+
+                    if (Files.exists(countFile)) {
+                        hugePages += Long.parseLong(FileUtils.readUtf8(countFile).trim());
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Treated as a machine without NUMA and huge pages
+        }
+
+        return new HostInfo(cores, Math.max(1, numaNodes), hugePages);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+import me.theentropyshard.crlauncher.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What a Java installation supports, as reported by {@code -XX:+PrintFlagsFinal -version}.
+ *
+ * @param size           size of the java binary when probed
+ * @param lastModified   modification time of the java binary when probed
+ * @param featureVersion major Java version, 8 for 1.8
+ * @param flags          names of all flags the JVM accepts, including experimental and diagnostic ones
+ */
+public record JavaProbe(long size, long lastModified, int featureVersion, Set<String> flags) {
+    private static final Pattern VERSION_PATTERN = Pattern.compile("version \"(1\\.)?(\\d+)");
+    private static final long TIMEOUT_SECONDS = 30L;
+
+    public static JavaProbe run(Path javaPath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(javaPath, BasicFileAttributes.class);
+
+        // Output goes to a file, so a JVM that hangs with stdout open cannot block the timeout
+        Path outputFile = Files.createTempFile("java-probe", ".txt");
+
+        try {
+            Process process = new ProcessBuilder(
+                javaPath.toString(),
+                "-XX:+UnlockExperimentalVMOptions", "-XX:+UnlockDiagnosticVMOptions",
+                "-XX:+PrintFlagsFinal", "-version"
+            ).redirectErrorStream(true).redirectOutput(outputFile.toFile()).start();
+
+            try {
+                if (!process.waitFor(JavaProbe.TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+
+                    throw new IOException("Probing " + javaPath + " timed out");
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while probing " + javaPath, e);
+            }
+
+            return JavaProbe.parse(javaPath, attributes, outputFile, process.exitValue());
+        } finally {
+            try {
+                Files.deleteIfExists(outputFile);
+            } catch (IOException e) {
+                Log.warn("Could not delete " + outputFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static JavaProbe parse(Path javaPath, BasicFileAttributes attributes, Path outputFile, int exitCode) throws IOException {
+        Set<String> flags = new HashSet<>();
+        int featureVersion = -1;
+
+        try (BufferedReader reader = Files.newBufferedReader(outputFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Lines look like "     bool UseG1GC     = true     {product} {ergonomic}"
+                String[] parts = line.trim().split("\\s+");
+
+                if (parts.length >= 3 && parts[2].equals("=")) {
+                    flags.add(parts[1]);
+
+                    continue;
+                }
+
+                Matcher matcher = JavaProbe.VERSION_PATTERN.matcher(line);
+                if (featureVersion == -1 && matcher.find()) {
+                    featureVersion = Integer.parseInt(matcher.group(2));
+                }
+            }
+        }
+
+        if (flags.isEmpty()) {
+            throw new IOException(javaPath + " did not print its flags, exit code " + exitCode);
+        }
+
+        return new JavaProbe(attributes.size(), attributes.lastModifiedTime().toMillis(), featureVersion, flags);
+    }
+
+    public boolean isUpToDate(Path javaPath) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(javaPath, BasicFileAttributes.class);
+
+            return attributes.size() == this.size && attributes.lastModifiedTime().toMillis() == this.lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public boolean supports(String flag) {
+        return this.flags.contains(flag);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+import com.google.gson.reflect.TypeToken;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@link JavaProbe} results keyed by the path of the java binary, so each installation is only
+ * probed again after it changes
+ */
+public class JavaProbeCache {
+    private final Path cacheFile;
+    private final Map<String, JavaProbe> probes;
+
+    // Installations that could not be probed, only remembered for this session
+    private final Set<String> failures;
+
+    private volatile boolean dirty;
+
+    public JavaProbeCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.probes = new ConcurrentHashMap<>();
+        this.failures = ConcurrentHashMap.newKeySet();
+    }
+
+    public void load() throws IOException {
+        if (!Files.exists(this.cacheFile)) {
+            return;
+        }
+
+        Map<String, JavaProbe> loaded = Json.parse(FileUtils.readUtf8(this.cacheFile), new TypeToken<Map<String, JavaProbe>>() {}.getType());
+
+        if (loaded != null) {
+            this.probes.putAll(loaded);
+        }
+    }
+
+    public void save() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+
+        this.probes.keySet().removeIf(key -> !Files.exists(Path.of(key)));
+
+        FileUtils.writeUtf8(this.cacheFile, Json.write(this.probes));
+
+        this.dirty = false;
+    }
+
+    /**
+     * Returns what the installation supports, probing it if it was not probed yet or changed since.
+     * An installation that failed to probe is not probed again until the launcher restarts.
+     *
+     * @return the probe, or {@code null} if the installation could not be probed
+     */
+    public JavaProbe get(Path javaPath) {
+        String key = javaPath.toAbsolutePath().normalize().toString();
+        JavaProbe probe = this.probes.get(key);
+
+        if (probe != null && probe.isUpToDate(javaPath)) {
+            return probe;
+        }
+
+        if (this.failures.contains(key)) {
+            return null;
+        }
+
+        try {
+            probe = JavaProbe.run(javaPath);
+        } catch (IOException e) {
+            Log.warn("Could not probe " + javaPath + ": " + e.getMessage());
+
+            this.failures.add(key);
+
+            return null;
+        }
+
+        Log.info("Probed Java " + probe.featureVersion() + " at " + javaPath + ", " + probe.flags().size() + " flags");
+
+        this.probes.put(key, probe);
+        this.dirty = true;
+
+        return probe;
+    }
+}
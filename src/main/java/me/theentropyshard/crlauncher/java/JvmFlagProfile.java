@@ -0,0 +1,86 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+/**
+ * Built-in JVM flag sets, selected by index in the Java tab. The flags are templates,
+ * see {@link JvmFlagResolver} for how they are fitted to the Java installation and the host.
+ */
+public enum JvmFlagProfile {
+    CLIENT_AND_SERVER(1, true,
+        "-XX:+UnlockExperimentalVMOptions", "-XX:+UnlockDiagnosticVMOptions", "-XX:+AlwaysPreTouch",
+        "-XX:+DisableExplicitGC", "-XX:+UseNUMA", "-XX:NmethodSweepActivity=1", "-XX:ReservedCodeCacheSize=400M",
+        "-XX:NonNMethodCodeHeapSize=12M", "-XX:ProfiledCodeHeapSize=194M", "-XX:NonProfiledCodeHeapSize=194M",
+        "-XX:-DontCompileHugeMethods", "-XX:MaxNodeLimit=240000", "-XX:NodeLimitFudgeFactor=8000", "-XX:+UseVectorCmov",
+        "-XX:+PerfDisableSharedMem", "-XX:+UseFastUnorderedTimeStamps", "-XX:+UseCriticalJavaThreadPriority",
+        "-XX:ThreadPriorityPolicy=1", "-XX:AllocatePrefetchStyle=3", "-XX:+UseG1GC", "-XX:MaxGCPauseMillis=37",
+        "-XX:+PerfDisableSharedMem", "-XX:G1HeapRegionSize=16M", "-XX:G1NewSizePercent=23", "-XX:G1ReservePercent=20",
+        "-XX:SurvivorRatio=32", "-XX:G1MixedGCCountTarget=3", "-XX:G1HeapWastePercent=20",
+        "-XX:InitiatingHeapOccupancyPercent=10", "-XX:G1RSetUpdatingPauseTimePercent=0", "-XX:MaxTenuringThreshold=1",
+        "-XX:G1SATBBufferEnqueueingThresholdPercent=30", "-XX:G1ConcMarkStepDurationMillis=5.0",
+        "-XX:G1ConcRSHotCardLimit=16", "-XX:G1ConcRefinementServiceIntervalMillis=150", "-XX:GCTimeRatio=99",
+        "-XX:+UseLargePages", "-XX:LargePageSizeInBytes=2m"
+    ),
+    CLIENT(2, false,
+        "-XX:+UnlockExperimentalVMOptions", "-XX:+UseG1GC", "-XX:MaxGCPauseMillis=37", "-XX:+PerfDisableSharedMem",
+        "-XX:G1HeapRegionSize=16M", "-XX:G1NewSizePercent=23", "-XX:G1ReservePercent=20", "-XX:SurvivorRatio=32",
+        "-XX:G1MixedGCCountTarget=3", "-XX:G1HeapWastePercent=20", "-XX:InitiatingHeapOccupancyPercent=10",
+        "-XX:G1RSetUpdatingPauseTimePercent=0", "-XX:MaxTenuringThreshold=1", "-XX:G1SATBBufferEnqueueingThresholdPercent=30",
+        "-XX:G1ConcMarkStepDurationMillis=5.0", "-XX:G1ConcRSHotCardLimit=16",
+        "-XX:G1ConcRefinementServiceIntervalMillis=150", "-XX:GCTimeRatio=99"
+    );
+
+    private final int option;
+    private final boolean alternativeGcAllowed;
+    private final String[] flags;
+
+    JvmFlagProfile(int option, boolean alternativeGcAllowed, String... flags) {
+        this.option = option;
+        this.alternativeGcAllowed = alternativeGcAllowed;
+        this.flags = flags;
+    }
+
+    /**
+     * @return the profile for the index of the flags option, the first one for unknown indices
+     */
+    public static JvmFlagProfile byOption(int option) {
+        for (JvmFlagProfile profile : JvmFlagProfile.values()) {
+            if (profile.option == option) {
+                return profile;
+            }
+        }
+
+        return JvmFlagProfile.CLIENT_AND_SERVER;
+    }
+
+    public int getOption() {
+        return this.option;
+    }
+
+    /**
+     * @return whether a collector other than G1 may be chosen when the host suits it better
+     */
+    public boolean isAlternativeGcAllowed() {
+        return this.alternativeGcAllowed;
+    }
+
+    public String[] getFlags() {
+        return this.flags;
+    }
+}
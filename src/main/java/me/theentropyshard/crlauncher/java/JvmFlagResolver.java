@@ -0,0 +1,144 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.java;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fits a {@link JvmFlagProfile} to a Java installation and the host: flags the JVM does not know are dropped,
+ * so are flags the host cannot make use of, and the garbage collector is chosen.
+ */
+public final class JvmFlagResolver {
+    public static final String G1 = "G1";
+    public static final String ZGC = "ZGC";
+    public static final String SHENANDOAH = "Shenandoah";
+
+    // Concurrent collectors only pay off with enough cores to run next to the game
+    private static final int CONCURRENT_GC_MIN_CORES = 8;
+
+    private static final Set<String> LARGE_PAGE_FLAGS = Set.of("UseLargePages", "LargePageSizeInBytes");
+
+    private static final Set<String> G1_FLAGS = Set.of(
+        "UseG1GC", "MaxGCPauseMillis", "InitiatingHeapOccupancyPercent", "SurvivorRatio", "MaxTenuringThreshold"
+    );
+
+    /**
+     * @param probe what the installation supports, or {@code null} if unknown, in which case all flags are kept
+     */
+    public static Resolution resolve(JvmFlagProfile profile, JavaProbe probe, HostInfo host) {
+        String gc = JvmFlagResolver.chooseGc(profile, probe, host);
+
+        Set<String> flags = new LinkedHashSet<>();
+        List<String> dropped = new ArrayList<>();
+
+        for (String flag : profile.getFlags()) {
+            String name = JvmFlagResolver.getFlagName(flag);
+            String reason = null;
+
+            if (name == null) {
+                flags.add(flag);
+
+                continue;
+            }
+
+            if (probe != null && !probe.supports(name)) {
+                reason = "not supported by Java " + probe.featureVersion();
+            } else if (JvmFlagResolver.LARGE_PAGE_FLAGS.contains(name) && host.hugePages() <= 0) {
+                reason = "no huge pages reserved";
+            } else if (name.equals("UseNUMA") && host.numaNodes() <= 1) {
+                reason = "single NUMA node";
+            } else if (!gc.equals(JvmFlagResolver.G1) && (name.startsWith("G1") || JvmFlagResolver.G1_FLAGS.contains(name))) {
+                reason = "G1 only, using " + gc;
+            }
+
+            if (reason == null) {
+                flags.add(flag);
+            } else {
+                dropped.add(flag + " (" + reason + ")");
+            }
+        }
+
+        switch (gc) {
+            case JvmFlagResolver.ZGC -> {
+                flags.add("-XX:+UseZGC");
+
+                // Generational mode is opt-in on Java 21 and 22, and the only one after
+                if (probe.supports("ZGenerational") && probe.featureVersion() < 23) {
+                    flags.add("-XX:+ZGenerational");
+                }
+            }
+            case JvmFlagResolver.SHENANDOAH -> flags.add("-XX:+UseShenandoahGC");
+        }
+
+        return new Resolution(new ArrayList<>(flags), dropped, gc);
+    }
+
+    private static String chooseGc(JvmFlagProfile profile, JavaProbe probe, HostInfo host) {
+        if (!profile.isAlternativeGcAllowed() || probe == null || host.cores() < JvmFlagResolver.CONCURRENT_GC_MIN_CORES) {
+            return JvmFlagResolver.G1;
+        }
+
+        // Single generation ZGC collects too often for the allocation rate of the game
+        boolean generationalZgc = probe.supports("UseZGC") && (probe.supports("ZGenerational") || probe.featureVersion() >= 23);
+
+        if (generationalZgc) {
+            return JvmFlagResolver.ZGC;
+        }
+
+        if (probe.supports("UseShenandoahGC")) {
+            return JvmFlagResolver.SHENANDOAH;
+        }
+
+        return JvmFlagResolver.G1;
+    }
+
+    /**
+     * @return the name of a {@code -XX} flag, or {@code null} for other arguments
+     */
+    public static String getFlagName(String flag) {
+        if (!flag.startsWith("-XX:")) {
+            return null;
+        }
+
+        int start = 4;
+        if (flag.length() > start && (flag.charAt(start) == '+' || flag.charAt(start) == '-')) {
+            start++;
+        }
+
+        int end = flag.indexOf('=', start);
+
+        return flag.substring(start, end == -1 ? flag.length() : end);
+    }
+
+    /**
+     * @param flags   flags to pass, in order
+     * @param dropped flags of the profile that were left out, each with the reason
+     * @param gc      name of the chosen collector
+     */
+    public record Resolution(List<String> flags, List<String> dropped, String gc) {
+
+    }
+
+    private JvmFlagResolver() {
+        throw new UnsupportedOperationException();
+    }
+}
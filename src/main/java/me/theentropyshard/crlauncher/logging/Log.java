@@ -20,25 +20,20 @@ package me.theentropyshard.crlauncher.logging;
 
 import me.theentropyshard.crlauncher.cosmic.AnsiCosmicLogEvent;
 import me.theentropyshard.crlauncher.cosmic.TimeCosmicLogEvent;
+import me.theentropyshard.crlauncher.utils.ansi.StyledLine;
 
 import java.io.CharArrayWriter;
 import java.io.PrintWriter;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 public final class Log {
     private static final BlockingQueue<LogEvent> EVENT_QUEUE = new ArrayBlockingQueue<>(128);
     private static final boolean WRAP_ERR = true;
 
-    // https://github.com/MultiMC/Launcher/blob/bb04cb09a37e4396ba09068e7d8691ceb6e3cfdc/launcher/minecraft/MinecraftInstance.cpp#L773
-    private static final String JAVA_SYMBOL = "([a-zA-Z_$][a-zA-Z\\d_$]*\\.)+[a-zA-Z_$][a-zA-Z\\d_$]*";
-    private static final Pattern EXCEPTION_AT_PATTERN = Pattern.compile("\\s+at " + Log.JAVA_SYMBOL);
-    private static final Pattern CAUSED_BY_PATTERN = Pattern.compile("Caused by: " + Log.JAVA_SYMBOL);
-    private static final Pattern EXCEPTION_PATTERN = Pattern.compile("([a-zA-Z_$][a-zA-Z\\d_$]*\\.)+[a-zA-Z_$]?[a-zA-Z\\d_$]*(Exception|Error|Throwable)");
-    private static final Pattern MORE_PATTERN = Pattern.compile("\\.\\.\\. \\d+ more$");
-
     private static boolean started;
+    private static volatile LogLevel minLevel = LogLevel.DEBUG;
 
     public static void start() {
         if (Log.started) {
@@ -56,20 +51,84 @@ public final class Log {
         Log.started = true;
     }
 
+    /**
+     * Sets the least severe level that is logged. Messages below it are dropped before an event is created.
+     */
+    public static void setMinLevel(LogLevel level) {
+        Log.minLevel = level;
+    }
+
+    public static LogLevel getMinLevel() {
+        return Log.minLevel;
+    }
+
+    public static boolean isEnabled(LogLevel level) {
+        return level.isAtLeast(Log.minLevel);
+    }
+
     public static void info(String message) {
-        Log.EVENT_QUEUE.offer(new LogEvent(LogLevel.INFO, message));
+        Log.log(LogLevel.INFO, message);
+    }
+
+    /**
+     * @param pattern message where each {@code {}} is replaced with the next argument on the log thread
+     */
+    public static void info(String pattern, Object... args) {
+        Log.log(LogLevel.INFO, pattern, args);
+    }
+
+    public static void info(Supplier<String> message) {
+        Log.log(LogLevel.INFO, message);
     }
 
     public static void warn(String message) {
-        Log.EVENT_QUEUE.offer(new LogEvent(LogLevel.WARN, message));
+        Log.log(LogLevel.WARN, message);
+    }
+
+    public static void warn(String pattern, Object... args) {
+        Log.log(LogLevel.WARN, pattern, args);
+    }
+
+    public static void warn(Supplier<String> message) {
+        Log.log(LogLevel.WARN, message);
     }
 
     public static void error(String message) {
-        Log.EVENT_QUEUE.offer(new LogEvent(LogLevel.ERROR, message));
+        Log.log(LogLevel.ERROR, message);
+    }
+
+    public static void error(String pattern, Object... args) {
+        Log.log(LogLevel.ERROR, pattern, args);
     }
 
     public static void debug(String message) {
-        Log.EVENT_QUEUE.offer(new LogEvent(LogLevel.DEBUG, message));
+        Log.log(LogLevel.DEBUG, message);
+    }
+
+    public static void debug(String pattern, Object... args) {
+        Log.log(LogLevel.DEBUG, pattern, args);
+    }
+
+    public static void debug(Supplier<String> message) {
+        Log.log(LogLevel.DEBUG, message);
+    }
+
+    private static void log(LogLevel level, String message) {
+        if (Log.isEnabled(level)) {
+            Log.EVENT_QUEUE.offer(new LogEvent(level, message));
+        }
+    }
+
+    private static void log(LogLevel level, String pattern, Object[] args) {
+        if (Log.isEnabled(level)) {
+            Log.EVENT_QUEUE.offer(new LogEvent(level, pattern, args));
+        }
+    }
+
+    private static void log(LogLevel level, Supplier<String> message) {
+        if (Log.isEnabled(level)) {
+            Log.EVENT_QUEUE.offer(new LogEvent(level, message.get()));
+        }
     }
 
     public static void error(String message, Throwable t) {
@@ -87,40 +146,20 @@ public final class Log {
         }
     }
 
-    public static void cosmicReachModded(String line) {
-        Log.EVENT_QUEUE.offer(new AnsiCosmicLogEvent(line));
+    public static void cosmicReachModded(StyledLine line, LogLevel level, boolean traceStart) {
+        Log.putGameEvent(new AnsiCosmicLogEvent(level, line, traceStart));
     }
 
-    public static void cosmicReachVanilla(String line) {
-        LogLevel level = null;
-
-        if (line.startsWith("[INFO]")) {
-            level = LogLevel.INFO;
-        } else if (line.startsWith("[WARNING]")) {
-            level = LogLevel.WARN;
-        } else if (line.startsWith("[ERROR]")) {
-            level = LogLevel.ERROR;
-        } else if (line.startsWith("[DEBUG]")) {
-            level = LogLevel.DEBUG;
-        }
-
-        // https://github.com/MultiMC/Launcher/blob/bb04cb09a37e4396ba09068e7d8691ceb6e3cfdc/launcher/minecraft/MinecraftInstance.cpp#L773
-        if (level == null) {
-            if (
-                line.contains("Exception in thread") ||
-                    Log.EXCEPTION_AT_PATTERN.matcher(line).find() ||
-                    Log.CAUSED_BY_PATTERN.matcher(line).find() ||
-                    Log.EXCEPTION_PATTERN.matcher(line).find() ||
-                    Log.MORE_PATTERN.matcher(line).find()
-            ) {
-                level = LogLevel.ERROR;
-            }
-        }
+    public static void cosmicReachVanilla(StyledLine line, LogLevel level, boolean traceStart) {
+        Log.putGameEvent(new TimeCosmicLogEvent(level, line, traceStart));
+    }
 
-        if (level == null) {
-            level = LogLevel.INFO;
+    // Game output arrives from its own pipeline thread, so it waits for room instead of being dropped
+    private static void putGameEvent(LogEvent event) {
+        try {
+            Log.EVENT_QUEUE.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        Log.EVENT_QUEUE.offer(new TimeCosmicLogEvent(level, line));
     }
 }
\ No newline at end of file
@@ -21,32 +21,58 @@ package me.theentropyshard.crlauncher.logging;
 import me.theentropyshard.crlauncher.gui.console.LauncherConsole;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * A message waiting in the log queue. The event only keeps what the caller passed and when, the message
+ * is formatted and the time is printed by the log thread.
+ */
 public class LogEvent {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
 
+    // The prefix only changes once a second, only accessed by the log thread
+    private static long cachedSecond = Long.MIN_VALUE;
+    private static String cachedTime;
+
     public static final int APP_CONSOLE = 0xA;
     public static final int FILE_LOG4J = 0xB;
 
     private final LogLevel level;
-    private final String message;
+    private final String pattern;
+    private final Object[] args;
+    private final long time;
     private final int flags;
 
+    private String message;
+
     public LogEvent(LogLevel level, String message) {
+        this(level, message, null);
+    }
+
+    /**
+     * @param pattern message where each {@code {}} is replaced with the next argument
+     * @param args    arguments, formatted on the log thread, so they should not be changed after the call
+     */
+    public LogEvent(LogLevel level, String pattern, Object[] args) {
         this.level = level;
-        this.message = message.endsWith("\n") ? message : message + "\n";
+        this.pattern = pattern;
+        this.args = args;
+        this.time = System.currentTimeMillis();
         this.flags = LogEvent.APP_CONSOLE | LogEvent.FILE_LOG4J;
     }
 
     public void post(Logger log) {
+        String message = this.getMessage();
+
         if ((this.flags & LogEvent.APP_CONSOLE) == LogEvent.APP_CONSOLE) {
-            this.appConsole(this.message);
+            this.appConsole(message);
         }
 
         if ((this.flags & LogEvent.FILE_LOG4J) == LogEvent.FILE_LOG4J) {
-            this.fileLog4j(log, this.message);
+            this.fileLog4j(log, message);
         }
     }
 
@@ -56,8 +82,18 @@ public class LogEvent {
         }
 
         LauncherConsole c = LauncherConsole.instance;
-        c.setColor(this.level.color()).setBold(true).write("[" + LogEvent.currentTime() + "]: ");
+        c.setLevel(this.level);
+        c.setColor(this.level.color()).setBold(true).write("[");
+        c.write(this.getTime());
+        c.write("]: ");
         c.setColor(this.level.color()).setBold(false).write(message);
+        LogEvent.endLine(c, message);
+    }
+
+    protected static void endLine(LauncherConsole c, String message) {
+        if (!message.endsWith("\n")) {
+            c.write("\n");
+        }
     }
 
     public void fileLog4j(Logger log, String message) {
@@ -72,13 +108,52 @@ public class LogEvent {
 
     @Override
     public String toString() {
-        return "[" + LogEvent.currentTime() + "] [" + this.level.name() + "]: " + this.message;
+        return "[" + this.getTime() + "] [" + this.level.name() + "]: " + this.getMessage();
     }
 
     public LogLevel getLevel() {
         return this.level;
     }
 
+    public String getMessage() {
+        if (this.message == null) {
+            this.message = this.args == null ? this.pattern : LogEvent.format(this.pattern, this.args);
+        }
+
+        return this.message;
+    }
+
+    /**
+     * @return the time the event was created, formatted like {@link #currentTime()}
+     */
+    public String getTime() {
+        long second = Math.floorDiv(this.time, 1000L);
+
+        if (second != LogEvent.cachedSecond) {
+            LogEvent.cachedTime = LogEvent.FORMATTER.format(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(this.time), ZoneId.systemDefault())
+            );
+            LogEvent.cachedSecond = second;
+        }
+
+        return LogEvent.cachedTime;
+    }
+
+    public static String format(String pattern, Object[] args) {
+        StringBuilder builder = new StringBuilder(pattern.length() + args.length * 16);
+
+        int argIndex = 0;
+        int from = 0;
+        int index;
+
+        while (argIndex < args.length && (index = pattern.indexOf("{}", from)) != -1) {
+            builder.append(pattern, from, index).append(args[argIndex++]);
+            from = index + 2;
+        }
+
+        return builder.append(pattern, from, pattern.length()).toString();
+    }
+
     public static String currentTime() {
         return LogEvent.FORMATTER.format(LocalDateTime.now());
     }
@@ -22,7 +22,17 @@ import javax.swing.*;
 import java.awt.*;
 
 public enum LogLevel {
-    INFO, WARN, ERROR, DEBUG;
+    INFO(1), WARN(2), ERROR(3), DEBUG(0);
+
+    private final int severity;
+
+    LogLevel(int severity) {
+        this.severity = severity;
+    }
+
+    public boolean isAtLeast(LogLevel level) {
+        return this.severity >= level.severity;
+    }
 
     public Color color() {
         switch (this) {
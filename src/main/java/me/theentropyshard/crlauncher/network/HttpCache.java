@@ -0,0 +1,221 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.network;
+
+import me.theentropyshard.crlauncher.logging.Log;
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk HTTP cache for metadata endpoints like release lists and version manifests. Only URLs that have a rule
+ * are cached, everything else, e.g. game and library downloads, is marked as not storable. A rule replaces
+ * the max-age the server sends, once it has passed the response is revalidated with If-None-Match or
+ * If-Modified-Since, so an unchanged response costs a 304. If the network fails, a stale response is
+ * used instead, so the launcher keeps working offline.
+ */
+public class HttpCache {
+    private final Cache cache;
+    private final List<Rule> rules;
+
+    private final AtomicLong hits;
+    private final AtomicLong conditionalHits;
+    private final AtomicLong misses;
+    private final AtomicLong staleFallbacks;
+
+    public HttpCache(Path cacheDir, long maxSizeBytes) {
+        this.cache = new Cache(cacheDir.toFile(), maxSizeBytes);
+        this.rules = new CopyOnWriteArrayList<>();
+
+        this.hits = new AtomicLong();
+        this.conditionalHits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.staleFallbacks = new AtomicLong();
+    }
+
+    /**
+     * Caches GET requests to URLs starting with the prefix, the first matching rule wins
+     *
+     * @param urlPrefix    start of the URL
+     * @param maxAge       how long a response is used without asking the server
+     * @param staleIfError how old a response may be to be used when the server can't be reached
+     */
+    public void addRule(String urlPrefix, Duration maxAge, Duration staleIfError) {
+        this.rules.add(new Rule(urlPrefix, maxAge, staleIfError));
+    }
+
+    public OkHttpClient.Builder install(OkHttpClient.Builder builder) {
+        return builder
+            .cache(this.cache)
+            .addInterceptor(this::interceptApplication)
+            .addNetworkInterceptor(this::interceptNetwork);
+    }
+
+    @NotNull
+    private Response interceptApplication(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Rule rule = this.findRule(request);
+
+        if (rule == null) {
+            return chain.proceed(request);
+        }
+
+        Response response;
+
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            Response stale = this.proceedStale(chain, request, rule);
+
+            if (stale == null) {
+                throw e;
+            }
+
+            return stale;
+        }
+
+        if (response.code() >= 500) {
+            Response stale = this.proceedStale(chain, request, rule);
+
+            if (stale != null) {
+                response.close();
+
+                return stale;
+            }
+        }
+
+        Response networkResponse = response.networkResponse();
+
+        if (networkResponse == null) {
+            this.hits.incrementAndGet();
+        } else if (networkResponse.code() == 304) {
+            this.conditionalHits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+
+        return response;
+    }
+
+    private Response proceedStale(Interceptor.Chain chain, Request request, Rule rule) throws IOException {
+        CacheControl cacheControl = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale((int) rule.staleIfError().toSeconds(), TimeUnit.SECONDS)
+            .build();
+
+        Response response = chain.proceed(request.newBuilder().cacheControl(cacheControl).build());
+
+        // 504 is what OkHttp answers when there is nothing in the cache
+        if (response.code() == 504) {
+            response.close();
+
+            return null;
+        }
+
+        this.staleFallbacks.incrementAndGet();
+        Log.warn("Could not reach " + request.url().host() + ", using a cached response for " + request.url());
+
+        return response;
+    }
+
+    @NotNull
+    private Response interceptNetwork(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        Rule rule = this.findRule(request);
+
+        if (rule == null) {
+            return response.newBuilder().header("Cache-Control", "no-store").build();
+        }
+
+        // A 304 updates the headers of the cached response, so it needs the override as well
+        if (response.code() != 200 && response.code() != 304) {
+            return response;
+        }
+
+        return response.newBuilder()
+            .header("Cache-Control", "max-age=" + rule.maxAge().toSeconds())
+            .removeHeader("Expires")
+            .removeHeader("Pragma")
+            .build();
+    }
+
+    private Rule findRule(Request request) {
+        if (!request.method().equals("GET")) {
+            return null;
+        }
+
+        String url = request.url().toString();
+
+        for (Rule rule : this.rules) {
+            if (url.startsWith(rule.urlPrefix())) {
+                return rule;
+            }
+        }
+
+        return null;
+    }
+
+    public Stats getStats() {
+        return new Stats(this.hits.get(), this.conditionalHits.get(), this.misses.get(), this.staleFallbacks.get());
+    }
+
+    public void close() throws IOException {
+        this.cache.close();
+    }
+
+    private record Rule(String urlPrefix, Duration maxAge, Duration staleIfError) {
+
+    }
+
+    /**
+     * @param hits            responses served from the cache without a request
+     * @param conditionalHits responses the server confirmed with 304 Not Modified
+     * @param misses          responses downloaded in full
+     * @param staleFallbacks  outdated responses used because the server could not be reached
+     */
+    public record Stats(long hits, long conditionalHits, long misses, long staleFallbacks) {
+        public long requests() {
+            return this.hits + this.conditionalHits + this.misses + this.staleFallbacks;
+        }
+
+        /**
+         * @return share of requests answered without downloading the body, from 0 to 1
+         */
+        public double hitRate() {
+            long requests = this.requests();
+
+            return requests == 0 ? 0 : (double) (this.hits + this.conditionalHits + this.staleFallbacks) / requests;
+        }
+
+        @Override
+        public String toString() {
+            return this.requests() + " requests, " + Math.round(this.hitRate() * 100) + "% from cache (" + this.hits +
+                " fresh, " + this.conditionalHits + " revalidated, " + this.staleFallbacks + " stale), " +
+                this.misses + " downloaded";
+        }
+    }
+}
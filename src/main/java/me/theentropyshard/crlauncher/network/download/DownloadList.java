@@ -20,25 +20,15 @@ package me.theentropyshard.crlauncher.network.download;
 
 import me.theentropyshard.crlauncher.CRLauncher;
 import me.theentropyshard.crlauncher.logging.Log;
-import me.theentropyshard.crlauncher.network.progress.ProgressNetworkInterceptor;
-import okhttp3.OkHttpClient;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class DownloadList {
-    
-
-    public static final int MAX_CONNECTIONS = 8;
-
     private final DownloadListener downloadListener;
     private final List<HttpDownload> downloads;
     private final AtomicLong downloadedBytes;
@@ -85,37 +75,26 @@ public class DownloadList {
             return;
         }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(DownloadList.MAX_CONNECTIONS);
+        DownloadScheduler scheduler = CRLauncher.getInstance().getDownloadScheduler();
 
-        OkHttpClient parent = CRLauncher.getInstance().getHttpClient();
+        List<Future<?>> futures = new ArrayList<>();
 
         for (HttpDownload download : this.downloads) {
-            OkHttpClient httpClient = parent.newBuilder()
-                    .addNetworkInterceptor(new ProgressNetworkInterceptor((
-                            (contentLength, bytesRead, bytesThisTime, done) -> {
-                        this.downloadListener.updateProgress(this.totalSize, this.downloadedBytes.addAndGet(bytesThisTime));
-                    })))
-                    .build();
-            download.setHttpClient(httpClient);
-
-            Runnable runnable = () -> {
-                try {
-                    download.execute();
-                } catch (IOException e) {
-                    Log.error("Download failed", e);
+            download.setProgressListener((contentLength, bytesRead, bytesThisTime, done) -> {
+                if (bytesThisTime > 0) {
+                    this.downloadListener.updateProgress(this.totalSize, this.downloadedBytes.addAndGet(bytesThisTime));
                 }
-            };
+            });
 
-            executorService.execute(runnable);
+            futures.add(scheduler.submit(download));
         }
 
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(15, TimeUnit.MINUTES)) {
-                executorService.shutdownNow();
+        for (Future<?> future : futures) {
+            try {
+                DownloadScheduler.await(future);
+            } catch (IOException e) {
+                Log.error("Download failed", e);
             }
-        } catch (InterruptedException ex) {
-            executorService.shutdownNow();
         }
 
         this.finished = true;
@@ -0,0 +1,201 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.network.download;
+
+import me.theentropyshard.crlauncher.network.progress.ProgressNetworkInterceptor;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Launcher-wide download queue. All downloads share one http client (and so one connection pool)
+ * and a fixed set of worker threads, with a limit on how many connections may go to a single host
+ */
+public class DownloadScheduler {
+    public static final int MAX_CONNECTIONS = 8;
+    public static final int MAX_CONNECTIONS_PER_HOST = 4;
+
+    private final OkHttpClient httpClient;
+    private final ExecutorService executor;
+    private final ExecutorService partExecutor;
+    private final Map<String, Semaphore> hostLimits;
+
+    // Host limit whose permit the current download thread holds
+    private final ThreadLocal<Semaphore> heldLimit;
+
+    public DownloadScheduler(OkHttpClient parent) {
+        this.httpClient = parent.newBuilder()
+            .addNetworkInterceptor(new ProgressNetworkInterceptor())
+            .build();
+
+        AtomicInteger threadCount = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(DownloadScheduler.MAX_CONNECTIONS, r -> {
+            Thread thread = new Thread(r, "CRL-Download-Thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        // Bounded by the host limits, every part thread holds a permit
+        AtomicInteger partThreadCount = new AtomicInteger(0);
+        this.partExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "CRL-Download-Part-Thread-" + partThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        this.hostLimits = new ConcurrentHashMap<>();
+        this.heldLimit = new ThreadLocal<>();
+    }
+
+    public Future<?> submit(HttpDownload download) {
+        return this.executor.submit(() -> {
+            Semaphore hostLimit = this.getHostLimit(download.getUrl());
+            hostLimit.acquire();
+            this.heldLimit.set(hostLimit);
+
+            try {
+                download.execute();
+            } finally {
+                this.heldLimit.remove();
+                hostLimit.release();
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Queues the download and waits until it is done
+     */
+    public void download(HttpDownload download) throws IOException {
+        DownloadScheduler.await(this.submit(download));
+    }
+
+    public static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for download", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Runs parts of a download, each making its own blocking request to the host of the url. The calling thread
+     * works on the parts using the permit of the download it executes, other threads only join while the host
+     * has free permits, so the parts never open more connections than the host limit allows and never wait
+     * on each other.
+     *
+     * @throws IOException the first failure of a part, parts not started yet are skipped after it
+     */
+    public void runParts(String url, List<Part> parts) throws IOException {
+        Semaphore hostLimit = this.getHostLimit(url);
+        boolean ownPermit = this.heldLimit.get() != hostLimit;
+
+        if (ownPermit) {
+            try {
+                hostLimit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while waiting for a connection to " + url, e);
+            }
+        }
+
+        AtomicInteger next = new AtomicInteger(0);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            int index;
+            while (failure.get() == null && (index = next.getAndIncrement()) < parts.size()) {
+                try {
+                    parts.get(index).run();
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        List<Future<?>> helpers = new ArrayList<>();
+
+        try {
+            while (helpers.size() < parts.size() - 1 && hostLimit.tryAcquire()) {
+                helpers.add(this.partExecutor.submit(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        hostLimit.release();
+                    }
+                }));
+            }
+
+            worker.run();
+
+            for (Future<?> helper : helpers) {
+                DownloadScheduler.await(helper);
+            }
+        } finally {
+            if (ownPermit) {
+                hostLimit.release();
+            }
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private Semaphore getHostLimit(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        String host = httpUrl == null ? url : httpUrl.host();
+
+        return this.hostLimits.computeIfAbsent(host, h -> new Semaphore(DownloadScheduler.MAX_CONNECTIONS_PER_HOST));
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+        this.partExecutor.shutdownNow();
+    }
+
+    public OkHttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    public interface Part {
+        void run() throws IOException;
+    }
+}
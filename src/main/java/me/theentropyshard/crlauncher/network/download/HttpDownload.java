@@ -20,6 +20,9 @@ package me.theentropyshard.crlauncher.network.download;
 
 import me.theentropyshard.crlauncher.CRLauncher;
 import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.storage.BlobStore;
+import me.theentropyshard.crlauncher.storage.VerificationIndex;
 import me.theentropyshard.crlauncher.utils.FileUtils;
 import me.theentropyshard.crlauncher.utils.HashUtils;
 import okhttp3.OkHttpClient;
@@ -38,6 +41,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Objects;
 
 public class HttpDownload {
@@ -53,9 +58,13 @@ public class HttpDownload {
     private final String sha256;
     private final boolean executable;
     private final long expectedSize;
+    private final boolean segmented;
+    private final boolean deduplicate;
+    private ProgressListener progressListener;
+    private String downloadedSha256;
 
-    private HttpDownload(OkHttpClient httpClient, String url, Path saveAs, Path copyTo, boolean forceDownload, String sha256, boolean executable, long expectedSize) {
-        this.httpClient = Objects.requireNonNull(httpClient, "httpClient == null");
+    private HttpDownload(OkHttpClient httpClient, String url, Path saveAs, Path copyTo, boolean forceDownload, String sha256, boolean executable, long expectedSize, boolean segmented, boolean deduplicate, ProgressListener progressListener) {
+        this.httpClient = httpClient;
         this.url = Objects.requireNonNull(url, "url == null");
         this.saveAs = Objects.requireNonNull(saveAs, "saveAs == null");
         this.copyTo = copyTo;
@@ -63,6 +72,9 @@ public class HttpDownload {
         this.sha256 = sha256;
         this.executable = executable;
         this.expectedSize = expectedSize;
+        this.segmented = segmented;
+        this.deduplicate = deduplicate;
+        this.progressListener = progressListener;
     }
 
     public Path getSaveAs() {
@@ -74,29 +86,30 @@ public class HttpDownload {
 
         boolean disableCheck = CRLauncher.getInstance().getSettings().disableFileIntegrityCheck;
 
+        boolean segmentsPending = this.segmented && SegmentedDownload.isPending(this.saveAs);
+
         boolean fileExists = Files.exists(this.saveAs);
-        if (fileExists && !disableCheck) {
+        if (fileExists && !disableCheck && !segmentsPending) {
             long size = Files.size(this.saveAs);
-            boolean hashMatches = HashUtils.sha256(this.saveAs).equals(this.sha256);
 
-            if (this.expectedSize == size) {
+            if (this.expectedSize == size || this.expectedSize == HttpDownload.EXPECTED_SIZE_NOT_SET) {
                 if (this.sha256 == null) {
-                    return;
+                    if (this.expectedSize == size) {
+                        return;
+                    }
                 } else {
-                    if (hashMatches) {
+                    VerificationIndex verificationIndex = CRLauncher.getInstance().getVerificationIndex();
+
+                    if (verificationIndex.matches(this.saveAs, this.sha256)) {
                         return;
                     } else {
-                        Log.debug("File '" + this.saveAs + "' exists, size matches, but SHA-256 does not match");
+                        Log.debug("File '{}' exists, but SHA-256 does not match", this.saveAs);
                     }
 
                     needsDownload = true;
                 }
-            } else if (this.expectedSize != HttpDownload.EXPECTED_SIZE_NOT_SET) {
-                if (hashMatches) {
-                    Log.debug("File '" + this.saveAs + "' exists, SHA-256 matches, but size does not match");
-                } else {
-                    Log.debug("File '" + this.saveAs + "' exists, but size and SHA-256 do not match");
-                }
+            } else {
+                Log.debug("File '{}' exists, but size does not match", this.saveAs);
 
                 needsDownload = true;
             }
@@ -105,39 +118,88 @@ public class HttpDownload {
         long size = this.size();
         boolean partiallyDownloaded = !disableCheck && this.expectedSize > size && fileExists;
 
-        if (partiallyDownloaded || this.forceDownload || !fileExists || needsDownload) {
-            Request.Builder builder = new Request.Builder()
-                    .url(this.url)
-                    .get();
+        if (segmentsPending || partiallyDownloaded || this.forceDownload || !fileExists || needsDownload) {
+            FileUtils.createDirectoryIfNotExists(this.saveAs.getParent());
+
+            BlobStore blobStore = CRLauncher.getInstance().getBlobStore();
 
-            if (partiallyDownloaded && size >= 0) {
-                builder.header("Range", "bytes=" + size + "-");
+            if (this.deduplicate && this.sha256 != null && !this.forceDownload && blobStore.materialize(this.sha256, this.saveAs)) {
+                Log.debug("Linked '{}' from the blob store", this.saveAs);
+
+                return;
             }
 
-            FileUtils.createDirectoryIfNotExists(this.saveAs.getParent());
+            if (this.forceDownload) {
+                Files.deleteIfExists(SegmentedDownload.getStateFile(this.saveAs));
+            }
+
+            if (!this.segmented || !this.downloadSegmented()) {
+                this.downloadWhole(partiallyDownloaded, size);
+            }
 
-            this.downloadFile(builder.build(), partiallyDownloaded, size);
             this.checkHash();
 
             if (this.executable) {
                 new File(this.saveAs.toString()).setExecutable(true);
             }
 
+            if (this.deduplicate && this.downloadedSha256 != null) {
+                blobStore.adopt(this.saveAs, this.downloadedSha256);
+            } else {
+                CRLauncher.getInstance().getVerificationIndex().record(this.saveAs, this.downloadedSha256);
+            }
+
             this.copyFile();
         }
     }
 
+    private boolean downloadSegmented() throws IOException {
+        this.downloadedSha256 = null;
+
+        SegmentedDownload download = new SegmentedDownload(CRLauncher.getInstance().getDownloadScheduler(), this.getHttpClient(), this.url, this.saveAs, this.progressListener);
+
+        return download.execute(this.expectedSize);
+    }
+
+    private void downloadWhole(boolean partiallyDownloaded, long size) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(this.url)
+                .tag(ProgressListener.class, this.progressListener)
+                .get();
+
+        if (partiallyDownloaded && size >= 0) {
+            builder.header("Range", "bytes=" + size + "-");
+        }
+
+        this.downloadFile(builder.build(), partiallyDownloaded, size);
+    }
+
     public void downloadFile(Request request, boolean partiallyDownloaded, long size) throws IOException {
-        try (Response response = this.httpClient.newCall(request).execute();
+        this.downloadedSha256 = null;
+
+        try (Response response = this.getHttpClient().newCall(request).execute();
              InputStream is = Objects.requireNonNull(response.body()).byteStream()) {
-            if (partiallyDownloaded && size >= 0) {
+            // the server may ignore the Range header and send the whole file
+            boolean append = partiallyDownloaded && size >= 0 && response.code() == 206;
+
+            MessageDigest md = HashUtils.newDigest("SHA-256");
+
+            if (append) {
+                HashUtils.update(md, this.saveAs, size);
+            }
+
+            DigestInputStream digestStream = new DigestInputStream(is, md);
+
+            if (append) {
                 try (FileChannel fileChannel = FileChannel.open(this.saveAs, StandardOpenOption.APPEND);
-                     ReadableByteChannel src = Channels.newChannel(is)) {
+                     ReadableByteChannel src = Channels.newChannel(digestStream)) {
                     fileChannel.transferFrom(src, size, Long.MAX_VALUE);
                 }
             } else {
-                Files.copy(is, this.saveAs, StandardCopyOption.REPLACE_EXISTING);
+                Files.copy(digestStream, this.saveAs, StandardCopyOption.REPLACE_EXISTING);
             }
+
+            this.downloadedSha256 = HashUtils.toHex(md.digest());
         }
     }
 
@@ -147,7 +209,12 @@ public class HttpDownload {
         }
 
         if (this.sha256 != null) {
-            String sha256 = HashUtils.sha256(this.saveAs);
+            // segmented downloads arrive out of order, so those are hashed once after assembly
+            if (this.downloadedSha256 == null) {
+                this.downloadedSha256 = HashUtils.sha256(this.saveAs);
+            }
+
+            String sha256 = this.downloadedSha256;
             if (!this.sha256.equals(sha256)) {
                 FileUtils.delete(this.saveAs);
                 throw new IOException("SHA-256 does not match for file '" + this.saveAs + "'. Bad file was deleted");
@@ -160,11 +227,17 @@ public class HttpDownload {
             return;
         }
 
-        if (Files.exists(this.copyTo) && Files.size(this.copyTo) == this.expectedSize && HashUtils.sha256(this.copyTo).equals(this.sha256)) {
-            return;
-        }
-
+        // saveAs was just verified, so an exact copy carries the same digest and needs no hashing
         Files.copy(this.saveAs, this.copyTo, StandardCopyOption.REPLACE_EXISTING);
+
+        CRLauncher.getInstance().getVerificationIndex().record(this.copyTo, this.downloadedSha256);
+    }
+
+    /**
+     * @return SHA-256 of the downloaded bytes, computed while writing, or null if the file was not downloaded in one pass
+     */
+    public String getDownloadedSha256() {
+        return this.downloadedSha256;
     }
 
     public long size() {
@@ -179,10 +252,26 @@ public class HttpDownload {
         return -1;
     }
 
+    public OkHttpClient getHttpClient() {
+        if (this.httpClient == null) {
+            return CRLauncher.getInstance().getDownloadScheduler().getHttpClient();
+        }
+
+        return this.httpClient;
+    }
+
     public void setHttpClient(OkHttpClient httpClient) {
         this.httpClient = httpClient;
     }
 
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public String getUrl() {
+        return this.url;
+    }
+
     public long expectedSize() {
         return this.expectedSize;
     }
@@ -196,6 +285,9 @@ public class HttpDownload {
         private boolean forceDownload;
         private boolean executable;
         private long expectedSize = HttpDownload.EXPECTED_SIZE_NOT_SET;
+        private boolean segmented;
+        private boolean deduplicate;
+        private ProgressListener progressListener;
 
         public Builder() {
 
@@ -241,11 +333,34 @@ public class HttpDownload {
             return this;
         }
 
+        /**
+         * Allows fetching the file as several concurrent byte ranges if the server supports it.
+         * Meant for large files like the game client
+         */
+        public Builder segmented() {
+            this.segmented = true;
+            return this;
+        }
+
+        /**
+         * Keeps the file in the blob store and links it into place, so identical files are stored once
+         * and are not downloaded again if the SHA-256 is known up front
+         */
+        public Builder deduplicate() {
+            this.deduplicate = true;
+            return this;
+        }
+
+        public Builder progressListener(ProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
         public HttpDownload build() {
             return new HttpDownload(
                     this.httpClient, this.url, this.saveAs,
                     this.copyTo, this.forceDownload, this.sha256,
-                    this.executable, this.expectedSize
+                    this.executable, this.expectedSize, this.segmented, this.deduplicate, this.progressListener
             );
         }
     }
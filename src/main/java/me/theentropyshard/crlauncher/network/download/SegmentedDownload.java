@@ -0,0 +1,300 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.network.download;
+
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.network.progress.ProgressListener;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import okhttp3.*;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Downloads a file as several concurrent byte ranges written straight into a preallocated file.
+ * Segments run as parts on the {@link DownloadScheduler}, so they count against the host connection limit.
+ * Progress of every segment is kept in a small state file next to the target, so each segment
+ * can resume on its own
+ */
+class SegmentedDownload {
+    public static final int SEGMENT_COUNT = 4;
+    public static final long MIN_SEGMENT_SIZE = 4L * 1024L * 1024L;
+
+    private static final long SAVE_STATE_EVERY = 4L * 1024L * 1024L;
+    private static final String STATE_FILE_SUFFIX = ".segments";
+
+    private final DownloadScheduler scheduler;
+    private final OkHttpClient httpClient;
+    private final String url;
+    private final Path saveAs;
+    private final Path stateFile;
+    private final ProgressListener progressListener;
+
+    private long totalSize;
+    private long[] starts;
+    private long[] ends;
+    private AtomicLongArray written;
+
+    public SegmentedDownload(DownloadScheduler scheduler, OkHttpClient httpClient, String url, Path saveAs, ProgressListener progressListener) {
+        this.scheduler = scheduler;
+        this.httpClient = httpClient;
+        this.url = url;
+        this.saveAs = saveAs;
+        this.stateFile = SegmentedDownload.getStateFile(saveAs);
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Downloads the file in segments
+     *
+     * @param expectedSize expected file size or a negative value if unknown
+     * @return false if the server does not support ranges or the file is too small, nothing is downloaded in that case
+     * @throws IOException if any of the segments fails
+     */
+    public boolean execute(long expectedSize) throws IOException {
+        long size = this.probe(expectedSize);
+
+        if (size < SegmentedDownload.MIN_SEGMENT_SIZE * 2) {
+            Files.deleteIfExists(this.stateFile);
+
+            return false;
+        }
+
+        this.totalSize = size;
+        this.split(size);
+
+        boolean resumed = this.loadState();
+
+        try (FileChannel channel = FileChannel.open(this.saveAs, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (!resumed) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+                this.saveState();
+            } else {
+                Log.debug("Resuming segmented download of '{}'", this.saveAs);
+            }
+
+            this.downloadSegments(channel);
+        }
+
+        Files.deleteIfExists(this.stateFile);
+
+        return true;
+    }
+
+    private long probe(long expectedSize) throws IOException {
+        Request request = new Request.Builder()
+            .url(this.url)
+            .head()
+            .build();
+
+        try (Response response = this.httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || !"bytes".equalsIgnoreCase(response.header("Accept-Ranges"))) {
+                return -1L;
+            }
+
+            if (expectedSize > 0) {
+                return expectedSize;
+            }
+
+            String contentLength = response.header("Content-Length");
+
+            if (contentLength == null) {
+                return -1L;
+            }
+
+            try {
+                return Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+    }
+
+    private void split(long size) {
+        int count = (int) Math.min(SegmentedDownload.SEGMENT_COUNT, size / SegmentedDownload.MIN_SEGMENT_SIZE);
+        long segmentSize = size / count;
+
+        this.starts = new long[count];
+        this.ends = new long[count];
+        this.written = new AtomicLongArray(count);
+
+        for (int i = 0; i < count; i++) {
+            this.starts[i] = i * segmentSize;
+            this.ends[i] = i == count - 1 ? size - 1 : (i + 1) * segmentSize - 1;
+        }
+    }
+
+    private void downloadSegments(FileChannel channel) throws IOException {
+        long alreadyWritten = 0;
+        for (int i = 0; i < this.written.length(); i++) {
+            alreadyWritten += this.written.get(i);
+        }
+
+        AtomicLong downloaded = new AtomicLong(alreadyWritten);
+
+        ProgressListener segmentListener = (contentLength, totalBytesRead, bytesReadThisTime, done) -> {
+            if (this.progressListener != null && bytesReadThisTime > 0) {
+                this.progressListener.update(this.totalSize, downloaded.addAndGet(bytesReadThisTime), bytesReadThisTime, false);
+            }
+        };
+
+        List<DownloadScheduler.Part> parts = new ArrayList<>();
+        List<Call> calls = new ArrayList<>();
+
+        for (int i = 0; i < this.starts.length; i++) {
+            if (this.starts[i] + this.written.get(i) > this.ends[i]) {
+                continue;
+            }
+
+            int index = i;
+            parts.add(() -> this.downloadSegment(index, channel, segmentListener, calls));
+        }
+
+        try {
+            this.scheduler.runParts(this.url, parts);
+        } catch (IOException e) {
+            this.saveState();
+
+            throw e;
+        }
+
+        if (this.progressListener != null) {
+            this.progressListener.update(this.totalSize, this.totalSize, 0, true);
+        }
+    }
+
+    private void downloadSegment(int index, FileChannel channel, ProgressListener listener, List<Call> calls) throws IOException {
+        long position = this.starts[index] + this.written.get(index);
+
+        Request request = new Request.Builder()
+            .url(this.url)
+            .header("Range", "bytes=" + position + "-" + this.ends[index])
+            .tag(ProgressListener.class, listener)
+            .get()
+            .build();
+
+        Call call = this.httpClient.newCall(request);
+
+        synchronized (calls) {
+            calls.add(call);
+        }
+
+        try (Response response = call.execute()) {
+            if (response.code() != 206) {
+                throw new IOException("Expected partial content for segment " + index + " of '" +
+                    this.saveAs + "', got HTTP " + response.code());
+            }
+
+            long sinceLastSave = 0;
+
+            BufferedSource source = response.body().source();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    int count = channel.write(buffer, position);
+                    position += count;
+                    sinceLastSave += count;
+                    this.written.addAndGet(index, count);
+                }
+
+                buffer.clear();
+
+                if (sinceLastSave >= SegmentedDownload.SAVE_STATE_EVERY) {
+                    this.saveState();
+                    sinceLastSave = 0;
+                }
+            }
+
+            long segmentSize = this.ends[index] - this.starts[index] + 1;
+            if (this.written.get(index) < segmentSize) {
+                throw new IOException("Segment " + index + " of '" + this.saveAs + "' ended early");
+            }
+        } catch (IOException e) {
+            // Stops the other segments instead of letting them finish
+            synchronized (calls) {
+                calls.forEach(Call::cancel);
+            }
+
+            throw e;
+        }
+    }
+
+    private synchronized void saveState() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append(this.totalSize).append('\n');
+
+        for (int i = 0; i < this.written.length(); i++) {
+            builder.append(this.written.get(i)).append('\n');
+        }
+
+        FileUtils.writeUtf8(this.stateFile, builder.toString());
+    }
+
+    private boolean loadState() {
+        if (!Files.exists(this.stateFile) || !Files.exists(this.saveAs)) {
+            return false;
+        }
+
+        try {
+            if (Files.size(this.saveAs) != this.totalSize) {
+                return false;
+            }
+
+            String[] lines = FileUtils.readUtf8(this.stateFile).split("\n");
+
+            if (lines.length != this.written.length() + 1 || Long.parseLong(lines[0].trim()) != this.totalSize) {
+                return false;
+            }
+
+            for (int i = 0; i < this.written.length(); i++) {
+                long segmentWritten = Long.parseLong(lines[i + 1].trim());
+                long segmentSize = this.ends[i] - this.starts[i] + 1;
+
+                this.written.set(i, Math.max(0, Math.min(segmentWritten, segmentSize)));
+            }
+
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            Log.warn("Could not read segment state of '" + this.saveAs + "', starting over: " + e.getMessage());
+
+            return false;
+        }
+    }
+
+    public static Path getStateFile(Path saveAs) {
+        return saveAs.resolveSibling(saveAs.getFileName().toString() + SegmentedDownload.STATE_FILE_SUFFIX);
+    }
+
+    public static boolean isPending(Path saveAs) {
+        return Files.exists(SegmentedDownload.getStateFile(saveAs));
+    }
+}
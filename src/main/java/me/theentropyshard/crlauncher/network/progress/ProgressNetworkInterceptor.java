@@ -27,6 +27,14 @@ import java.io.IOException;
 public class ProgressNetworkInterceptor implements Interceptor {
     private final ProgressListener progressListener;
 
+    /**
+     * Creates an interceptor that reports progress to the listener attached to each request
+     * as a {@code ProgressListener} tag, so one client can serve many downloads
+     */
+    public ProgressNetworkInterceptor() {
+        this(null);
+    }
+
     public ProgressNetworkInterceptor(ProgressListener progressListener) {
         this.progressListener = progressListener;
     }
@@ -34,10 +42,21 @@ public class ProgressNetworkInterceptor implements Interceptor {
     @NotNull
     @Override
     public Response intercept(@NotNull Chain chain) throws IOException {
+        ProgressListener listener = this.progressListener;
+
+        if (listener == null) {
+            listener = chain.request().tag(ProgressListener.class);
+        }
+
         @SuppressWarnings("resource")
         Response originalResponse = chain.proceed(chain.request());
+
+        if (listener == null) {
+            return originalResponse;
+        }
+
         return originalResponse.newBuilder()
-                .body(new ProgressResponseBody(originalResponse.body(), this.progressListener))
+                .body(new ProgressResponseBody(originalResponse.body(), listener))
                 .build();
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.storage;
+
+import com.google.gson.reflect.TypeToken;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Content-addressed storage for downloaded and installed files. Every distinct file is kept once under its SHA-256
+ * and hard linked (or copied, if linking is not possible) to wherever it is needed. Places a blob is linked to are
+ * tracked, so blobs nobody uses anymore can be garbage-collected
+ */
+public class BlobStore {
+    private static final String REFS_FILE = "refs.json";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path blobsDir;
+    private final Path refsFile;
+    private final VerificationIndex verificationIndex;
+    private final Map<String, Set<String>> refs;
+
+    // Blobs being stored or adopted right now, garbage collection leaves them and their refs alone
+    private final Map<String, Integer> pending;
+
+    private boolean dirty;
+
+    public BlobStore(Path blobsDir, VerificationIndex verificationIndex) {
+        this.blobsDir = blobsDir;
+        this.refsFile = blobsDir.resolve(BlobStore.REFS_FILE);
+        this.verificationIndex = verificationIndex;
+        this.refs = new HashMap<>();
+        this.pending = new HashMap<>();
+    }
+
+    public synchronized void load() throws IOException {
+        FileUtils.createDirectoryIfNotExists(this.blobsDir);
+
+        if (!Files.exists(this.refsFile)) {
+            return;
+        }
+
+        Map<String, Set<String>> loaded = Json.parse(FileUtils.readUtf8(this.refsFile), new TypeToken<Map<String, Set<String>>>() {}.getType());
+
+        if (loaded != null) {
+            loaded.forEach((sha256, targets) -> this.refs.put(sha256, new HashSet<>(targets)));
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+
+        FileUtils.writeUtf8(this.refsFile, Json.write(this.refs));
+
+        this.dirty = false;
+    }
+
+    public Path getBlob(String sha256) {
+        String hash = sha256.toLowerCase(Locale.ROOT);
+
+        return this.blobsDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public boolean contains(String sha256) {
+        return sha256 != null && Files.exists(this.getBlob(sha256));
+    }
+
+    /**
+     * Stores a copy of the source file and places it at the target
+     */
+    public void store(Path source, Path target) throws IOException {
+        String sha256 = this.verificationIndex.sha256(source);
+
+        Path blob = this.getBlob(sha256);
+
+        this.beginPending(sha256);
+
+        try {
+            if (!Files.exists(blob)) {
+                FileUtils.createDirectoryIfNotExists(blob.getParent());
+
+                Path tmp = blob.resolveSibling(blob.getFileName() + BlobStore.TMP_SUFFIX);
+                Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            this.materializeOrThrow(sha256, target);
+        } finally {
+            this.endPending(sha256);
+        }
+    }
+
+    /**
+     * Moves an already verified file into the store and leaves a link to the blob in its place.
+     * If the store already has these bytes, the file is simply replaced with a link
+     */
+    public void adopt(Path file, String sha256) throws IOException {
+        Path blob = this.getBlob(sha256);
+
+        this.beginPending(sha256);
+
+        try {
+            if (!Files.exists(blob)) {
+                FileUtils.createDirectoryIfNotExists(blob.getParent());
+
+                try {
+                    Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.copy(file, blob, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            this.materializeOrThrow(sha256, file);
+        } finally {
+            this.endPending(sha256);
+        }
+    }
+
+    private void materializeOrThrow(String sha256, Path target) throws IOException {
+        if (!this.materialize(sha256, target)) {
+            throw new IOException("Blob " + sha256 + " disappeared before it could be linked to '" + target + "'");
+        }
+    }
+
+    private synchronized void beginPending(String sha256) {
+        this.pending.merge(sha256, 1, Integer::sum);
+    }
+
+    private synchronized void endPending(String sha256) {
+        this.pending.computeIfPresent(sha256, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Places the blob at the target path as a hard link, falling back to a copy
+     *
+     * @return false if there is no such blob
+     */
+    public boolean materialize(String sha256, Path target) throws IOException {
+        Path blob = this.getBlob(sha256);
+
+        if (!Files.exists(blob)) {
+            return false;
+        }
+
+        FileUtils.createDirectoryIfNotExists(target.getParent());
+
+        if (Files.exists(target) && Files.isSameFile(blob, target)) {
+            this.addRef(sha256, target);
+
+            return true;
+        }
+
+        Files.deleteIfExists(target);
+
+        try {
+            Files.createLink(target, blob);
+        } catch (UnsupportedOperationException | IOException e) {
+            Log.debug("Could not hard link '{}', copying instead: {}", target, e.getMessage());
+
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        this.verificationIndex.record(target, sha256);
+        this.addRef(sha256, target);
+
+        return true;
+    }
+
+    /**
+     * Deletes blobs that are no longer present at any of the places they were linked to
+     *
+     * @return number of deleted blobs
+     */
+    public int collectGarbage() throws IOException {
+        // Blobs written after this are left for the next run
+        long startTime = System.currentTimeMillis();
+
+        Map<String, Set<String>> snapshot;
+
+        synchronized (this) {
+            snapshot = new HashMap<>();
+            this.refs.forEach((sha256, targets) -> snapshot.put(sha256, new HashSet<>(targets)));
+        }
+
+        Set<String> live = new HashSet<>();
+
+        for (Map.Entry<String, Set<String>> entry : snapshot.entrySet()) {
+            String sha256 = entry.getKey();
+            Path blob = this.getBlob(sha256);
+
+            for (String target : entry.getValue()) {
+                if (this.isStillReferenced(blob, sha256, Paths.get(target))) {
+                    live.add(sha256);
+
+                    continue;
+                }
+
+                synchronized (this) {
+                    // Checked again, the target might have been linked while we were checking
+                    if (this.pending.containsKey(sha256) || this.isStillReferenced(blob, sha256, Paths.get(target))) {
+                        live.add(sha256);
+                    } else {
+                        this.removeRef(sha256, target);
+                    }
+                }
+            }
+        }
+
+        int deleted = 0;
+
+        for (Path dir : FileUtils.list(this.blobsDir, Files::isDirectory)) {
+            for (Path blob : FileUtils.list(dir, Files::isRegularFile)) {
+                String sha256 = blob.getFileName().toString();
+
+                // Staging files of blobs being stored
+                if (live.contains(sha256) || sha256.endsWith(BlobStore.TMP_SUFFIX)) {
+                    continue;
+                }
+
+                synchronized (this) {
+                    Set<String> targets = this.refs.get(sha256);
+
+                    // might have been linked somewhere while we were scanning
+                    if ((targets != null && !targets.isEmpty()) || this.pending.containsKey(sha256) ||
+                        BlobStore.isNewerThan(blob, startTime)) {
+                        continue;
+                    }
+
+                    Files.delete(blob);
+                    this.refs.remove(sha256);
+                    this.dirty = true;
+                }
+
+                deleted++;
+            }
+        }
+
+        return deleted;
+    }
+
+    private static boolean isNewerThan(Path blob, long time) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(blob, BasicFileAttributes.class);
+
+        return attributes.lastModifiedTime().toMillis() >= time || attributes.creationTime().toMillis() >= time;
+    }
+
+    private boolean isStillReferenced(Path blob, String sha256, Path target) {
+        if (!Files.exists(target)) {
+            return false;
+        }
+
+        try {
+            if (Files.exists(blob) && Files.isSameFile(blob, target)) {
+                return true;
+            }
+
+            return sha256.equals(this.verificationIndex.sha256(target));
+        } catch (IOException e) {
+            Log.warn("Could not check '" + target + "': " + e.getMessage());
+
+            return true;
+        }
+    }
+
+    private synchronized void addRef(String sha256, Path target) {
+        if (this.refs.computeIfAbsent(sha256, k -> new HashSet<>()).add(target.toAbsolutePath().normalize().toString())) {
+            this.dirty = true;
+        }
+    }
+
+    private synchronized void removeRef(String sha256, String target) {
+        Set<String> targets = this.refs.get(sha256);
+
+        if (targets != null && targets.remove(target)) {
+            this.dirty = true;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.storage;
+
+import me.theentropyshard.crlauncher.cosmic.mods.cosmicquilt.maven.MavenArtifact;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Local repository of libraries shared by all mod loaders, in Maven layout, i.e.
+ * {@code group/path/artifact/version/artifact-version.jar}. Each coordinate is stored once no matter
+ * how many loader versions use it, coordinates no loader version references anymore are garbage-collected.
+ */
+public class LibraryRepository {
+    /**
+     * Prefix of lockfile paths that point into this repository
+     */
+    public static final String PATH_PREFIX = "libraries/";
+
+    private static final Pattern POM_PROPERTIES = Pattern.compile("META-INF/maven/[^/]+/[^/]+/pom\\.properties");
+
+    // Files imported or downloaded this recently are kept even if no lockfile references them
+    private static final Duration GRACE_PERIOD = Duration.ofDays(1);
+
+    private final Path librariesDir;
+
+    // Installs share it, garbage collection needs it exclusively
+    private final ReadWriteLock installLock = new ReentrantReadWriteLock();
+
+    public LibraryRepository(Path librariesDir) {
+        this.librariesDir = librariesDir;
+    }
+
+    /**
+     * Must be called before putting files into the repository, garbage collection does not run until
+     * {@link #endInstall()} is called, which should happen after the lockfile of the install is written
+     */
+    public void beginInstall() {
+        this.installLock.readLock().lock();
+    }
+
+    public void endInstall() {
+        this.installLock.readLock().unlock();
+    }
+
+    public Path getPath(MavenArtifact artifact) {
+        return this.librariesDir.resolve(artifact.url());
+    }
+
+    /**
+     * @param path a lockfile path starting with {@link #PATH_PREFIX}
+     */
+    public Path resolve(String path) {
+        return this.librariesDir.resolve(path.substring(LibraryRepository.PATH_PREFIX.length()));
+    }
+
+    /**
+     * @return the path of a file in this repository as written in lockfiles, or {@code null} if it is not in this repository
+     */
+    public String relativize(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path dir = this.librariesDir.toAbsolutePath().normalize();
+
+        if (!absolute.startsWith(dir)) {
+            return null;
+        }
+
+        return LibraryRepository.PATH_PREFIX + dir.relativize(absolute).toString().replace('\\', '/');
+    }
+
+    /**
+     * Moves a jar that came without coordinates, e.g. bundled with a loader, into the repository. The coordinates
+     * are read from the {@code pom.properties} Maven puts into jars. A jar without them is matched against
+     * libraries with the same file name and content.
+     *
+     * @param jar      the jar to import, deleted if the repository already has it
+     * @param sha256   SHA-256 of the jar
+     * @param hashes   hashes of repository files, usually the verification index
+     * @return the jar in the repository, or {@code null} if it could not be imported and was left in place
+     */
+    public Path importJar(Path jar, String sha256, VerificationIndex hashes) throws IOException {
+        String fileName = jar.getFileName().toString();
+        MavenArtifact artifact = LibraryRepository.readCoordinates(jar);
+
+        Path target = null;
+
+        if (artifact != null && artifact.jar().equals(fileName)) {
+            target = this.getPath(artifact);
+        } else if (Files.isDirectory(this.librariesDir)) {
+            for (Path file : FileUtils.walk(this.librariesDir)) {
+                if (file.getFileName().toString().equals(fileName) && hashes.matches(file, sha256)) {
+                    target = file;
+
+                    break;
+                }
+            }
+        }
+
+        if (target == null) {
+            return null;
+        }
+
+        if (Files.exists(target)) {
+            if (!hashes.matches(target, sha256)) {
+                Log.warn("Library " + target + " differs from " + jar + ", keeping both");
+
+                return null;
+            }
+
+            Files.delete(jar);
+
+            return target;
+        }
+
+        FileUtils.createDirectoryIfNotExists(target.getParent());
+
+        try {
+            Files.move(jar, target);
+        } catch (FileAlreadyExistsException e) {
+            // Imported concurrently
+            return this.importJar(jar, sha256, hashes);
+        }
+
+        // A move keeps the modification time, which may be long past the grace period
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+
+        hashes.record(target, sha256);
+
+        return target;
+    }
+
+    private static MavenArtifact readCoordinates(Path jar) {
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            List<? extends ZipEntry> entries = zipFile.stream()
+                .filter(entry -> LibraryRepository.POM_PROPERTIES.matcher(entry.getName()).matches())
+                .toList();
+
+            // Shaded jars carry the properties of everything they contain
+            if (entries.size() != 1) {
+                return null;
+            }
+
+            Properties properties = new Properties();
+
+            try (InputStream inputStream = zipFile.getInputStream(entries.get(0))) {
+                properties.load(inputStream);
+            }
+
+            String groupId = properties.getProperty("groupId");
+            String artifactId = properties.getProperty("artifactId");
+            String version = properties.getProperty("version");
+
+            if (groupId == null || artifactId == null || version == null) {
+                return null;
+            }
+
+            return new MavenArtifact(groupId, artifactId, version);
+        } catch (IOException e) {
+            Log.warn("Could not read " + jar + ": " + e.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * Deletes every coordinate, i.e. version directory, that contains none of the referenced files,
+     * and files outside of the Maven layout that are not referenced. Nothing is deleted while an install is running.
+     *
+     * @param references collects the files referenced by any installed loader version
+     * @return number of deleted files
+     */
+    public int collectGarbage(References references) throws IOException {
+        if (!this.installLock.writeLock().tryLock()) {
+            Log.info("Skipping library garbage collection, an install is running");
+
+            return 0;
+        }
+
+        try {
+            return this.collectGarbage(references.collect());
+        } finally {
+            this.installLock.writeLock().unlock();
+        }
+    }
+
+    private int collectGarbage(Set<Path> referenced) throws IOException {
+        if (!Files.isDirectory(this.librariesDir)) {
+            return 0;
+        }
+
+        Set<Path> liveDirs = new HashSet<>();
+
+        for (Path file : referenced) {
+            liveDirs.add(file.toAbsolutePath().normalize().getParent());
+        }
+
+        FileTime threshold = FileTime.from(Instant.now().minus(LibraryRepository.GRACE_PERIOD));
+        int deleted = 0;
+
+        List<Path> paths = FileUtils.walk(this.librariesDir);
+
+        for (Path file : paths) {
+            if (!Files.isRegularFile(file) || liveDirs.contains(file.toAbsolutePath().normalize().getParent())) {
+                continue;
+            }
+
+            if (Files.getLastModifiedTime(file).compareTo(threshold) > 0) {
+                continue;
+            }
+
+            Files.delete(file);
+            deleted++;
+        }
+
+        // Deepest first, so emptied parents are removed as well
+        paths.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+
+        for (Path dir : paths) {
+            if (dir.equals(this.librariesDir) || !Files.isDirectory(dir)) {
+                continue;
+            }
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                if (stream.iterator().hasNext()) {
+                    continue;
+                }
+            }
+
+            Files.delete(dir);
+        }
+
+        return deleted;
+    }
+
+    public Path getDir() {
+        return this.librariesDir;
+    }
+
+    public interface References {
+        Set<Path> collect() throws IOException;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.storage;
+
+import com.google.gson.reflect.TypeToken;
+import me.theentropyshard.crlauncher.logging.Log;
+import me.theentropyshard.crlauncher.utils.FileUtils;
+import me.theentropyshard.crlauncher.utils.HashUtils;
+import me.theentropyshard.crlauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the SHA-256 of files that were already verified, keyed by path, size, modification time
+ * and file key, so unchanged files do not have to be hashed again on every launch
+ */
+public class VerificationIndex {
+    private final Path indexFile;
+    private final Map<String, Entry> entries;
+
+    private volatile boolean forceReverify;
+    private volatile boolean dirty;
+
+    public VerificationIndex(Path indexFile) {
+        this.indexFile = indexFile;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    public void load() throws IOException {
+        if (!Files.exists(this.indexFile)) {
+            return;
+        }
+
+        Map<String, Entry> loaded = Json.parse(FileUtils.readUtf8(this.indexFile), new TypeToken<Map<String, Entry>>() {}.getType());
+
+        if (loaded != null) {
+            this.entries.putAll(loaded);
+        }
+    }
+
+    public void save() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+
+        this.entries.entrySet().removeIf(e -> !Files.exists(Path.of(e.getKey())));
+
+        FileUtils.writeUtf8(this.indexFile, Json.write(this.entries));
+
+        this.dirty = false;
+    }
+
+    /**
+     * Returns the SHA-256 of the file, hashing it only if it changed since it was last verified
+     */
+    public String sha256(Path file) throws IOException {
+        if (!this.forceReverify) {
+            String cached = this.getVerifiedSha256(file);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String sha256 = HashUtils.sha256(file);
+        this.record(file, sha256);
+
+        return sha256;
+    }
+
+    /**
+     * @return true if the file exists and its SHA-256 equals the expected one
+     */
+    public boolean matches(Path file, String expectedSha256) throws IOException {
+        if (expectedSha256 == null || !Files.exists(file)) {
+            return false;
+        }
+
+        return expectedSha256.equalsIgnoreCase(this.sha256(file));
+    }
+
+    /**
+     * Returns the last verified SHA-256 of the file if it has not changed since, null otherwise
+     */
+    public String getVerifiedSha256(Path file) {
+        Entry entry = this.entries.get(VerificationIndex.key(file));
+
+        if (entry == null) {
+            return null;
+        }
+
+        try {
+            Entry current = Entry.of(file, entry.sha256());
+
+            if (current.size() == entry.size() &&
+                current.lastModified() == entry.lastModified() &&
+                Objects.equals(current.fileKey(), entry.fileKey())) {
+
+                return entry.sha256();
+            }
+        } catch (IOException e) {
+            Log.debug("Could not read attributes of '{}': {}", file, e.getMessage());
+        }
+
+        this.entries.remove(VerificationIndex.key(file));
+        this.dirty = true;
+
+        return null;
+    }
+
+    /**
+     * Stores a digest that is already known, for example one computed while downloading the file
+     */
+    public void record(Path file, String sha256) {
+        if (sha256 == null) {
+            return;
+        }
+
+        try {
+            this.entries.put(VerificationIndex.key(file), Entry.of(file, sha256));
+            this.dirty = true;
+        } catch (IOException e) {
+            Log.debug("Could not read attributes of '{}': {}", file, e.getMessage());
+        }
+    }
+
+    public void invalidate(Path file) {
+        if (this.entries.remove(VerificationIndex.key(file)) != null) {
+            this.dirty = true;
+        }
+    }
+
+    public void invalidateAll() {
+        this.entries.clear();
+        this.dirty = true;
+    }
+
+    public boolean isForceReverify() {
+        return this.forceReverify;
+    }
+
+    public void setForceReverify(boolean forceReverify) {
+        this.forceReverify = forceReverify;
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    public record Entry(long size, long lastModified, String fileKey, String sha256) {
+        public static Entry of(Path file, String sha256) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+
+            return new Entry(
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                fileKey == null ? null : fileKey.toString(),
+                sha256
+            );
+        }
+    }
+}
@@ -43,6 +43,30 @@ public final class HashUtils {
         }
     }
 
+    public static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(algorithm + " algorithm is not available in your JRE", ex);
+        }
+    }
+
+    /**
+     * Feeds the first {@code length} bytes of the file into the digest
+     */
+    public static void update(MessageDigest md, Path file, long length) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+
+            long remaining = length;
+            int numRead;
+            while (remaining > 0 && (numRead = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                md.update(buffer, 0, numRead);
+                remaining -= numRead;
+            }
+        }
+    }
+
     public static String sha256(Path file) throws IOException {
         byte[] mdBytes = HashUtils.hash(file, "SHA-256");
 
@@ -18,15 +18,17 @@
 
 package me.theentropyshard.crlauncher.utils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 public class ProcessReader {
+    private static final int BUFFER_SIZE = 8192;
+
     private final Process process;
     private final Charset charset;
 
@@ -39,12 +41,59 @@ public class ProcessReader {
         this.charset = charset;
     }
 
+    /**
+     * Reads the process output in bulk and splits it into lines without going through
+     * {@link java.io.BufferedReader#readLine()}. Accepts {@code \n}, {@code \r\n} and lone {@code \r}
+     * as line terminators. An unterminated last line is still delivered when the stream ends.
+     */
     public void read(Consumer<String> log) throws IOException {
         InputStream inputStream = this.process.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, this.charset));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            log.accept(line);
+        Reader reader = new InputStreamReader(inputStream, this.charset);
+
+        char[] buffer = new char[ProcessReader.BUFFER_SIZE];
+        StringBuilder pending = new StringBuilder();
+        boolean skipLf = false;
+
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int start = 0;
+
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+
+                if (skipLf) {
+                    skipLf = false;
+
+                    if (c == '\n') {
+                        start = i + 1;
+
+                        continue;
+                    }
+                }
+
+                if (c != '\n' && c != '\r') {
+                    continue;
+                }
+
+                if (pending.isEmpty()) {
+                    log.accept(new String(buffer, start, i - start));
+                } else {
+                    pending.append(buffer, start, i - start);
+                    log.accept(pending.toString());
+                    pending.setLength(0);
+                }
+
+                skipLf = c == '\r';
+                start = i + 1;
+            }
+
+            if (start < read) {
+                pending.append(buffer, start, read - start);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            log.accept(pending.toString());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Case-insensitive regular expression search. Empty matches are skipped.
+ */
+public class RegexTextSearch implements TextSearch {
+    private final Matcher matcher;
+
+    public RegexTextSearch(String regex) {
+        this.matcher = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).matcher("");
+    }
+
+    @Override
+    public void find(String text, MatchConsumer consumer) {
+        Matcher matcher = this.matcher.reset(text);
+
+        while (matcher.find()) {
+            if (matcher.end() > matcher.start()) {
+                consumer.accept(matcher.start(), matcher.end());
+            }
+        }
+    }
+}
@@ -16,58 +16,47 @@
  * along with this program. If not, see <https://www.gnu.org/licenses/>.
  */
 
-package me.theentropyshard.crlauncher.utils;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+package me.theentropyshard.crlauncher.utils;
 
+/**
+ * Case-insensitive substring search that does not copy or lowercase the text.
+ */
 public class SimpleTextSearch implements TextSearch {
-    @Override
-    public List<Pair<Integer, Integer>> findOccurrences(String haystack, String needle) {
-        if (haystack.isEmpty() || needle.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        List<Pair<Integer, Integer>> occurrences = new ArrayList<>();
+    private final String needle;
+    private final char lowerFirst;
+    private final char upperFirst;
 
-        List<Integer> rawOccurrences = SimpleTextSearch.findSequenceOccurrences(haystack, needle);
+    public SimpleTextSearch(String needle) {
+        this.needle = needle;
 
-        for (int rawIndex : rawOccurrences) {
-            int line = SimpleTextSearch.findLine(haystack, rawIndex);
-            int i = rawIndex - line + 1;
-            occurrences.add(new Pair<>(i, i + needle.length()));
-        }
-
-        return occurrences;
+        char first = needle.isEmpty() ? 0 : needle.charAt(0);
+        this.lowerFirst = Character.toLowerCase(first);
+        this.upperFirst = Character.toUpperCase(first);
     }
 
-    public static List<Integer> findSequenceOccurrences(String text, String sequence) {
-        text = text.toLowerCase();
-        sequence = sequence.toLowerCase();
-
-        List<Integer> positions = new ArrayList<>();
-        int index = text.indexOf(sequence);
+    @Override
+    public void find(String text, MatchConsumer consumer) {
+        int length = this.needle.length();
 
-        while (index != -1) {
-            positions.add(index);
-            index = text.indexOf(sequence, index + sequence.length());
+        if (length == 0) {
+            return;
         }
 
-        return positions;
-    }
+        int last = text.length() - length;
+        int i = 0;
+
+        while (i <= last) {
+            char c = text.charAt(i);
 
-    public static int findLine(String text, int index) {
-        String[] lines = text.split("\n");
-        int charCount = 0;
+            if ((c == this.lowerFirst || c == this.upperFirst || Character.toLowerCase(c) == this.lowerFirst) &&
+                text.regionMatches(true, i, this.needle, 0, length)) {
 
-        for (int lineNumber = 0; lineNumber < lines.length; lineNumber++) {
-            charCount += lines[lineNumber].length() + 1;
-            if (charCount > index) {
-                return lineNumber + 1;
+                consumer.accept(i, i + length);
+                i += length;
+            } else {
+                i++;
             }
         }
-
-        return -1;
     }
 }
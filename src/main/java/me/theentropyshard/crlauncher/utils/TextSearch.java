@@ -16,14 +16,31 @@
  * along with this program. If not, see <https://www.gnu.org/licenses/>.
  */
 
+
 package me.theentropyshard.crlauncher.utils;
 
-import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
+/**
+ * A compiled search query. Implementations keep per-query state and are not thread-safe.
+ */
 public interface TextSearch {
-    List<Pair<Integer, Integer>> findOccurrences(String haystack, String needle);
+    /**
+     * Reports every non-overlapping match in the text, in order.
+     */
+    void find(String text, MatchConsumer consumer);
+
+    /**
+     * Creates a case-insensitive search, either for the query as is or for the regular expression it contains.
+     *
+     * @throws PatternSyntaxException if {@code regex} is set and the query is not a valid expression
+     */
+    static TextSearch create(String query, boolean regex) {
+        return regex ? new RegexTextSearch(query) : new SimpleTextSearch(query);
+    }
 
-    static TextSearch create() {
-        return new SimpleTextSearch();
+    @FunctionalInterface
+    interface MatchConsumer {
+        void accept(int start, int end);
     }
 }
@@ -0,0 +1,293 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges zip archives in a single pass. Entries are copied as they are stored, without decompressing
+ * them, and an entry of a later archive replaces the entry with the same name of an earlier one.
+ * ZIP64 archives are not supported.
+ */
+public final class ZipMerger {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+
+    public static void merge(List<Path> sources, Path target) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+
+        try {
+            Map<String, Entry> entries = new LinkedHashMap<>();
+
+            for (Path source : sources) {
+                FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                channels.add(channel);
+
+                // A replaced entry keeps its position, so an overridden manifest still comes first
+                for (Entry entry : ZipMerger.readCentralDirectory(channel, source)) {
+                    entries.put(entry.name(), entry);
+                }
+            }
+
+            if (entries.size() > 0xFFFF) {
+                throw new IOException("Too many entries for a non-ZIP64 archive: " + entries.size());
+            }
+
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                ZipMerger.write(out, entries.values());
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static void write(FileChannel out, Iterable<Entry> entries) throws IOException {
+        ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+        int count = 0;
+
+        for (Entry entry : entries) {
+            long offset = out.position();
+
+            if (offset > 0xFFFFFFFFL) {
+                throw new IOException("Merged archive exceeds 4 GiB");
+            }
+
+            int flags = entry.flags() & ~ZipMerger.DATA_DESCRIPTOR_FLAG;
+
+            // Sizes and CRC always go into the local header, so the data descriptor is dropped
+            ByteBuffer local = ZipMerger.buffer(ZipMerger.LOCAL_HEADER_SIZE + entry.rawName().length);
+            local.putInt(ZipMerger.LOCAL_HEADER_SIGNATURE);
+            local.putShort((short) entry.versionNeeded());
+            local.putShort((short) flags);
+            local.putShort((short) entry.method());
+            local.putShort((short) entry.time());
+            local.putShort((short) entry.date());
+            local.putInt(entry.crc());
+            local.putInt((int) entry.compressedSize());
+            local.putInt((int) entry.size());
+            local.putShort((short) entry.rawName().length);
+            local.putShort((short) 0);
+            local.put(entry.rawName());
+            local.flip();
+            ZipMerger.writeFully(out, local);
+
+            long dataStart = ZipMerger.getDataStart(entry);
+            long remaining = entry.compressedSize();
+
+            while (remaining > 0) {
+                long transferred = entry.channel().transferTo(dataStart + entry.compressedSize() - remaining, remaining, out);
+
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of " + entry.source() + " while copying " + entry.name());
+                }
+
+                remaining -= transferred;
+            }
+
+            ByteBuffer central = ZipMerger.buffer(ZipMerger.CENTRAL_HEADER_SIZE + entry.rawName().length);
+            central.putInt(ZipMerger.CENTRAL_HEADER_SIGNATURE);
+            central.putShort((short) entry.versionMadeBy());
+            central.putShort((short) entry.versionNeeded());
+            central.putShort((short) flags);
+            central.putShort((short) entry.method());
+            central.putShort((short) entry.time());
+            central.putShort((short) entry.date());
+            central.putInt(entry.crc());
+            central.putInt((int) entry.compressedSize());
+            central.putInt((int) entry.size());
+            central.putShort((short) entry.rawName().length);
+            central.putShort((short) 0);
+            central.putShort((short) 0);
+            central.putShort((short) 0);
+            central.putShort((short) entry.internalAttributes());
+            central.putInt(entry.externalAttributes());
+            central.putInt((int) offset);
+            central.put(entry.rawName());
+            centralDirectory.write(central.array(), 0, central.capacity());
+
+            count++;
+        }
+
+        long centralDirectoryOffset = out.position();
+
+        if (centralDirectoryOffset > 0xFFFFFFFFL) {
+            throw new IOException("Merged archive exceeds 4 GiB");
+        }
+
+        ZipMerger.writeFully(out, ByteBuffer.wrap(centralDirectory.toByteArray()));
+
+        ByteBuffer end = ZipMerger.buffer(ZipMerger.END_SIZE);
+        end.putInt(ZipMerger.END_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) count);
+        end.putShort((short) count);
+        end.putInt(centralDirectory.size());
+        end.putInt((int) centralDirectoryOffset);
+        end.putShort((short) 0);
+        end.flip();
+        ZipMerger.writeFully(out, end);
+    }
+
+    private static List<Entry> readCentralDirectory(FileChannel channel, Path source) throws IOException {
+        long fileSize = channel.size();
+        int tailSize = (int) Math.min(fileSize, ZipMerger.END_SIZE + ZipMerger.MAX_COMMENT_SIZE);
+
+        ByteBuffer tail = ZipMerger.read(channel, fileSize - tailSize, tailSize);
+
+        int endOffset = -1;
+        for (int i = tailSize - ZipMerger.END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == ZipMerger.END_SIGNATURE) {
+                endOffset = i;
+
+                break;
+            }
+        }
+
+        if (endOffset == -1) {
+            throw new IOException("Not a zip archive: " + source);
+        }
+
+        int entryCount = Short.toUnsignedInt(tail.getShort(endOffset + 10));
+        long size = Integer.toUnsignedLong(tail.getInt(endOffset + 12));
+        long offset = Integer.toUnsignedLong(tail.getInt(endOffset + 16));
+
+        if (entryCount == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+            throw new IOException("ZIP64 archives are not supported: " + source);
+        }
+
+        ByteBuffer centralDirectory = ZipMerger.read(channel, offset, (int) size);
+        List<Entry> entries = new ArrayList<>(entryCount);
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (centralDirectory.getInt(position) != ZipMerger.CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt central directory in " + source);
+            }
+
+            int nameLength = Short.toUnsignedInt(centralDirectory.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(centralDirectory.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(centralDirectory.getShort(position + 32));
+
+            long compressedSize = Integer.toUnsignedLong(centralDirectory.getInt(position + 20));
+            long uncompressedSize = Integer.toUnsignedLong(centralDirectory.getInt(position + 24));
+            long localHeaderOffset = Integer.toUnsignedLong(centralDirectory.getInt(position + 42));
+
+            if (compressedSize == 0xFFFFFFFFL || uncompressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                throw new IOException("ZIP64 archives are not supported: " + source);
+            }
+
+            byte[] rawName = new byte[nameLength];
+            centralDirectory.get(position + ZipMerger.CENTRAL_HEADER_SIZE, rawName);
+
+            entries.add(new Entry(
+                source,
+                channel,
+                new String(rawName, StandardCharsets.UTF_8),
+                rawName,
+                Short.toUnsignedInt(centralDirectory.getShort(position + 4)),
+                Short.toUnsignedInt(centralDirectory.getShort(position + 6)),
+                Short.toUnsignedInt(centralDirectory.getShort(position + 8)),
+                Short.toUnsignedInt(centralDirectory.getShort(position + 10)),
+                Short.toUnsignedInt(centralDirectory.getShort(position + 12)),
+                Short.toUnsignedInt(centralDirectory.getShort(position + 14)),
+                centralDirectory.getInt(position + 16),
+                compressedSize,
+                uncompressedSize,
+                Short.toUnsignedInt(centralDirectory.getShort(position + 36)),
+                centralDirectory.getInt(position + 38),
+                localHeaderOffset
+            ));
+
+            position += ZipMerger.CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        return entries;
+    }
+
+    private static long getDataStart(Entry entry) throws IOException {
+        ByteBuffer local = ZipMerger.read(entry.channel(), entry.localHeaderOffset(), ZipMerger.LOCAL_HEADER_SIZE);
+
+        if (local.getInt(0) != ZipMerger.LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupt local header of " + entry.name() + " in " + entry.source());
+        }
+
+        int nameLength = Short.toUnsignedInt(local.getShort(26));
+        int extraLength = Short.toUnsignedInt(local.getShort(28));
+
+        return entry.localHeaderOffset() + ZipMerger.LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ZipMerger.buffer(length);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private record Entry(Path source, FileChannel channel, String name, byte[] rawName, int versionMadeBy,
+                         int versionNeeded, int flags, int method, int time, int date, int crc, long compressedSize,
+                         long size, int internalAttributes, int externalAttributes, long localHeaderOffset) {
+
+    }
+
+    private ZipMerger() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -97,6 +97,6 @@ public enum AnsiColor {
     }
 
     public static String stripAnsiCodes(String input) {
-        return input.replaceAll("\u001B\\[[;\\d]*m", "");
+        return new AnsiStyleParser().strip(input);
     }
 }
\ No newline at end of file
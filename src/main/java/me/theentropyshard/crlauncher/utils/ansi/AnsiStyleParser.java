@@ -0,0 +1,306 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package me.theentropyshard.crlauncher.utils.ansi;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Streaming parser for ANSI SGR (Select Graphic Rendition) sequences.
+ * <p>
+ * A line is read once, character by character. Text outside escape sequences goes to a reusable
+ * buffer, and every style change starts a new run. Bold, italic, underline, the 16 standard colors,
+ * 256-color ({@code 38;5;n}) and truecolor ({@code 38;2;r;g;b}) foregrounds and resets are understood.
+ * Background colors and other CSI sequences are parsed and dropped. Style is reset at the start of each line.
+ * <p>
+ * Parsing allocates nothing once the buffers have grown to fit the longest line. Not thread-safe.
+ */
+public class AnsiStyleParser {
+    public static final int DEFAULT_COLOR = -1;
+
+    public static final int BOLD = 1;
+    public static final int ITALIC = 1 << 1;
+    public static final int UNDERLINE = 1 << 2;
+
+    private static final char ESC = '\u001B';
+    private static final int MAX_PARAMS = 16;
+
+    private static final int STATE_TEXT = 0;
+    private static final int STATE_ESCAPE = 1;
+    private static final int STATE_CSI = 2;
+
+    private static final Color[] PALETTE = AnsiStyleParser.createPalette();
+
+    private final StringBuilder text = new StringBuilder();
+    private final int[] params = new int[AnsiStyleParser.MAX_PARAMS];
+
+    private int[] runStarts = new int[8];
+    private int[] runColors = new int[8];
+    private int[] runFlags = new int[8];
+    private int runCount;
+
+    private int color;
+    private int flags;
+
+    private int lastTrueColor = AnsiStyleParser.DEFAULT_COLOR;
+    private Color lastTrueColorObject;
+
+    /**
+     * Parses one line, replacing the result of the previous call.
+     */
+    public void parse(String line) {
+        this.text.setLength(0);
+        this.runCount = 0;
+        this.color = AnsiStyleParser.DEFAULT_COLOR;
+        this.flags = 0;
+
+        int state = AnsiStyleParser.STATE_TEXT;
+        int paramCount = 0;
+        boolean hasParam = false;
+
+        for (int i = 0, length = line.length(); i < length; i++) {
+            char c = line.charAt(i);
+
+            switch (state) {
+                case AnsiStyleParser.STATE_TEXT -> {
+                    if (c == AnsiStyleParser.ESC) {
+                        state = AnsiStyleParser.STATE_ESCAPE;
+                    } else {
+                        this.appendChar(c);
+                    }
+                }
+                case AnsiStyleParser.STATE_ESCAPE -> {
+                    if (c == '[') {
+                        state = AnsiStyleParser.STATE_CSI;
+                        paramCount = 0;
+                        hasParam = false;
+                        this.params[0] = 0;
+                    } else {
+                        // Two-character escape, dropped
+                        state = AnsiStyleParser.STATE_TEXT;
+                    }
+                }
+                case AnsiStyleParser.STATE_CSI -> {
+                    if (c >= '0' && c <= '9') {
+                        if (paramCount < AnsiStyleParser.MAX_PARAMS) {
+                            this.params[paramCount] = Math.min(this.params[paramCount] * 10 + (c - '0'), 0xFFFF);
+                        }
+                        hasParam = true;
+                    } else if (c == ';' || c == ':') {
+                        if (paramCount < AnsiStyleParser.MAX_PARAMS) {
+                            paramCount++;
+                        }
+                        if (paramCount < AnsiStyleParser.MAX_PARAMS) {
+                            this.params[paramCount] = 0;
+                        }
+                        hasParam = true;
+                    } else if (c >= 0x40 && c <= 0x7E) {
+                        if (c == 'm') {
+                            int count = hasParam ? Math.min(paramCount + 1, AnsiStyleParser.MAX_PARAMS) : 1;
+                            this.applySgr(count);
+                        }
+
+                        state = AnsiStyleParser.STATE_TEXT;
+                    } else if (c < 0x20 || c > 0x3F) {
+                        // Malformed sequence, show the rest as text
+                        state = AnsiStyleParser.STATE_TEXT;
+                        this.appendChar(c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses one line into a styled line that stays valid after the next call.
+     */
+    public StyledLine parseLine(String line) {
+        if (line.indexOf(AnsiStyleParser.ESC) == -1) {
+            return StyledLine.plain(line);
+        }
+
+        this.parse(line);
+
+        int count = this.runCount;
+        Color[] colors = new Color[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = this.getRunColor(i);
+        }
+
+        return new StyledLine(
+            this.text.toString(),
+            Arrays.copyOf(this.runStarts, count), colors, Arrays.copyOf(this.runFlags, count)
+        );
+    }
+
+    /**
+     * @return the text without escape sequences
+     */
+    public String strip(String line) {
+        if (line.indexOf(AnsiStyleParser.ESC) == -1) {
+            return line;
+        }
+
+        this.parse(line);
+
+        return this.text.toString();
+    }
+
+    private void appendChar(char c) {
+        int count = this.runCount;
+
+        if (count == 0 || this.runColors[count - 1] != this.color || this.runFlags[count - 1] != this.flags) {
+            if (count == this.runStarts.length) {
+                this.runStarts = Arrays.copyOf(this.runStarts, count * 2);
+                this.runColors = Arrays.copyOf(this.runColors, count * 2);
+                this.runFlags = Arrays.copyOf(this.runFlags, count * 2);
+            }
+
+            this.runStarts[count] = this.text.length();
+            this.runColors[count] = this.color;
+            this.runFlags[count] = this.flags;
+            this.runCount = count + 1;
+        }
+
+        this.text.append(c);
+    }
+
+    private void applySgr(int count) {
+        int[] params = this.params;
+
+        for (int i = 0; i < count; i++) {
+            int code = params[i];
+
+            if (code == 0) {
+                this.color = AnsiStyleParser.DEFAULT_COLOR;
+                this.flags = 0;
+            } else if (code == 1) {
+                this.flags |= AnsiStyleParser.BOLD;
+            } else if (code == 3) {
+                this.flags |= AnsiStyleParser.ITALIC;
+            } else if (code == 4) {
+                this.flags |= AnsiStyleParser.UNDERLINE;
+            } else if (code == 22) {
+                this.flags &= ~AnsiStyleParser.BOLD;
+            } else if (code == 23) {
+                this.flags &= ~AnsiStyleParser.ITALIC;
+            } else if (code == 24) {
+                this.flags &= ~AnsiStyleParser.UNDERLINE;
+            } else if (code >= 30 && code <= 37) {
+                this.color = code - 30;
+            } else if (code >= 90 && code <= 97) {
+                this.color = code - 90 + 8;
+            } else if (code == 39) {
+                this.color = AnsiStyleParser.DEFAULT_COLOR;
+            } else if (code == 38 || code == 48) {
+                int color = AnsiStyleParser.DEFAULT_COLOR;
+
+                if (i + 2 < count && params[i + 1] == 5) {
+                    color = Math.min(params[i + 2], 255);
+                    i += 2;
+                } else if (i + 4 < count && params[i + 1] == 2) {
+                    // Truecolor values are stored above the palette indices
+                    color = 0x1000000 | (Math.min(params[i + 2], 255) << 16) |
+                        (Math.min(params[i + 3], 255) << 8) | Math.min(params[i + 4], 255);
+                    i += 4;
+                } else {
+                    // Malformed extended color, the remaining parameters can't be trusted
+                    break;
+                }
+
+                if (code == 38) {
+                    this.color = color;
+                }
+            }
+        }
+    }
+
+    public CharSequence getText() {
+        return this.text;
+    }
+
+    public int getRunCount() {
+        return this.runCount;
+    }
+
+    public int getRunStart(int run) {
+        return this.runStarts[run];
+    }
+
+    public int getRunEnd(int run) {
+        return run + 1 < this.runCount ? this.runStarts[run + 1] : this.text.length();
+    }
+
+    /**
+     * @return a combination of {@link #BOLD}, {@link #ITALIC} and {@link #UNDERLINE}
+     */
+    public int getRunFlags(int run) {
+        return this.runFlags[run];
+    }
+
+    /**
+     * @return the foreground of the run, or {@code null} for the default color
+     */
+    public Color getRunColor(int run) {
+        int color = this.runColors[run];
+
+        if (color == AnsiStyleParser.DEFAULT_COLOR) {
+            return null;
+        }
+
+        if (color < AnsiStyleParser.PALETTE.length) {
+            return AnsiStyleParser.PALETTE[color];
+        }
+
+        if (color != this.lastTrueColor) {
+            this.lastTrueColor = color;
+            this.lastTrueColorObject = new Color(color & 0xFFFFFF);
+        }
+
+        return this.lastTrueColorObject;
+    }
+
+    private static Color[] createPalette() {
+        Color[] palette = new Color[256];
+
+        AnsiColor[] standard = {
+            AnsiColor.BLACK, AnsiColor.RED, AnsiColor.GREEN, AnsiColor.YELLOW,
+            AnsiColor.BLUE, AnsiColor.MAGENTA, AnsiColor.CYAN, AnsiColor.WHITE,
+            AnsiColor.BRIGHT_BLACK, AnsiColor.BRIGHT_RED, AnsiColor.BRIGHT_GREEN, AnsiColor.BRIGHT_YELLOW,
+            AnsiColor.BRIGHT_BLUE, AnsiColor.BRIGHT_MAGENTA, AnsiColor.BRIGHT_CYAN, AnsiColor.BRIGHT_WHITE
+        };
+
+        for (int i = 0; i < standard.length; i++) {
+            palette[i] = standard[i].getColor();
+        }
+
+        int[] levels = {0, 95, 135, 175, 215, 255};
+        for (int i = 0; i < 216; i++) {
+            palette[16 + i] = new Color(levels[i / 36], levels[(i / 6) % 6], levels[i % 6]);
+        }
+
+        for (int i = 0; i < 24; i++) {
+            int gray = 8 + i * 10;
+            palette[232 + i] = new Color(gray, gray, gray);
+        }
+
+        return palette;
+    }
+}
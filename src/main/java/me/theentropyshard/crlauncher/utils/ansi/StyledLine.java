@@ -0,0 +1,85 @@
+/*
+ * CRLauncher - https://github.com/CRLauncher/CRLauncher
+ * Copyright (C) 2024 CRLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.crlauncher.utils.ansi;
+
+import java.awt.*;
+
+/**
+ * A line with its ANSI escape sequences parsed into runs of styled text. Unlike {@link AnsiStyleParser},
+ * which reuses its buffers, a styled line never changes and can be handed to another thread.
+ */
+public final class StyledLine {
+    private static final int[] NO_INTS = new int[0];
+    private static final Color[] NO_COLORS = new Color[0];
+
+    private final String text;
+    private final int[] runStarts;
+    private final Color[] runColors;
+    private final int[] runFlags;
+
+    StyledLine(String text, int[] runStarts, Color[] runColors, int[] runFlags) {
+        this.text = text;
+        this.runStarts = runStarts;
+        this.runColors = runColors;
+        this.runFlags = runFlags;
+    }
+
+    /**
+     * @return a line without runs, its text is drawn in the default style
+     */
+    public static StyledLine plain(String text) {
+        return new StyledLine(text, StyledLine.NO_INTS, StyledLine.NO_COLORS, StyledLine.NO_INTS);
+    }
+
+    /**
+     * @return the text without escape sequences
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * @return the number of runs, 0 for a plain line
+     */
+    public int getRunCount() {
+        return this.runStarts.length;
+    }
+
+    public int getRunStart(int run) {
+        return this.runStarts[run];
+    }
+
+    public int getRunEnd(int run) {
+        return run + 1 < this.runStarts.length ? this.runStarts[run + 1] : this.text.length();
+    }
+
+    /**
+     * @return the foreground of the run, or {@code null} for the default color
+     */
+    public Color getRunColor(int run) {
+        return this.runColors[run];
+    }
+
+    /**
+     * @return a combination of {@link AnsiStyleParser#BOLD}, {@link AnsiStyleParser#ITALIC} and {@link AnsiStyleParser#UNDERLINE}
+     */
+    public int getRunFlags(int run) {
+        return this.runFlags[run];
+    }
+}